@@ -0,0 +1,78 @@
+package com.wethinkcode.demo.domain.shared;
+
+import com.wethinkcode.demo.infrastructure.persistence.AppointmentRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Triage queue operations at clinic sizes from a quiet morning to a surge: rebuilding the queue
+ * from the database result, reading it in priority order, and a patient arriving and being claimed
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TriageServiceBenchmark {
+
+    @Param({"100", "1000", "10000", "100000"})
+    private int waiting;
+
+    private AppointmentRepository appointmentRepository;
+    private TriageService triageService;
+    private long nextArrival;
+
+    @Setup
+    public void setUp() {
+        TriagePriority[] priorities = TriagePriority.values();
+        List<Appointment> appointments = LongStream.range(0, waiting)
+            .mapToObj(id -> Appointment.builder()
+                .id(id)
+                .triagePriority(priorities[(int) (id % priorities.length)])
+                .status(AppointmentStatus.WAITING)
+                .build())
+            .toList();
+
+        appointmentRepository = mock(AppointmentRepository.class);
+        when(appointmentRepository.findByStatus(AppointmentStatus.WAITING)).thenReturn(appointments);
+        triageService = new TriageService(appointmentRepository);
+        triageService.loadQueue();
+        nextArrival = waiting;
+    }
+
+    @Benchmark
+    public int loadQueue() {
+        // A service that has not loaded yet builds the queue from the WAITING appointments and sorts them
+        return new TriageService(appointmentRepository).getWaitingAppointmentsByPriority().size();
+    }
+
+    @Benchmark
+    public List<Long> waitingQueueInPriorityOrder() {
+        return triageService.getWaitingAppointmentIds();
+    }
+
+    @Benchmark
+    public long arrivalAndClaim() {
+        long id = nextArrival++;
+        triageService.onAppointmentStatusChanged(new AppointmentStatusChangedEvent(id, TriagePriority.HIGH, AppointmentStatus.WAITING));
+        triageService.onAppointmentStatusChanged(new AppointmentStatusChangedEvent(id, TriagePriority.HIGH, AppointmentStatus.IN_CONSULT));
+        return triageService.getQueueVersion();
+    }
+}
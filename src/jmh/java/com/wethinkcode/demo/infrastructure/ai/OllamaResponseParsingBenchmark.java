@@ -0,0 +1,87 @@
+package com.wethinkcode.demo.infrastructure.ai;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Pulling the generated text out of an Ollama /api/generate answer. Ollama sends the text
+ * followed by timing fields and the "context" token array, which grows with the prompt; the
+ * current code reads the whole answer into a tree, the alternative stops at the "response" field.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OllamaResponseParsingBenchmark {
+
+    /** Tokens in the "context" array, roughly prompt plus answer length */
+    @Param({"512", "4096"})
+    private int contextTokens;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private String answer;
+
+    @Setup
+    public void setUp() throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("model", "llama2");
+        body.put("created_at", "2026-03-15T09:30:00.000Z");
+        body.put("response", "{\"subjective\": \"Cough and fever for three days\", \"objective\": \"Temp 38.2C, chest clear\", "
+            + "\"assessment\": \"Viral upper respiratory tract infection\", \"plan\": \"Rest, fluids, paracetamol\"}".repeat(4));
+        body.put("done", true);
+        body.put("context", IntStream.range(0, contextTokens).map(i -> 1000 + i * 7 % 31000).toArray());
+        body.put("total_duration", 5_043_500_667L);
+        body.put("load_duration", 5_025_959L);
+        body.put("prompt_eval_count", 26);
+        body.put("prompt_eval_duration", 325_953_000L);
+        body.put("eval_count", 290);
+        body.put("eval_duration", 4_709_213_000L);
+        answer = objectMapper.writeValueAsString(body);
+    }
+
+    @Benchmark
+    public String readTree() throws IOException {
+        // As LlamaAiService does today
+        JsonNode jsonNode = objectMapper.readTree(answer);
+        return jsonNode.has("response") ? jsonNode.get("response").asText() : answer;
+    }
+
+    @Benchmark
+    public String streamingExtraction() throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(answer)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return answer;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("response".equals(field)) {
+                    return parser.getText();
+                }
+                parser.skipChildren();
+            }
+            return answer;
+        }
+    }
+}
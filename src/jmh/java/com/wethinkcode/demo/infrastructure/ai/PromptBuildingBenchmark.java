@@ -0,0 +1,53 @@
+package com.wethinkcode.demo.infrastructure.ai;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the SOAP note prompt around a dictation: the text block with String.formatted that
+ * OllamaPrompts uses, compared with plain concatenation, for a short note up to a long dictation
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromptBuildingBenchmark {
+
+    private static final String SOAP_PROMPT_TEMPLATE = OllamaPrompts.soapNote("%s");
+    private static final int PLACEHOLDER = SOAP_PROMPT_TEMPLATE.indexOf("%s");
+
+    /** Characters of dictation; about 1k for a routine visit, 100k for an hour transcribed */
+    @Param({"1000", "10000", "100000"})
+    private int dictationLength;
+
+    private String roughNotes;
+
+    @Setup
+    public void setUp() {
+        String sentence = "Patient reports productive cough and fever for three days, no chest pain, 50% better with paracetamol. ";
+        roughNotes = sentence.repeat(dictationLength / sentence.length() + 1).substring(0, dictationLength);
+    }
+
+    @Benchmark
+    public String formatted() {
+        return OllamaPrompts.soapNote(roughNotes);
+    }
+
+    @Benchmark
+    public String concatenated() {
+        return SOAP_PROMPT_TEMPLATE.substring(0, PLACEHOLDER) + roughNotes + SOAP_PROMPT_TEMPLATE.substring(PLACEHOLDER + 2);
+    }
+}
@@ -0,0 +1,83 @@
+package com.wethinkcode.demo.presentation.api;
+
+import com.wethinkcode.demo.domain.shared.Appointment;
+import com.wethinkcode.demo.domain.shared.AppointmentStatus;
+import com.wethinkcode.demo.domain.shared.MedicalRecord;
+import com.wethinkcode.demo.domain.shared.TriagePriority;
+import com.wethinkcode.demo.domain.shared.User;
+import com.wethinkcode.demo.domain.shared.UserRole;
+import com.wethinkcode.demo.presentation.DashboardEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Mapping loaded entities to what the dashboards and the mobile API send: dashboard events
+ * from appointments (through the patient and doctor associations) and API records from
+ * medical records (through the enhanced lazy text fields)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityMappingBenchmark {
+
+    /** Rows on one screen up to a full day's export */
+    @Param({"20", "1000"})
+    private int rows;
+
+    private List<Appointment> appointments;
+    private List<MedicalRecord> records;
+
+    @Setup
+    public void setUp() {
+        User doctor = User.builder().id(1L).name("Dr. Emily Stone").role(UserRole.DOCTOR).status("AVAILABLE").build();
+        TriagePriority[] priorities = TriagePriority.values();
+        AppointmentStatus[] statuses = AppointmentStatus.values();
+        appointments = LongStream.range(0, rows)
+            .mapToObj(id -> Appointment.builder()
+                .id(id)
+                .patient(User.builder().id(1000 + id).name("Patient " + id).role(UserRole.PATIENT).status("WAITING").build())
+                .doctor(id % 2 == 0 ? doctor : null)
+                .triagePriority(priorities[(int) (id % priorities.length)])
+                .status(statuses[(int) (id % statuses.length)])
+                .build())
+            .toList();
+        records = LongStream.range(0, rows)
+            .mapToObj(id -> MedicalRecord.builder()
+                .id(id)
+                .appointmentId(id)
+                .soapNote("{\"subjective\": \"Cough\", \"objective\": \"Temp 38.2C\", \"assessment\": \"URTI\", \"plan\": \"Rest\"}")
+                .patientSummary("You have a cold. Rest and drink water.")
+                .prescription("- Paracetamol 500mg every six hours")
+                .isSigned(id % 3 == 0)
+                .createdAt(LocalDateTime.of(2026, 3, 15, 9, 0).plusMinutes(id))
+                .build())
+            .toList();
+    }
+
+    @Benchmark
+    public List<DashboardEvent> dashboardEvents() {
+        return appointments.stream().map(DashboardEvent::from).toList();
+    }
+
+    @Benchmark
+    public List<ApiMedicalRecord> apiMedicalRecords() {
+        return records.stream().map(ApiMedicalRecord::from).toList();
+    }
+}
@@ -2,25 +2,80 @@ package com.wethinkcode.demo;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class NoctorSystemApplication {
 
 	public static void main(String[] args) {
 		SpringApplication.run(NoctorSystemApplication.class, args);
 	}
 
+	/**
+	 * Virtual threads for the AI documentation stages, which spend nearly all their time waiting on Ollama
+	 */
+	@Bean(destroyMethod = "close")
+	public ExecutorService documentationExecutor() {
+		return Executors.newVirtualThreadPerTaskExecutor();
+	}
+
+	/**
+	 * Bounded worker pool for background documentation jobs
+	 */
 	@Bean
-	public RestTemplate restTemplate() {
-		return new RestTemplate();
+	public ThreadPoolTaskExecutor documentationJobExecutor(
+			@Value("${noctor.documentation.jobs.workers:4}") int workers,
+			@Value("${noctor.documentation.jobs.queue-capacity:100}") int queueCapacity) {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(workers);
+		executor.setMaxPoolSize(workers);
+		executor.setQueueCapacity(queueCapacity);
+		executor.setThreadNamePrefix("documentation-job-");
+		executor.setWaitForTasksToCompleteOnShutdown(false);
+		return executor;
 	}
 
+	/**
+	 * Dates in JSON responses are written as ISO strings (e.g. 2026-03-15)
+	 */
 	@Bean
 	public ObjectMapper objectMapper() {
-		return new ObjectMapper();
+		return new ObjectMapper()
+			.registerModule(new JavaTimeModule())
+			.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+	}
+
+	/**
+	 * Open session in view, except for long-polling and streaming requests: those can stay open for
+	 * a minute and would otherwise each keep a pooled database connection while they wait.
+	 * Replaces the interceptor Spring Boot registers for every request.
+	 */
+	@Bean
+	public OpenEntityManagerInViewInterceptor openEntityManagerInViewInterceptor() {
+		return new OpenEntityManagerInViewInterceptor();
 	}
-}
 
+	@Bean
+	public WebMvcConfigurer openEntityManagerInViewConfigurer(OpenEntityManagerInViewInterceptor interceptor) {
+		return new WebMvcConfigurer() {
+			@Override
+			public void addInterceptors(InterceptorRegistry registry) {
+				registry.addWebRequestInterceptor(interceptor)
+					.excludePathPatterns("/doctor/documentation-job/*/result", "/doctor/record-consultation/*/stream");
+			}
+		};
+	}
+}
@@ -1,16 +1,20 @@
 package com.wethinkcode.demo.domain.doctor;
 
 import com.wethinkcode.demo.domain.shared.Appointment;
+import com.wethinkcode.demo.domain.shared.AppointmentView;
 import com.wethinkcode.demo.domain.shared.MedicalRecord;
 import com.wethinkcode.demo.domain.shared.User;
 import com.wethinkcode.demo.domain.shared.AppointmentStatus;
 import com.wethinkcode.demo.infrastructure.persistence.UserRepository;
 import com.wethinkcode.demo.infrastructure.persistence.AppointmentRepository;
 import com.wethinkcode.demo.infrastructure.persistence.MedicalRecordRepository;
-import com.wethinkcode.demo.infrastructure.ai.LlamaAiService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import jakarta.transaction.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 import java.util.List;
 import java.util.Optional;
@@ -22,13 +26,15 @@ public class DoctorService {
     private final UserRepository userRepository;
     private final AppointmentRepository appointmentRepository;
     private final MedicalRecordRepository medicalRecordRepository;
-    private final LlamaAiService llamaAiService;
+    private final DocumentationPipeline documentationPipeline;
+    private final ReactiveDocumentationPipeline reactiveDocumentationPipeline;
+    private final TransactionTemplate transactionTemplate;
     
     /**
      * Get all appointments for a specific doctor
      */
-    public List<Appointment> getDoctorAppointments(Long doctorId) {
-        return appointmentRepository.findByDoctorId(doctorId);
+    public List<AppointmentView> getDoctorAppointments(Long doctorId) {
+        return appointmentRepository.findViewsByDoctorId(doctorId);
     }
     
     /**
@@ -44,41 +50,106 @@ public class DoctorService {
     }
     
     /**
-     * Generate and save medical record with AI-generated SOAP note and patient summary
+     * Generate and save medical record with AI-generated SOAP note and patient summary.
+     * The AI calls run outside the database transaction; only the final write is transactional.
      */
-    @Transactional
     public MedicalRecord generateAndSaveMedicalRecord(Long appointmentId, String roughNotes) {
-        // Fetch the appointment
-        Optional<Appointment> appointment = appointmentRepository.findById(appointmentId);
-        if (appointment.isEmpty()) {
-            throw new IllegalArgumentException("Appointment not found with ID: " + appointmentId);
-        }
-        
-        Appointment apt = appointment.get();
-        
-        // Generate SOAP note using Llama AI
-        String soapNote = llamaAiService.generateSoapNote(roughNotes);
+        Appointment apt = findAppointment(appointmentId);
+        requireUnsignedRecord(appointmentId);
         
-        // Generate patient-friendly summary
-        String patientSummary = llamaAiService.generatePatientSummary(soapNote);
+        // Generate SOAP note, then patient summary and prescription in parallel
+        DocumentationPipeline.Documentation documentation = documentationPipeline.document(roughNotes, apt.getTriagePriority());
         
-        // Extract prescription
-        String prescription = llamaAiService.extractPrescription(soapNote);
-        
-        // Create and save medical record
-        MedicalRecord record = MedicalRecord.builder()
-            .appointmentId(appointmentId)
-            .soapNote(soapNote)
-            .patientSummary(patientSummary)
-            .prescription(prescription)
-            .isSigned(false)
-            .build();
-        
-        // Update appointment status to COMPLETED
-        apt.setStatus(AppointmentStatus.COMPLETED);
-        appointmentRepository.save(apt);
-        
-        return medicalRecordRepository.save(record);
+        return saveMedicalRecord(appointmentId, roughNotes, documentation);
+    }
+    
+    /**
+     * Save medical record for a SOAP note that was already generated (e.g. streamed to the
+     * doctor's screen), adding the AI-generated patient summary and prescription
+     */
+    public MedicalRecord generateAndSaveMedicalRecord(Long appointmentId, String roughNotes, String soapNote) {
+        Appointment apt = findAppointment(appointmentId);
+        requireUnsignedRecord(appointmentId);
+        return saveMedicalRecord(appointmentId, roughNotes, documentationPipeline.documentSoapNote(soapNote, apt.getTriagePriority()));
+    }
+    
+    /**
+     * Non-blocking variant for a streamed SOAP note: the AI calls hold no thread while Ollama
+     * works, and only the database reads and the final write run on the given scheduler
+     */
+    public Mono<MedicalRecord> generateAndSaveMedicalRecord(Long appointmentId, String roughNotes, String soapNote, Scheduler databaseScheduler) {
+        return Mono.fromCallable(() -> {
+                Appointment apt = findAppointment(appointmentId);
+                requireUnsignedRecord(appointmentId);
+                return apt.getTriagePriority();
+            })
+            .subscribeOn(databaseScheduler)
+            .flatMap(priority -> reactiveDocumentationPipeline.documentSoapNote(soapNote, priority))
+            .publishOn(databaseScheduler)
+            .map(documentation -> saveMedicalRecord(appointmentId, roughNotes, documentation));
+    }
+    
+    /**
+     * Store generated documentation as the appointment's medical record and complete the appointment.
+     * A draft record is replaced; a signed record is final and is never overwritten.
+     *
+     * @throws IllegalStateException if the appointment's record is already signed
+     */
+    public MedicalRecord saveMedicalRecord(Long appointmentId, String roughNotes, DocumentationPipeline.Documentation documentation) {
+        return transactionTemplate.execute(status -> {
+            Appointment apt = findAppointment(appointmentId);
+            
+            // One record per appointment: documenting it again replaces the previous draft
+            MedicalRecord record = medicalRecordRepository.findByAppointmentId(appointmentId)
+                .orElseGet(() -> MedicalRecord.builder().appointmentId(appointmentId).build());
+            if (Boolean.TRUE.equals(record.getIsSigned())) {
+                throw signedRecord(appointmentId);
+            }
+            record.setSoapNote(documentation.soapNote());
+            record.setPatientSummary(documentation.patientSummary());
+            record.setPrescription(documentation.prescription());
+            record.setIsSigned(false);
+            
+            // Keep the dictation with the appointment and mark it COMPLETED
+            apt.setRoughNotes(roughNotes);
+            apt.setStatus(AppointmentStatus.COMPLETED);
+            appointmentRepository.save(apt);
+            
+            return medicalRecordRepository.save(record);
+        });
+    }
+    
+    /**
+     * Fail before any AI work if the appointment's record is already signed
+     *
+     * @throws IllegalStateException if it is
+     */
+    public void requireUnsignedRecord(Long appointmentId) {
+        if (medicalRecordRepository.findByAppointmentId(appointmentId).map(MedicalRecord::getIsSigned).orElse(false)) {
+            throw signedRecord(appointmentId);
+        }
+    }
+    
+    private static IllegalStateException signedRecord(Long appointmentId) {
+        return new IllegalStateException("The medical record for appointment " + appointmentId + " is already signed and cannot be regenerated");
+    }
+    
+    private Appointment findAppointment(Long appointmentId) {
+        return appointmentRepository.findById(appointmentId)
+            .orElseThrow(() -> new IllegalArgumentException("Appointment not found with ID: " + appointmentId));
+    }
+    
+    /**
+     * Stream the SOAP note for an appointment's rough notes token by token.
+     * The appointment is looked up on subscription, so an unknown one (or one whose record is
+     * already signed) fails the stream instead of this call.
+     */
+    public Flux<String> streamSoapNote(Long appointmentId, String roughNotes) {
+        return Flux.defer(() -> {
+            Appointment apt = findAppointment(appointmentId);
+            requireUnsignedRecord(appointmentId);
+            return reactiveDocumentationPipeline.streamSoapNote(roughNotes, apt.getTriagePriority());
+        });
     }
     
     /**
@@ -0,0 +1,228 @@
+package com.wethinkcode.demo.domain.doctor;
+
+import com.wethinkcode.demo.domain.shared.Appointment;
+import com.wethinkcode.demo.domain.shared.DocumentationJob;
+import com.wethinkcode.demo.domain.shared.DocumentationJobStatus;
+import com.wethinkcode.demo.domain.shared.MedicalRecord;
+import com.wethinkcode.demo.domain.shared.TriagePriority;
+import com.wethinkcode.demo.infrastructure.persistence.AppointmentRepository;
+import com.wethinkcode.demo.infrastructure.persistence.DocumentationJobRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Generates medical records in the background so that no request thread or database
+ * connection is held while Ollama is working. Each job is persisted, picked up by a
+ * bounded worker pool, and only the final record write runs in a transaction.
+ * Callers that want the outcome wait on {@link #whenFinished} rather than polling,
+ * without holding a thread while the job runs.
+ */
+@Service
+@Slf4j
+public class DocumentationJobService {
+    
+    static final String QUEUE_FULL = "Documentation queue is full. Please try again in a moment.";
+    private static final List<DocumentationJobStatus> ACTIVE = List.of(DocumentationJobStatus.QUEUED, DocumentationJobStatus.RUNNING);
+    
+    private final DocumentationJobRepository documentationJobRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final DocumentationPipeline documentationPipeline;
+    private final DoctorService doctorService;
+    private final Executor executor;
+    private final Map<Long, Waiters> waiting = new ConcurrentHashMap<>();
+    /** Striped by appointment so two submits for the same consultation cannot both create a job */
+    private final Object[] submitLocks = new Object[64];
+    
+    public DocumentationJobService(
+            DocumentationJobRepository documentationJobRepository,
+            AppointmentRepository appointmentRepository,
+            DocumentationPipeline documentationPipeline,
+            DoctorService doctorService,
+            @Qualifier("documentationJobExecutor") Executor executor) {
+        this.documentationJobRepository = documentationJobRepository;
+        this.appointmentRepository = appointmentRepository;
+        this.documentationPipeline = documentationPipeline;
+        this.doctorService = doctorService;
+        this.executor = executor;
+        Arrays.setAll(submitLocks, i -> new Object());
+    }
+    
+    /**
+     * Queue a documentation job for a consultation. If the consultation already has a job queued
+     * or running, that job is returned instead and the new notes are not used.
+     *
+     * @throws IllegalArgumentException if there is no such appointment
+     * @throws IllegalStateException if the appointment's record is already signed
+     */
+    public DocumentationJob submit(Long appointmentId, String roughNotes) {
+        if (!appointmentRepository.existsById(appointmentId)) {
+            throw new IllegalArgumentException("Appointment not found with ID: " + appointmentId);
+        }
+        doctorService.requireUnsignedRecord(appointmentId);
+        
+        DocumentationJob job;
+        synchronized (submitLocks[Math.floorMod(appointmentId.hashCode(), submitLocks.length)]) {
+            Optional<DocumentationJob> active = documentationJobRepository.findFirstByAppointmentIdAndStatusInOrderByIdDesc(appointmentId, ACTIVE);
+            if (active.isPresent()) {
+                log.info("Appointment {} already has documentation job {} in progress", appointmentId, active.get().getId());
+                return active.get();
+            }
+            
+            LocalDateTime now = LocalDateTime.now();
+            job = documentationJobRepository.save(DocumentationJob.builder()
+                .appointmentId(appointmentId)
+                .roughNotes(roughNotes)
+                .status(DocumentationJobStatus.QUEUED)
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+        }
+        
+        dispatch(job);
+        return job;
+    }
+    
+    public Optional<DocumentationJob> getJob(Long jobId) {
+        return documentationJobRepository.findById(jobId);
+    }
+    
+    public Optional<DocumentationJob> getLatestJob(Long appointmentId) {
+        return documentationJobRepository.findFirstByAppointmentIdOrderByIdDesc(appointmentId);
+    }
+    
+    /**
+     * Completes with the job once it is DONE or FAILED (straight away if it already is).
+     * All callers waiting on the same job share one future; a caller that gives up first must
+     * call {@link #stopWaiting} so the future does not outlive its last waiter.
+     *
+     * @throws IllegalArgumentException if there is no such job
+     */
+    public CompletableFuture<DocumentationJob> whenFinished(Long jobId) {
+        DocumentationJob job = documentationJobRepository.findById(jobId)
+            .orElseThrow(() -> new IllegalArgumentException("Documentation job not found with ID: " + jobId));
+        if (isFinished(job)) {
+            return CompletableFuture.completedFuture(job);
+        }
+        
+        Waiters waiters = waiting.compute(jobId, (id, current) -> current == null ? new Waiters() : current.join());
+        // The job may have finished between the read above and registering the future
+        documentationJobRepository.findById(jobId)
+            .filter(DocumentationJobService::isFinished)
+            .ifPresent(this::complete);
+        return waiters.finished;
+    }
+    
+    /**
+     * A caller no longer waits on the future it got from {@link #whenFinished} (its request timed
+     * out or completed). The job's entry is dropped once nobody is waiting on it.
+     */
+    public void stopWaiting(Long jobId, CompletableFuture<DocumentationJob> finished) {
+        waiting.computeIfPresent(jobId, (id, waiters) -> waiters.finished == finished ? waiters.leave() : waiters);
+    }
+    
+    int waitingJobs() {
+        return waiting.size();
+    }
+    
+    /**
+     * Jobs that were queued or running when the application stopped are picked up again
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedJobs() {
+        List<DocumentationJob> interrupted = documentationJobRepository.findByStatusIn(ACTIVE);
+        if (!interrupted.isEmpty()) {
+            log.info("Resuming {} interrupted documentation job(s)", interrupted.size());
+        }
+        interrupted.forEach(job -> {
+            job.setStatus(DocumentationJobStatus.QUEUED);
+            dispatch(documentationJobRepository.save(job));
+        });
+    }
+    
+    private void dispatch(DocumentationJob job) {
+        try {
+            executor.execute(() -> run(job.getId()));
+        } catch (RejectedExecutionException e) {
+            log.warn("Documentation job {} rejected: worker queue is full", job.getId());
+            finish(job, DocumentationJobStatus.FAILED, null, QUEUE_FULL);
+        }
+    }
+    
+    void run(Long jobId) {
+        Optional<DocumentationJob> queued = documentationJobRepository.findById(jobId)
+            .filter(job -> job.getStatus() == DocumentationJobStatus.QUEUED);
+        if (queued.isEmpty()) {
+            return;
+        }
+        
+        DocumentationJob job = queued.get();
+        job.setStatus(DocumentationJobStatus.RUNNING);
+        job.setUpdatedAt(LocalDateTime.now());
+        job = documentationJobRepository.save(job);
+        
+        try {
+            // The slow part: AI calls, outside of any transaction
+            TriagePriority priority = appointmentRepository.findById(job.getAppointmentId())
+                .map(Appointment::getTriagePriority)
+                .orElse(null);
+            DocumentationPipeline.Documentation documentation = documentationPipeline.document(job.getRoughNotes(), priority);
+            
+            MedicalRecord record = doctorService.saveMedicalRecord(job.getAppointmentId(), job.getRoughNotes(), documentation);
+            finish(job, DocumentationJobStatus.DONE, record.getId(), null);
+        } catch (Exception e) {
+            log.error("Documentation job {} failed", jobId, e);
+            finish(job, DocumentationJobStatus.FAILED, null, String.valueOf(e.getMessage()));
+        }
+    }
+    
+    private void finish(DocumentationJob job, DocumentationJobStatus status, Long medicalRecordId, String error) {
+        job.setStatus(status);
+        job.setMedicalRecordId(medicalRecordId);
+        job.setError(error == null ? null : error.substring(0, Math.min(error.length(), 1000)));
+        job.setUpdatedAt(LocalDateTime.now());
+        complete(documentationJobRepository.save(job));
+    }
+    
+    private void complete(DocumentationJob job) {
+        Waiters waiters = waiting.remove(job.getId());
+        if (waiters != null) {
+            waiters.finished.complete(job);
+        }
+    }
+    
+    private static boolean isFinished(DocumentationJob job) {
+        return job.getStatus() == DocumentationJobStatus.DONE || job.getStatus() == DocumentationJobStatus.FAILED;
+    }
+    
+    /**
+     * The shared future of one job and how many callers are waiting on it; only changed inside
+     * the map's compute functions
+     */
+    private static final class Waiters {
+        
+        private final CompletableFuture<DocumentationJob> finished = new CompletableFuture<>();
+        private int count = 1;
+        
+        Waiters join() {
+            count++;
+            return this;
+        }
+        
+        Waiters leave() {
+            return --count == 0 ? null : this;
+        }
+    }
+}
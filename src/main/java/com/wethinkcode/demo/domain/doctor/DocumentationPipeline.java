@@ -0,0 +1,167 @@
+package com.wethinkcode.demo.domain.doctor;
+
+import com.wethinkcode.demo.domain.shared.MedicalRecord;
+import com.wethinkcode.demo.domain.shared.TriagePriority;
+import com.wethinkcode.demo.infrastructure.ai.AiBusyException;
+import com.wethinkcode.demo.infrastructure.ai.CombinedDocumentation;
+import com.wethinkcode.demo.infrastructure.ai.LlamaAiService;
+import com.wethinkcode.demo.infrastructure.ai.OllamaOperation;
+import com.wethinkcode.demo.infrastructure.ai.OllamaProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Runs the AI documentation stages for a consultation.
+ * The SOAP note has to come first; the patient summary and the prescription only depend
+ * on the SOAP note, so they are generated at the same time.
+ * In combined mode a single structured call produces all three sections instead.
+ * Every AI call carries the appointment's triage priority so Ollama serves urgent patients first.
+ * A stage is given up once its call is past the deadline set by the Ollama timeouts for that operation.
+ */
+@Component
+@Slf4j
+public class DocumentationPipeline {
+    
+    static final String SUMMARY_UNAVAILABLE = "Patient summary could not be generated. Please regenerate the record.";
+    static final String PRESCRIPTION_UNAVAILABLE = MedicalRecord.PRESCRIPTION_UNAVAILABLE;
+    
+    private final LlamaAiService llamaAiService;
+    private final Executor executor;
+    private final OllamaProperties properties;
+    private final boolean combinedDocumentation;
+    
+    public DocumentationPipeline(
+            LlamaAiService llamaAiService,
+            @Qualifier("documentationExecutor") Executor executor,
+            OllamaProperties properties,
+            @Value("${spring.ai.ollama.combined-documentation:false}") boolean combinedDocumentation) {
+        this.llamaAiService = llamaAiService;
+        this.executor = executor;
+        this.properties = properties;
+        this.combinedDocumentation = combinedDocumentation;
+    }
+    
+    /**
+     * Generate the full documentation for rough consultation notes
+     */
+    public Documentation document(String roughNotes, TriagePriority priority) {
+        if (!combinedDocumentation) {
+            return documentSoapNote(generateSoapNote(roughNotes, priority), priority);
+        }
+        
+        // One round trip for all sections; sections the model got wrong are generated again
+        CombinedDocumentation combined = runStage(
+            "combined documentation", OllamaOperation.COMBINED_DOCUMENTATION, () -> llamaAiService.generateCombinedDocumentation(roughNotes, priority), CombinedDocumentation.empty())
+            .join();
+        if (combined.isComplete()) {
+            return new Documentation(combined.soapNote(), combined.patientSummary(), combined.prescription());
+        }
+        log.info("Combined documentation incomplete (soap={}, summary={}, prescription={}), regenerating invalid sections",
+            combined.soapNote() != null, combined.patientSummary() != null, combined.prescription() != null);
+        
+        if (combined.soapNote() == null) {
+            // The summary and prescription describe a SOAP note we are throwing away, so none of the answer is kept
+            return documentSoapNote(generateSoapNote(roughNotes, priority), priority);
+        }
+        String soapNote = combined.soapNote();
+        CompletableFuture<String> patientSummary = combined.patientSummary() != null
+            ? CompletableFuture.completedFuture(combined.patientSummary())
+            : summaryStage(soapNote, priority);
+        CompletableFuture<String> prescription = combined.prescription() != null
+            ? CompletableFuture.completedFuture(combined.prescription())
+            : prescriptionStage(soapNote, priority);
+        
+        return new Documentation(soapNote, patientSummary.join(), prescription.join());
+    }
+    
+    /**
+     * Generate patient summary and prescription for an existing SOAP note.
+     * A stage that fails or times out is replaced by a placeholder so the record can still be saved.
+     */
+    public Documentation documentSoapNote(String soapNote, TriagePriority priority) {
+        CompletableFuture<String> patientSummary = summaryStage(soapNote, priority);
+        CompletableFuture<String> prescription = prescriptionStage(soapNote, priority);
+        
+        return new Documentation(soapNote, patientSummary.join(), prescription.join());
+    }
+    
+    private String generateSoapNote(String roughNotes, TriagePriority priority) {
+        // Everything else depends on the SOAP note, so there is no fallback for this stage
+        try {
+            return supplyWithTimeout(OllamaOperation.SOAP_NOTE, () -> llamaAiService.generateSoapNote(roughNotes, priority)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof AiBusyException busy) {
+                throw busy;
+            }
+            throw new IllegalStateException("SOAP note generation failed: " + e.getCause(), e.getCause());
+        }
+    }
+    
+    private CompletableFuture<String> summaryStage(String soapNote, TriagePriority priority) {
+        return runStage("patient summary", OllamaOperation.PATIENT_SUMMARY, () -> llamaAiService.generatePatientSummary(soapNote, priority), SUMMARY_UNAVAILABLE);
+    }
+    
+    private CompletableFuture<String> prescriptionStage(String soapNote, TriagePriority priority) {
+        return runStage("prescription", OllamaOperation.PRESCRIPTION, () -> llamaAiService.extractPrescription(soapNote, priority), PRESCRIPTION_UNAVAILABLE);
+    }
+    
+    private <T> CompletableFuture<T> runStage(String stage, OllamaOperation operation, Supplier<T> call, T fallback) {
+        return supplyWithTimeout(operation, call)
+            .exceptionally(e -> {
+                log.warn("Documentation stage '{}' failed: {}", stage, e.toString());
+                return fallback;
+            });
+    }
+    
+    /**
+     * Run the call on the executor, failing after the operation's call deadline. A call that times out is
+     * interrupted, which aborts its wait for an admission slot or its blocked socket read, so it
+     * does not keep holding a worker thread and an Ollama slot after nobody wants its answer.
+     */
+    private <T> CompletableFuture<T> supplyWithTimeout(OllamaOperation operation, Supplier<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicReference<Thread> runner = new AtomicReference<>();
+        executor.execute(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            runner.set(Thread.currentThread());
+            try {
+                result.complete(call.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                if (runner.getAndSet(null) == null) {
+                    // Interrupted (or about to be) by the timeout; don't leak the flag into a pooled thread
+                    Thread.interrupted();
+                }
+            }
+        });
+        result.orTimeout(properties.callDeadline(operation).toMillis(), TimeUnit.MILLISECONDS)
+            .whenComplete((value, failure) -> {
+                if (failure instanceof TimeoutException) {
+                    Thread thread = runner.getAndSet(null);
+                    if (thread != null) {
+                        thread.interrupt();
+                    }
+                }
+            });
+        return result;
+    }
+    
+    /**
+     * The AI-generated parts of a medical record
+     */
+    public record Documentation(String soapNote, String patientSummary, String prescription) {
+    }
+}
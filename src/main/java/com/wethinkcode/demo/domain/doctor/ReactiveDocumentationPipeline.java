@@ -0,0 +1,54 @@
+package com.wethinkcode.demo.domain.doctor;
+
+import com.wethinkcode.demo.domain.shared.TriagePriority;
+import com.wethinkcode.demo.infrastructure.ai.ReactiveLlamaAiService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking documentation stages for the streamed consultation: the SOAP note is streamed to
+ * the doctor, then the summary and prescription are generated from it. Dictations documented in
+ * the background go through {@link DocumentationPipeline} instead.
+ * The stages are composed as Monos instead of futures on worker threads, so a consultation
+ * waiting on Ollama holds no thread at all. Cancelling the result (e.g. the doctor closed the
+ * page) cancels the Ollama calls that are still running and frees their admission slots.
+ * There is no stage timeout on top of the client's: every attempt is bounded by the admission
+ * wait and the operation's response timeout from the Ollama settings.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveDocumentationPipeline {
+    
+    private final ReactiveLlamaAiService reactiveLlamaAiService;
+    
+    /**
+     * Generate patient summary and prescription for an existing SOAP note, both at the same time.
+     * A stage that fails or times out is replaced by a placeholder so the record can still be saved.
+     */
+    public Mono<DocumentationPipeline.Documentation> documentSoapNote(String soapNote, TriagePriority priority) {
+        return Mono.zip(
+                stage("patient summary", reactiveLlamaAiService.generatePatientSummary(soapNote, priority), DocumentationPipeline.SUMMARY_UNAVAILABLE),
+                stage("prescription", reactiveLlamaAiService.extractPrescription(soapNote, priority), DocumentationPipeline.PRESCRIPTION_UNAVAILABLE))
+            .map(sections -> new DocumentationPipeline.Documentation(soapNote, sections.getT1(), sections.getT2()));
+    }
+    
+    /**
+     * Stream the SOAP note token by token
+     */
+    public Flux<String> streamSoapNote(String roughNotes, TriagePriority priority) {
+        return reactiveLlamaAiService.streamSoapNote(roughNotes, priority);
+    }
+    
+    private Mono<String> stage(String stage, Mono<String> call, String fallback) {
+        return call
+            .defaultIfEmpty(fallback)
+            .onErrorResume(e -> {
+                log.warn("Documentation stage '{}' failed: {}", stage, e.toString());
+                return Mono.just(fallback);
+            });
+    }
+}
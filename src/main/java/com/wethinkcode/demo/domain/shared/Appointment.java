@@ -3,8 +3,15 @@ package com.wethinkcode.demo.domain.shared;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.time.LocalDateTime;
+
 @Entity
-@Table(name = "appointments")
+@Table(name = "appointments", indexes = {
+    @Index(name = "idx_appointments_status_priority", columnList = "status, triage_priority, id"),
+    @Index(name = "idx_appointments_doctor", columnList = "doctor_id, status"),
+    @Index(name = "idx_appointments_patient", columnList = "patient_id, id")
+})
+@EntityListeners(AppointmentStatusListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -12,7 +19,8 @@ import lombok.*;
 public class Appointment {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "appointments_seq")
+    @SequenceGenerator(name = "appointments_seq", sequenceName = "appointments_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -33,4 +41,12 @@ public class Appointment {
     
     @Column(columnDefinition = "TEXT")
     private String roughNotes;
+    
+    /** When the visit was first counted as completed; written only by {@link PatientHistoryService} */
+    @Column(insertable = false, updatable = false)
+    private LocalDateTime completedAt;
+    
+    /** Optimistic lock: a stale copy of the appointment can no longer overwrite a newer one */
+    @Version
+    private Long version;
 }
@@ -0,0 +1,75 @@
+package com.wethinkcode.demo.domain.shared;
+
+import com.wethinkcode.demo.infrastructure.persistence.AppointmentRepository;
+import com.wethinkcode.demo.infrastructure.persistence.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+
+/**
+ * Hands waiting patients to doctors so that no patient is ever taken by two doctors.
+ * A claim is a single conditional update (WAITING -> IN_CONSULT) in its own short transaction:
+ * the database lets exactly one concurrent claim through and the others simply move on to the
+ * next patient in the triage queue. No application-wide lock is involved.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AppointmentClaimService {
+    
+    private final AppointmentRepository appointmentRepository;
+    private final UserRepository userRepository;
+    private final TriageService triageService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    
+    /**
+     * Assign a doctor to a specific waiting appointment
+     */
+    public ClaimResult claim(Long appointmentId, Long doctorId) {
+        return userRepository.findById(doctorId)
+            .map(doctor -> tryClaim(appointmentId, doctor) ? ClaimResult.CLAIMED : ClaimResult.TAKEN)
+            .orElse(ClaimResult.UNKNOWN_DOCTOR);
+    }
+    
+    /**
+     * Assign the doctor to the highest-priority patient that nobody else has claimed.
+     * Empty when nobody is waiting or there is no such doctor.
+     */
+    public Optional<Appointment> claimNext(Long doctorId) {
+        Optional<User> found = userRepository.findById(doctorId);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        User doctor = found.get();
+        for (Long appointmentId : triageService.getWaitingAppointmentIds()) {
+            if (tryClaim(appointmentId, doctor)) {
+                return appointmentRepository.findById(appointmentId);
+            }
+        }
+        return Optional.empty();
+    }
+    
+    private boolean tryClaim(Long appointmentId, User doctor) {
+        try {
+            Boolean claimed = transactionTemplate.execute(status -> {
+                boolean won = appointmentRepository.claim(
+                    appointmentId, doctor, AppointmentStatus.WAITING, AppointmentStatus.IN_CONSULT) == 1;
+                if (won) {
+                    // Bulk updates bypass the entity listener, so tell the triage queue directly
+                    eventPublisher.publishEvent(new AppointmentStatusChangedEvent(appointmentId, null, AppointmentStatus.IN_CONSULT));
+                }
+                return won;
+            });
+            return Boolean.TRUE.equals(claimed);
+        } catch (ConcurrencyFailureException e) {
+            log.debug("Lost claim on appointment {} to a concurrent update", appointmentId);
+            return false;
+        }
+    }
+}
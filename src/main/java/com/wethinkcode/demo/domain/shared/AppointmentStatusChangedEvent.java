@@ -0,0 +1,8 @@
+package com.wethinkcode.demo.domain.shared;
+
+/**
+ * Published whenever an appointment is created or updated, so in-memory views such as the
+ * triage queue can follow status changes without re-reading the database
+ */
+public record AppointmentStatusChangedEvent(Long appointmentId, TriagePriority triagePriority, AppointmentStatus status) {
+}
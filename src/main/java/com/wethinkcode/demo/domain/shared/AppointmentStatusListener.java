@@ -0,0 +1,47 @@
+package com.wethinkcode.demo.domain.shared;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * JPA entity listener that turns every appointment write into an {@link AppointmentStatusChangedEvent}.
+ * Hooking into the entity rather than the callers means register, assign, accept and complete
+ * are all covered, whichever controller or service performs them. Bulk imports switch the
+ * per-row events off with {@link #withoutEvents} and publish an {@link AppointmentsImportedEvent} instead.
+ */
+@Component
+@RequiredArgsConstructor
+public class AppointmentStatusListener {
+    
+    private static final ThreadLocal<Boolean> SUPPRESSED = ThreadLocal.withInitial(() -> false);
+    
+    private final ApplicationEventPublisher eventPublisher;
+    
+    /**
+     * Run work on this thread without publishing an event per saved appointment
+     */
+    public static <T> T withoutEvents(Supplier<T> work) {
+        boolean previous = SUPPRESSED.get();
+        SUPPRESSED.set(true);
+        try {
+            return work.get();
+        } finally {
+            SUPPRESSED.set(previous);
+        }
+    }
+    
+    @PostPersist
+    @PostUpdate
+    void appointmentSaved(Appointment appointment) {
+        if (SUPPRESSED.get()) {
+            return;
+        }
+        eventPublisher.publishEvent(new AppointmentStatusChangedEvent(
+            appointment.getId(), appointment.getTriagePriority(), appointment.getStatus()));
+    }
+}
@@ -0,0 +1,15 @@
+package com.wethinkcode.demo.domain.shared;
+
+/**
+ * Read model of an appointment for the dashboards: everything a list row shows, loaded with
+ * the patient and doctor names in the same query instead of one lazy load per row
+ */
+public record AppointmentView(
+        Long id,
+        Long patientId,
+        String patientName,
+        Long doctorId,
+        String doctorName,
+        TriagePriority triagePriority,
+        AppointmentStatus status) {
+}
@@ -0,0 +1,10 @@
+package com.wethinkcode.demo.domain.shared;
+
+import java.util.List;
+
+/**
+ * Published for each chunk of a bulk import in place of one {@link AppointmentStatusChangedEvent}
+ * per row, so listeners apply the chunk in one go
+ */
+public record AppointmentsImportedEvent(List<AppointmentStatusChangedEvent> changes) {
+}
@@ -0,0 +1,13 @@
+package com.wethinkcode.demo.domain.shared;
+
+/**
+ * Outcome of claiming a specific appointment for a doctor
+ */
+public enum ClaimResult {
+    /** The doctor now has the patient */
+    CLAIMED,
+    /** The appointment was no longer waiting, e.g. another doctor got there first */
+    TAKEN,
+    /** There is no such doctor, so nothing was claimed */
+    UNKNOWN_DOCTOR
+}
@@ -0,0 +1,43 @@
+package com.wethinkcode.demo.domain.shared;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "documentation_jobs", indexes = {
+    @Index(name = "idx_documentation_jobs_appointment", columnList = "appointment_id, id"),
+    @Index(name = "idx_documentation_jobs_status", columnList = "status")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DocumentationJob {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "documentation_jobs_seq")
+    @SequenceGenerator(name = "documentation_jobs_seq", sequenceName = "documentation_jobs_seq", allocationSize = 50)
+    private Long id;
+    
+    @Column(nullable = false)
+    private Long appointmentId;
+    
+    @Column(columnDefinition = "TEXT")
+    private String roughNotes;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private DocumentationJobStatus status;
+    
+    private Long medicalRecordId;
+    
+    @Column(length = 1000)
+    private String error;
+    
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+    
+    private LocalDateTime updatedAt;
+}
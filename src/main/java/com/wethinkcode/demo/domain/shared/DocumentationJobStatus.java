@@ -0,0 +1,8 @@
+package com.wethinkcode.demo.domain.shared;
+
+public enum DocumentationJobStatus {
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED
+}
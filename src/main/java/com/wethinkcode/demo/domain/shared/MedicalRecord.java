@@ -1,33 +1,114 @@
 package com.wethinkcode.demo.domain.shared;
 
+import com.wethinkcode.demo.infrastructure.persistence.CompressedTextConverter;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.LazyGroup;
+import org.hibernate.annotations.UpdateTimestamp;
 
+import java.time.LocalDateTime;
+
+/**
+ * Generated documentation for an appointment.
+ * The three text bodies are stored compressed and loaded lazily (together, on first access),
+ * so reading a record's id, appointment or signed flag does not pull them into memory.
+ * Listings should use {@link MedicalRecordHeader} instead.
+ * Whether the record prescribes anything is decided when its prescription is set and stored as
+ * its own column, so listings can show it without reading the prescription text.
+ */
 @Entity
-@Table(name = "medical_records")
+@Table(name = "medical_records", uniqueConstraints =
+    @UniqueConstraint(name = "uk_medical_records_appointment", columnNames = "appointment_id"),
+    indexes = @Index(name = "idx_medical_records_updated", columnList = "updated_at"))
+@EntityListeners(MedicalRecordListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class MedicalRecord {
     
+    /** Stored as the prescription when the SOAP note mentions no medication */
+    public static final String NO_PRESCRIPTIONS = "No prescriptions recommended";
+    /** Stored as the prescription when it could not be extracted in time */
+    public static final String PRESCRIPTION_UNAVAILABLE = "Prescription could not be extracted. Please review the SOAP note.";
+    
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "medical_records_seq")
+    @SequenceGenerator(name = "medical_records_seq", sequenceName = "medical_records_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false)
     private Long appointmentId;
     
-    @Column(columnDefinition = "TEXT")
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("body")
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(length = CompressedTextConverter.MAX_STORED_LENGTH)
+    @ToString.Exclude
     private String soapNote;
     
-    @Column(columnDefinition = "TEXT")
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("body")
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(length = CompressedTextConverter.MAX_STORED_LENGTH)
+    @ToString.Exclude
     private String patientSummary;
     
-    @Column(columnDefinition = "TEXT")
+    @Basic(fetch = FetchType.LAZY)
+    @LazyGroup("body")
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(length = CompressedTextConverter.MAX_STORED_LENGTH)
+    @ToString.Exclude
     private String prescription;
     
+    @Column(nullable = false)
+    @Setter(AccessLevel.NONE)
+    private boolean hasPrescription;
+    
     @Builder.Default
     @Column(nullable = false)
     private Boolean isSigned = false;
+    
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+    
+    /** When the record was first counted as signed; written only by {@link PatientHistoryService} */
+    @Column(insertable = false, updatable = false)
+    private LocalDateTime signedAt;
+    
+    public void setPrescription(String prescription) {
+        this.prescription = prescription;
+        this.hasPrescription = isPrescribed(prescription);
+    }
+    
+    /**
+     * Whether a stored prescription text names any medication, rather than being empty or one
+     * of the placeholders the documentation pipeline writes when there is nothing to dispense
+     */
+    public static boolean isPrescribed(String prescription) {
+        if (prescription == null || prescription.isBlank()) {
+            return false;
+        }
+        String text = prescription.strip();
+        if (text.equalsIgnoreCase(PRESCRIPTION_UNAVAILABLE)) {
+            return false;
+        }
+        // The model sometimes quotes the placeholder or ends it with a full stop
+        String unquoted = text.replaceAll("^\"|\"$", "").replaceAll("\\.$", "").strip();
+        return !unquoted.equalsIgnoreCase(NO_PRESCRIPTIONS);
+    }
+    
+    public static class MedicalRecordBuilder {
+        
+        public MedicalRecordBuilder prescription(String prescription) {
+            this.prescription = prescription;
+            this.hasPrescription = isPrescribed(prescription);
+            return this;
+        }
+    }
 }
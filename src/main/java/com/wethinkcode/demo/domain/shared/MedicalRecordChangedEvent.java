@@ -0,0 +1,7 @@
+package com.wethinkcode.demo.domain.shared;
+
+/**
+ * Published whenever a medical record is created or updated, including when it is signed
+ */
+public record MedicalRecordChangedEvent(Long recordId, Long appointmentId, boolean signed) {
+}
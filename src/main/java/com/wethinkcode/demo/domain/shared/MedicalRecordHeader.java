@@ -0,0 +1,8 @@
+package com.wethinkcode.demo.domain.shared;
+
+/**
+ * A medical record without its text bodies, for listings that only need to know
+ * whether a record exists, whether it is signed and whether it has a prescription
+ */
+public record MedicalRecordHeader(Long id, Long appointmentId, Boolean isSigned, boolean hasPrescription) {
+}
@@ -0,0 +1,24 @@
+package com.wethinkcode.demo.domain.shared;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener that turns every medical record write into a {@link MedicalRecordChangedEvent}
+ */
+@Component
+@RequiredArgsConstructor
+public class MedicalRecordListener {
+    
+    private final ApplicationEventPublisher eventPublisher;
+    
+    @PostPersist
+    @PostUpdate
+    void medicalRecordSaved(MedicalRecord record) {
+        eventPublisher.publishEvent(new MedicalRecordChangedEvent(
+            record.getId(), record.getAppointmentId(), Boolean.TRUE.equals(record.getIsSigned())));
+    }
+}
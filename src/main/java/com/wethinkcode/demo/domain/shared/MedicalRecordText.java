@@ -0,0 +1,16 @@
+package com.wethinkcode.demo.domain.shared;
+
+import java.time.LocalDateTime;
+
+/**
+ * The searchable parts of a medical record, read in one query for indexing
+ */
+public record MedicalRecordText(
+        Long id,
+        Long appointmentId,
+        String soapNote,
+        String patientSummary,
+        String prescription,
+        Boolean isSigned,
+        LocalDateTime createdAt) {
+}
@@ -0,0 +1,19 @@
+package com.wethinkcode.demo.domain.shared;
+
+import java.time.LocalDateTime;
+
+/**
+ * One visit on a patient's history timeline: the appointment and, if one was written, the
+ * header of its medical record, loaded together in one query
+ */
+public record PatientHistoryEntry(
+        Long id,
+        Long doctorId,
+        String doctorName,
+        TriagePriority triagePriority,
+        AppointmentStatus status,
+        LocalDateTime completedAt,
+        Long recordId,
+        Boolean isSigned,
+        boolean hasPrescription) {
+}
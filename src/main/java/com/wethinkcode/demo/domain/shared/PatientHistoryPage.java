@@ -0,0 +1,10 @@
+package com.wethinkcode.demo.domain.shared;
+
+import java.util.List;
+
+/**
+ * A page of a patient's history, newest visit first, with the summary strip.
+ * nextBefore is the cursor for the next (older) page, or null on the last page.
+ */
+public record PatientHistoryPage(PatientSummary summary, List<PatientHistoryEntry> entries, Long nextBefore) {
+}
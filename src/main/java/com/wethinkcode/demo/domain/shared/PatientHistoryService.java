@@ -0,0 +1,142 @@
+package com.wethinkcode.demo.domain.shared;
+
+import com.wethinkcode.demo.infrastructure.persistence.AppointmentRepository;
+import com.wethinkcode.demo.infrastructure.persistence.MedicalRecordRepository;
+import com.wethinkcode.demo.infrastructure.persistence.PatientSummaryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A patient's visit history, one page at a time, and the summary strip above it.
+ * <p>
+ * Pages are read newest first with keyset pagination (appointment id below a cursor), each
+ * appointment joined with its record header in the same query. The summary is not recounted:
+ * when an appointment is first seen COMPLETED, or a record first seen signed, the row is stamped
+ * and the patient's totals are bumped in the same transaction, so every visit is counted once.
+ */
+@Service
+@Slf4j
+public class PatientHistoryService {
+    
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    static final int MAX_PAGE_SIZE = 100;
+    
+    private final AppointmentRepository appointmentRepository;
+    private final MedicalRecordRepository medicalRecordRepository;
+    private final PatientSummaryRepository patientSummaryRepository;
+    private final TransactionTemplate newTransaction;
+    
+    public PatientHistoryService(
+            AppointmentRepository appointmentRepository,
+            MedicalRecordRepository medicalRecordRepository,
+            PatientSummaryRepository patientSummaryRepository,
+            PlatformTransactionManager transactionManager) {
+        this.appointmentRepository = appointmentRepository;
+        this.medicalRecordRepository = medicalRecordRepository;
+        this.patientSummaryRepository = patientSummaryRepository;
+        // Listeners run after the triggering transaction has committed, so they need one of their own
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+    
+    /**
+     * One page of history
+     *
+     * @param before appointment id to continue below (the previous page's nextBefore), or null for the newest page
+     */
+    public PatientHistoryPage getHistory(Long patientId, Long before, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        // One extra row tells whether there is an older page
+        List<PatientHistoryEntry> entries = appointmentRepository.findHistoryPage(
+            patientId, before != null ? before : Long.MAX_VALUE, Limit.of(pageSize + 1));
+        Long nextBefore = null;
+        if (entries.size() > pageSize) {
+            entries = entries.subList(0, pageSize);
+            nextBefore = entries.get(pageSize - 1).id();
+        }
+        return new PatientHistoryPage(getSummary(patientId), entries, nextBefore);
+    }
+    
+    public PatientSummary getSummary(Long patientId) {
+        return patientSummaryRepository.findById(patientId).orElseGet(() -> PatientSummary.empty(patientId));
+    }
+    
+    /**
+     * Count a visit the first time its appointment is seen COMPLETED
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentStatusChanged(AppointmentStatusChangedEvent event) {
+        if (event.appointmentId() == null || event.status() != AppointmentStatus.COMPLETED) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        updateSummary("appointment " + event.appointmentId(), () -> {
+            if (appointmentRepository.stampCompleted(event.appointmentId(), now) == 0) {
+                return;
+            }
+            appointmentRepository.findPatientIdById(event.appointmentId())
+                .ifPresent(bump(patientId -> patientSummaryRepository.addVisit(patientId, now)));
+        });
+    }
+    
+    /**
+     * Count a prescription as issued the first time its record is seen signed, if the record
+     * prescribes a medication (not a "no prescriptions" or "could not be extracted" placeholder)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMedicalRecordChanged(MedicalRecordChangedEvent event) {
+        if (event.recordId() == null || !event.signed()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        updateSummary("medical record " + event.recordId(), () -> {
+            if (medicalRecordRepository.stampSigned(event.recordId(), now) == 0) {
+                return;
+            }
+            boolean hasPrescription = medicalRecordRepository.findHeadersByAppointmentIdIn(List.of(event.appointmentId())).stream()
+                .anyMatch(MedicalRecordHeader::hasPrescription);
+            if (hasPrescription) {
+                appointmentRepository.findPatientIdById(event.appointmentId())
+                    .ifPresent(bump(patientSummaryRepository::addPrescription));
+            }
+        });
+    }
+    
+    private Consumer<Long> bump(Consumer<Long> increment) {
+        return patientId -> {
+            if (!patientSummaryRepository.existsById(patientId)) {
+                patientSummaryRepository.saveAndFlush(PatientSummary.empty(patientId));
+            }
+            increment.accept(patientId);
+        };
+    }
+    
+    private void updateSummary(String subject, Runnable update) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                newTransaction.executeWithoutResult(status -> update.run());
+                return;
+            } catch (DataIntegrityViolationException e) {
+                // Another thread created the patient's summary row first; the retry will find it
+                if (attempt == 2) {
+                    log.warn("Could not update patient summary for {}: {}", subject, e.getMessage());
+                    return;
+                }
+            } catch (RuntimeException e) {
+                // The change itself is saved; only the summary strip is behind
+                log.warn("Could not update patient summary for {}: {}", subject, e.getMessage());
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.wethinkcode.demo.domain.shared;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk patient import. Only the first rejected rows are listed in full;
+ * rejected always holds the total.
+ */
+public record PatientImportResult(int imported, int rejected, List<RowError> errors) {
+    
+    /**
+     * A row that was skipped, by line number in the uploaded file
+     */
+    public record RowError(long line, String message) {
+    }
+}
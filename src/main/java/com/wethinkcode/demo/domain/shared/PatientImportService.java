@@ -0,0 +1,172 @@
+package com.wethinkcode.demo.domain.shared;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Streams a surge intake file (CSV or NDJSON) into the triage queue.
+ * Rows are read one line at a time and written in chunks through {@link PatientRegistrationService},
+ * so memory use does not grow with the size of the file. Invalid rows are skipped and reported by
+ * line number. Per-row appointment events are switched off during the import; instead one
+ * {@link AppointmentsImportedEvent} is published per saved chunk, so no per-row state is kept
+ * for the rest of the file.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PatientImportService {
+    
+    static final int MAX_REPORTED_ERRORS = 100;
+    
+    private final PatientRegistrationService patientRegistrationService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    
+    /**
+     * Supported upload formats.
+     * CSV rows are {@code patientName,triagePriority} with an optional header line;
+     * NDJSON rows are {@code {"patientName": "...", "triagePriority": "HIGH"}}.
+     */
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+    
+    public PatientImportResult importPatients(Reader source, Format format) throws IOException {
+        BufferedReader reader = source instanceof BufferedReader buffered ? buffered : new BufferedReader(source);
+        List<PatientRegistration> chunk = new ArrayList<>(PatientRegistrationService.CHUNK_SIZE);
+        List<PatientImportResult.RowError> errors = new ArrayList<>();
+        int imported = 0;
+        int rejected = 0;
+        long lineNumber = 0;
+        
+        // A failure part way through leaves the chunks committed so far in the database and the queue
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || (lineNumber == 1 && format == Format.CSV && isHeader(line))) {
+                continue;
+            }
+            try {
+                chunk.add(parse(line, format));
+            } catch (IllegalArgumentException e) {
+                rejected++;
+                if (errors.size() < MAX_REPORTED_ERRORS) {
+                    errors.add(new PatientImportResult.RowError(lineNumber, e.getMessage()));
+                }
+            }
+            if (chunk.size() == PatientRegistrationService.CHUNK_SIZE) {
+                imported += save(chunk);
+            }
+        }
+        imported += save(chunk);
+        
+        log.info("Imported {} patients from {} ({} rows rejected)", imported, format, rejected);
+        return new PatientImportResult(imported, rejected, errors);
+    }
+    
+    /**
+     * Save one chunk and announce it once it is committed
+     *
+     * @return the number of patients saved
+     */
+    private int save(List<PatientRegistration> chunk) {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        List<Appointment> saved = AppointmentStatusListener.withoutEvents(() -> patientRegistrationService.registerAll(chunk));
+        List<AppointmentStatusChangedEvent> changes = new ArrayList<>(saved.size());
+        for (Appointment appointment : saved) {
+            changes.add(new AppointmentStatusChangedEvent(appointment.getId(), appointment.getTriagePriority(), appointment.getStatus()));
+        }
+        chunk.clear();
+        eventPublisher.publishEvent(new AppointmentsImportedEvent(changes));
+        return saved.size();
+    }
+    
+    private PatientRegistration parse(String line, Format format) {
+        String patientName;
+        String priority;
+        if (format == Format.CSV) {
+            List<String> fields = splitCsv(line);
+            if (fields.size() != 2) {
+                throw new IllegalArgumentException("Expected 2 columns (patientName,triagePriority) but found " + fields.size());
+            }
+            patientName = fields.get(0);
+            priority = fields.get(1);
+        } else {
+            JsonNode row;
+            try {
+                row = objectMapper.readTree(line);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Not a JSON object: " + e.getOriginalMessage());
+            }
+            if (row == null || !row.isObject()) {
+                throw new IllegalArgumentException("Not a JSON object");
+            }
+            patientName = row.path("patientName").asText("");
+            priority = row.path("triagePriority").asText("");
+        }
+        
+        if (patientName.isBlank()) {
+            throw new IllegalArgumentException("Patient name is required");
+        }
+        return new PatientRegistration(patientName.trim(), parsePriority(priority));
+    }
+    
+    private static TriagePriority parsePriority(String value) {
+        try {
+            return TriagePriority.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown triage priority '" + value.trim() + "' (expected HIGH, MEDIUM or LOW)");
+        }
+    }
+    
+    private static boolean isHeader(String line) {
+        List<String> fields = splitCsv(line);
+        return !fields.isEmpty() && fields.get(0).trim().equalsIgnoreCase("patientName");
+    }
+    
+    /**
+     * Split one CSV line; fields may be quoted so names can contain commas ("Doe, John")
+     */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(2);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
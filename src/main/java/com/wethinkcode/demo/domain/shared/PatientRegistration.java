@@ -0,0 +1,7 @@
+package com.wethinkcode.demo.domain.shared;
+
+/**
+ * A patient arriving at the clinic: their name and the priority the nurse triaged them at
+ */
+public record PatientRegistration(String patientName, TriagePriority triagePriority) {
+}
@@ -0,0 +1,95 @@
+package com.wethinkcode.demo.domain.shared;
+
+import com.wethinkcode.demo.infrastructure.persistence.AppointmentRepository;
+import com.wethinkcode.demo.infrastructure.persistence.UserRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registers patients and opens a WAITING appointment for each of them.
+ * Ids come from pooled sequences, so Hibernate can send the inserts as JDBC batches
+ * (hibernate.jdbc.batch_size); a bulk registration is flushed and cleared in chunks
+ * so the persistence context stays small however many patients arrive at once.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PatientRegistrationService {
+    
+    static final int CHUNK_SIZE = 500;
+    
+    private final UserRepository userRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    
+    /**
+     * Register a single patient and put them in the triage queue
+     */
+    public Appointment register(String patientName, TriagePriority triagePriority) {
+        return registerAll(List.of(new PatientRegistration(patientName, triagePriority))).get(0);
+    }
+    
+    /**
+     * Register many patients in one transaction; either all of them are registered or none
+     *
+     * @throws IllegalArgumentException if any registration has no name or no priority
+     */
+    public List<Appointment> registerAll(List<PatientRegistration> registrations) {
+        for (PatientRegistration registration : registrations) {
+            validate(registration);
+        }
+        
+        List<Appointment> appointments = transactionTemplate.execute(status -> {
+            List<Appointment> saved = new ArrayList<>(registrations.size());
+            for (int start = 0; start < registrations.size(); start += CHUNK_SIZE) {
+                List<PatientRegistration> chunk = registrations.subList(start, Math.min(start + CHUNK_SIZE, registrations.size()));
+                saved.addAll(saveChunk(chunk));
+                entityManager.flush();
+                entityManager.clear();
+            }
+            return saved;
+        });
+        
+        if (registrations.size() > 1) {
+            log.debug("Registered {} patients", registrations.size());
+        }
+        return appointments;
+    }
+    
+    private List<Appointment> saveChunk(List<PatientRegistration> chunk) {
+        List<User> patients = new ArrayList<>(chunk.size());
+        List<Appointment> appointments = new ArrayList<>(chunk.size());
+        for (PatientRegistration registration : chunk) {
+            User patient = User.builder()
+                .name(registration.patientName().trim())
+                .role(UserRole.PATIENT)
+                .status("WAITING")
+                .build();
+            patients.add(patient);
+            appointments.add(Appointment.builder()
+                .patient(patient)
+                .triagePriority(registration.triagePriority())
+                .status(AppointmentStatus.WAITING)
+                .roughNotes("")
+                .build());
+        }
+        userRepository.saveAll(patients);
+        return appointmentRepository.saveAll(appointments);
+    }
+    
+    private static void validate(PatientRegistration registration) {
+        if (registration == null || registration.patientName() == null || registration.patientName().isBlank()) {
+            throw new IllegalArgumentException("Patient name is required");
+        }
+        if (registration.triagePriority() == null) {
+            throw new IllegalArgumentException("Triage priority is required for patient: " + registration.patientName());
+        }
+    }
+}
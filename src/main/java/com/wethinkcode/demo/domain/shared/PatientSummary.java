@@ -0,0 +1,39 @@
+package com.wethinkcode.demo.domain.shared;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Totals shown at the top of a patient's history. Kept up to date one visit or signature at a
+ * time by {@link PatientHistoryService} rather than recounted from the history on every view.
+ */
+@Entity
+@Table(name = "patient_summaries")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PatientSummary {
+    
+    @Id
+    private Long patientId;
+    
+    /** Completed appointments */
+    @Column(nullable = false)
+    private int visitCount;
+    
+    private LocalDateTime lastVisitAt;
+    
+    /**
+     * Signed medical records that prescribe a medication. A running total of prescriptions
+     * issued: nothing in the clinic tracks dispensing, so none is ever closed again.
+     */
+    @Column(nullable = false)
+    private int prescriptionsIssued;
+    
+    public static PatientSummary empty(Long patientId) {
+        return new PatientSummary(patientId, 0, null, 0);
+    }
+}
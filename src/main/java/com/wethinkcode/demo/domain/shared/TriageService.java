@@ -1,47 +1,275 @@
 package com.wethinkcode.demo.domain.shared;
 
 import com.wethinkcode.demo.infrastructure.persistence.AppointmentRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+/**
+ * Keeps the triage queue of WAITING appointments in memory, ordered by priority (HIGH first)
+ * and then by arrival. The queue is loaded from the database once and afterwards follows
+ * {@link AppointmentStatusChangedEvent}s, so dashboards no longer load and sort every waiting
+ * appointment on each request. Exports the queue depth per priority as triage.queue.depth.
+ */
 @Service
 @RequiredArgsConstructor
-public class TriageService {
+@Slf4j
+public class TriageService implements MeterBinder {
+    
+    private static final Comparator<QueueEntry> QUEUE_ORDER = Comparator
+        .comparing(QueueEntry::triagePriority)
+        .thenComparing(QueueEntry::appointmentId);
     
     private final AppointmentRepository appointmentRepository;
     
+    private final ConcurrentSkipListSet<QueueEntry> queue = new ConcurrentSkipListSet<>(QUEUE_ORDER);
+    private final Map<Long, QueueEntry> entriesById = new HashMap<>();
+    private final Map<TriagePriority, AtomicInteger> depthByPriority = depthByPriority();
+    private final Object loadLock = new Object();
+    private final AtomicLong version = new AtomicLong();
+    // Versions restart at every boot, so they are only comparable together with the boot they came from
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36) + "-" + Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private volatile boolean loaded;
+    
     /**
      * Fetch all WAITING appointments sorted by priority (HIGH first)
      */
     public List<Appointment> getWaitingAppointmentsByPriority() {
-        List<Appointment> waitingAppointments = appointmentRepository.findByStatus(AppointmentStatus.WAITING);
+        if (!loaded) {
+            return load();
+        }
         
-        // Sort by priority: HIGH -> MEDIUM -> LOW
-        waitingAppointments.sort((apt1, apt2) -> {
-            int priority1 = getPriorityValue(apt1.getTriagePriority());
-            int priority2 = getPriorityValue(apt2.getTriagePriority());
-            return Integer.compare(priority2, priority1); // Descending order (HIGH first)
-        });
+        List<Long> ids = queue.stream().map(QueueEntry::appointmentId).toList();
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
         
+        // One lookup by primary key; the order comes from the queue
+        Map<Long, Appointment> appointments = appointmentRepository.findAllById(ids).stream()
+            .collect(Collectors.toMap(Appointment::getId, Function.identity()));
+        List<Appointment> waitingAppointments = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Appointment appointment = appointments.get(id);
+            if (isWaiting(appointment)) {
+                waitingAppointments.add(appointment);
+            } else {
+                remove(id);
+            }
+        }
         return waitingAppointments;
     }
     
+    /**
+     * The triage queue as dashboard rows, loaded in a single query
+     */
+    public List<AppointmentView> getWaitingQueue() {
+        return viewsInQueueOrder(getWaitingAppointmentIds());
+    }
+    
+    /**
+     * Up to limit queue rows that come after the given entry (keyset pagination), or from the head
+     * of the queue when afterPriority is null
+     */
+    public List<AppointmentView> getWaitingQueuePage(TriagePriority afterPriority, Long afterAppointmentId, int limit) {
+        if (!loaded) {
+            load();
+        }
+        NavigableSet<QueueEntry> entries = afterPriority == null ? queue : queue.tailSet(new QueueEntry(afterPriority, afterAppointmentId), false);
+        return viewsInQueueOrder(entries.stream().limit(limit).map(QueueEntry::appointmentId).toList());
+    }
+    
+    /**
+     * Changes whenever an appointment joins or leaves the queue, so clients can tell whether
+     * their copy of the queue is still current without it being reloaded.
+     * Only meaningful together with {@link #getQueueEpoch()}.
+     */
+    public long getQueueVersion() {
+        if (!loaded) {
+            load();
+        }
+        return version.get();
+    }
+    
+    /**
+     * Identifies this run of the application; versions from an earlier run must not be trusted
+     */
+    public String getQueueEpoch() {
+        return epoch;
+    }
+    
+    /**
+     * IDs of WAITING appointments in queue order, without loading the appointments themselves
+     */
+    public List<Long> getWaitingAppointmentIds() {
+        if (!loaded) {
+            return load().stream().map(Appointment::getId).toList();
+        }
+        return queue.stream().map(QueueEntry::appointmentId).toList();
+    }
+    
     /**
      * Get the next high-priority appointment
      */
     public Appointment getNextHighPriorityAppointment() {
-        List<Appointment> prioritized = getWaitingAppointmentsByPriority();
-        return prioritized.isEmpty() ? null : prioritized.get(0);
+        if (!loaded) {
+            List<Appointment> prioritized = load();
+            return prioritized.isEmpty() ? null : prioritized.get(0);
+        }
+        
+        for (QueueEntry head : queue) {
+            Appointment appointment = appointmentRepository.findById(head.appointmentId()).orElse(null);
+            if (isWaiting(appointment)) {
+                return appointment;
+            }
+            // Changed without an event (e.g. edited directly in the database)
+            remove(head.appointmentId());
+        }
+        return null;
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        depthByPriority.forEach((priority, depth) -> Gauge.builder("triage.queue.depth", depth, AtomicInteger::get)
+            .description("WAITING appointments in the triage queue")
+            .tag("priority", priority.name())
+            .register(registry));
+    }
+    
+    /**
+     * Build the queue when the application starts
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadQueue() {
+        int size = load().size();
+        log.info("Triage queue loaded with {} waiting appointment(s)", size);
+    }
+    
+    /**
+     * Apply a status change once its transaction has committed (or straight away outside a transaction)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentStatusChanged(AppointmentStatusChangedEvent event) {
+        if (event.appointmentId() == null) {
+            return;
+        }
+        if (!loaded) {
+            // A load is in progress or has not happened yet; wait for it so this change is not lost
+            synchronized (loadLock) {
+                if (!loaded) {
+                    return;
+                }
+            }
+        }
+        
+        if (event.status() == AppointmentStatus.WAITING && event.triagePriority() != null) {
+            add(event.appointmentId(), event.triagePriority());
+        } else {
+            remove(event.appointmentId());
+        }
+    }
+    
+    /**
+     * Apply a whole bulk import at once
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentsImported(AppointmentsImportedEvent event) {
+        event.changes().forEach(this::onAppointmentStatusChanged);
+    }
+    
+    private List<AppointmentView> viewsInQueueOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        Map<Long, AppointmentView> views = appointmentRepository.findViewsByIdIn(ids).stream()
+            .collect(Collectors.toMap(AppointmentView::id, Function.identity()));
+        List<AppointmentView> queue = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            AppointmentView view = views.get(id);
+            if (view != null && view.status() == AppointmentStatus.WAITING) {
+                queue.add(view);
+            } else {
+                remove(id);
+            }
+        }
+        return queue;
+    }
+    
+    private List<Appointment> load() {
+        synchronized (loadLock) {
+            List<Appointment> waitingAppointments = new ArrayList<>(appointmentRepository.findByStatus(AppointmentStatus.WAITING));
+            synchronized (entriesById) {
+                queue.clear();
+                entriesById.clear();
+                depthByPriority.values().forEach(depth -> depth.set(0));
+            }
+            waitingAppointments.forEach(appointment -> add(appointment.getId(), appointment.getTriagePriority()));
+            version.incrementAndGet();
+            loaded = true;
+            
+            waitingAppointments.sort(Comparator.comparing(Appointment::getTriagePriority).thenComparing(Appointment::getId));
+            return waitingAppointments;
+        }
+    }
+    
+    private void add(Long appointmentId, TriagePriority triagePriority) {
+        QueueEntry entry = new QueueEntry(triagePriority, appointmentId);
+        synchronized (entriesById) {
+            QueueEntry previous = entriesById.put(appointmentId, entry);
+            if (previous != null && !previous.equals(entry)) {
+                queue.remove(previous);
+                depthByPriority.get(previous.triagePriority()).decrementAndGet();
+            }
+            if (queue.add(entry)) {
+                depthByPriority.get(triagePriority).incrementAndGet();
+            }
+            version.incrementAndGet();
+        }
+    }
+    
+    private void remove(Long appointmentId) {
+        synchronized (entriesById) {
+            QueueEntry entry = entriesById.remove(appointmentId);
+            if (entry != null) {
+                queue.remove(entry);
+                depthByPriority.get(entry.triagePriority()).decrementAndGet();
+                version.incrementAndGet();
+            }
+        }
+    }
+    
+    private static Map<TriagePriority, AtomicInteger> depthByPriority() {
+        Map<TriagePriority, AtomicInteger> depths = new EnumMap<>(TriagePriority.class);
+        for (TriagePriority priority : TriagePriority.values()) {
+            depths.put(priority, new AtomicInteger());
+        }
+        return depths;
+    }
+    
+    private static boolean isWaiting(Appointment appointment) {
+        return appointment != null && appointment.getStatus() == AppointmentStatus.WAITING;
     }
     
-    private int getPriorityValue(TriagePriority priority) {
-        return switch (priority) {
-            case HIGH -> 3;
-            case MEDIUM -> 2;
-            case LOW -> 1;
-        };
+    private record QueueEntry(TriagePriority triagePriority, Long appointmentId) {
     }
 }
@@ -0,0 +1,11 @@
+package com.wethinkcode.demo.infrastructure.ai;
+
+/**
+ * Thrown when Ollama is saturated and a request is turned away instead of queueing indefinitely
+ */
+public class AiBusyException extends RuntimeException {
+    
+    public AiBusyException(String message) {
+        super(message);
+    }
+}
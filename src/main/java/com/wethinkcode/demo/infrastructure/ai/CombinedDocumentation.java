@@ -0,0 +1,87 @@
+package com.wethinkcode.demo.infrastructure.ai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.wethinkcode.demo.domain.shared.MedicalRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SOAP note, patient summary and prescription returned by a single Ollama call.
+ * Each section is validated on its own and is null when the model left it out or returned it in
+ * the wrong shape. The caller decides what to regenerate: the summary and prescription are only
+ * worth keeping alongside the SOAP note they were written from.
+ */
+public record CombinedDocumentation(String soapNote, String patientSummary, String prescription) {
+    
+    static final String NO_PRESCRIPTIONS = MedicalRecord.NO_PRESCRIPTIONS;
+    
+    private static final List<String> SOAP_SECTIONS = List.of("subjective", "objective", "assessment", "plan");
+    
+    public static CombinedDocumentation empty() {
+        return new CombinedDocumentation(null, null, null);
+    }
+    
+    public boolean isComplete() {
+        return soapNote != null && patientSummary != null && prescription != null;
+    }
+    
+    /**
+     * Validate the JSON document produced by the combined documentation prompt
+     */
+    static CombinedDocumentation fromJson(JsonNode json, ObjectMapper objectMapper) {
+        if (json == null || !json.isObject()) {
+            return empty();
+        }
+        return new CombinedDocumentation(
+            soapNote(json.get("soap"), objectMapper),
+            text(json.get("patient_summary")),
+            prescription(json.get("prescriptions")));
+    }
+    
+    private static String soapNote(JsonNode soap, ObjectMapper objectMapper) {
+        if (soap == null || !soap.isObject()) {
+            return null;
+        }
+        // Same shape as the standalone SOAP note prompt returns
+        ObjectNode note = objectMapper.createObjectNode();
+        for (String section : SOAP_SECTIONS) {
+            String value = text(soap.get(section));
+            if (value == null) {
+                return null;
+            }
+            note.put(section, value);
+        }
+        return note.toString();
+    }
+    
+    private static String prescription(JsonNode prescriptions) {
+        if (prescriptions == null || !prescriptions.isArray()) {
+            return null;
+        }
+        List<String> lines = new ArrayList<>();
+        for (JsonNode item : prescriptions) {
+            // An entry without a medication name is malformed; dropping it could turn the list into "no prescriptions"
+            String name = item.isObject() ? nonBlank(item.get("name")) : nonBlank(item);
+            if (name.isEmpty()) {
+                return null;
+            }
+            String line = item.isObject()
+                ? String.join(" ", name, nonBlank(item.get("dosage")), nonBlank(item.get("frequency"))).trim()
+                : name;
+            lines.add("- " + line.replaceAll("\\s+", " "));
+        }
+        return lines.isEmpty() ? NO_PRESCRIPTIONS : String.join("\n", lines);
+    }
+    
+    private static String text(JsonNode node) {
+        String value = nonBlank(node);
+        return value.isEmpty() ? null : value;
+    }
+    
+    private static String nonBlank(JsonNode node) {
+        return node != null && node.isTextual() ? node.asText().trim() : "";
+    }
+}
@@ -1,17 +1,15 @@
 package com.wethinkcode.demo.infrastructure.ai;
 
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import com.wethinkcode.demo.domain.shared.TriagePriority;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.HashMap;
 import java.util.Map;
 
 @Service
@@ -19,105 +17,134 @@ import java.util.Map;
 @Slf4j
 public class LlamaAiService {
     
-    @Value("${spring.ai.ollama.base-url:http://localhost:11434}")
-    private String ollamaBaseUrl;
-    
-    private final RestTemplate restTemplate;
+    private final OllamaProperties properties;
+    private final OllamaTransport ollamaTransport;
+    private final OllamaResponseCache responseCache;
+    private final OllamaAdmissionGate admissionGate;
+    private final OllamaMetrics metrics;
     private final ObjectMapper objectMapper;
     
     /**
      * Generates a structured SOAP note from rough consultation notes
      */
     public String generateSoapNote(String roughNotes) {
-        String prompt = """
-            You are a medical documentation expert. Convert the following rough clinical notes into a structured SOAP note format.
-            Return the response as valid JSON with the following structure:
-            {
-                "subjective": "Patient's chief complaint and history",
-                "objective": "Vital signs and examination findings",
-                "assessment": "Clinical diagnosis and assessment",
-                "plan": "Treatment plan and recommendations"
-            }
-            
-            Rough notes:
-            %s
-            
-            Return ONLY valid JSON, no additional text.
-            """.formatted(roughNotes);
-        
-        return callOllamaApi(prompt);
+        return generateSoapNote(roughNotes, TriagePriority.MEDIUM);
+    }
+    
+    /**
+     * Generates a structured SOAP note, queueing for Ollama according to the appointment's triage priority
+     */
+    public String generateSoapNote(String roughNotes, TriagePriority priority) {
+        return callOllamaApi(OllamaOperation.SOAP_NOTE, priority, OllamaPrompts.soapNote(roughNotes));
     }
     
     /**
      * Generates a simplified patient-friendly summary from a SOAP note
      */
     public String generatePatientSummary(String soapNote) {
-        String prompt = """
-            You are a medical translator. Convert the following medical SOAP note into a simple, patient-friendly summary.
-            Use simple 5th-grade level English that a patient can understand.
-            Avoid medical jargon. Explain in simple terms what the doctor found and what the patient should do next.
-            Keep it to 2-3 paragraphs maximum.
-            
-            SOAP Note:
-            %s
-            
-            Patient Summary:
-            """.formatted(soapNote);
-        
-        return callOllamaApi(prompt);
+        return generatePatientSummary(soapNote, TriagePriority.MEDIUM);
+    }
+    
+    public String generatePatientSummary(String soapNote, TriagePriority priority) {
+        return callOllamaApi(OllamaOperation.PATIENT_SUMMARY, priority, OllamaPrompts.patientSummary(soapNote), null, true);
     }
     
     /**
      * Extracts prescription details from a SOAP note
      */
     public String extractPrescription(String soapNote) {
-        String prompt = """
-            Extract any prescription medications from the following medical note.
-            Format as a simple list with medication name, dosage, and frequency.
-            If no medications are mentioned, return "No prescriptions recommended".
-            
-            Medical Note:
-            %s
-            
-            Prescription List:
-            """.formatted(soapNote);
-        
-        return callOllamaApi(prompt);
+        return extractPrescription(soapNote, TriagePriority.MEDIUM);
+    }
+    
+    public String extractPrescription(String soapNote, TriagePriority priority) {
+        return callOllamaApi(OllamaOperation.PRESCRIPTION, priority, OllamaPrompts.prescription(soapNote), null, true);
+    }
+    
+    /**
+     * Generates SOAP note, patient summary and prescription list in a single call,
+     * using Ollama's JSON mode so the answer can be split into sections
+     */
+    public CombinedDocumentation generateCombinedDocumentation(String roughNotes) {
+        return generateCombinedDocumentation(roughNotes, TriagePriority.MEDIUM);
+    }
+    
+    public CombinedDocumentation generateCombinedDocumentation(String roughNotes, TriagePriority priority) {
+        String response = callOllamaApi(OllamaOperation.COMBINED_DOCUMENTATION, priority, OllamaPrompts.combinedDocumentation(roughNotes), "json", false);
+        try {
+            return CombinedDocumentation.fromJson(objectMapper.readTree(response), objectMapper);
+        } catch (Exception e) {
+            log.warn("Combined documentation response was not valid JSON: {}", e.getMessage());
+            return CombinedDocumentation.empty();
+        }
     }
     
     /**
      * Call Ollama API with the given prompt
      */
-    private String callOllamaApi(String prompt) {
+    private String callOllamaApi(OllamaOperation operation, TriagePriority priority, String prompt) {
+        return callOllamaApi(operation, priority, prompt, null, false);
+    }
+    
+    /**
+     * Call Ollama API with the given prompt, optionally constraining the output format (e.g. "json").
+     * Cacheable calls are answered from the response cache when the same request was seen before;
+     * only calls that actually reach Ollama go through the admission gate.
+     *
+     * @throws AiBusyException if Ollama is saturated and the request was not admitted
+     * @throws IllegalStateException if Ollama could not be reached, failed, or returned no answer
+     */
+    private String callOllamaApi(OllamaOperation operation, TriagePriority priority, String prompt, String format, boolean cacheable) {
+        Map<String, Object> requestBody = OllamaPrompts.requestBody(prompt, false);
+        if (format != null) {
+            requestBody.put("format", format);
+        }
+        
+        String response;
         try {
-            String url = ollamaBaseUrl + "/api/generate";
-            
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("model", "llama2");
-            requestBody.put("prompt", prompt);
-            requestBody.put("stream", false);
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            
-            HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
-            
-            String response = restTemplate.postForObject(url, request, String.class);
-            
-            // Parse the JSON response to extract the text
-            if (response != null) {
-                JsonNode jsonNode = objectMapper.readTree(response);
-                if (jsonNode.has("response")) {
-                    return jsonNode.get("response").asText();
-                }
-            }
-            
-            return response != null ? response : "Unable to generate response";
-            
+            response = cacheable
+                ? responseCache.getOrCompute(OllamaResponseCache.key(requestBody), () -> requestOllama(operation, priority, requestBody))
+                : requestOllama(operation, priority, requestBody);
+        } catch (AiBusyException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            // The caller gave up on this call (e.g. its stage timed out)
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while calling Ollama for " + operation, e);
         } catch (Exception e) {
-            log.error("Error calling Ollama API", e);
-            return "Error: " + e.getMessage();
+            log.error("Error calling Ollama API for {}", operation, e);
+            throw new IllegalStateException("Ollama call for " + operation + " failed: " + e.getMessage(), e);
+        }
+        
+        if (response == null) {
+            throw OllamaPrompts.noAnswer(operation);
+        }
+        return response;
+    }
+    
+    private String requestOllama(OllamaOperation operation, TriagePriority priority, Map<String, Object> requestBody) throws Exception {
+        String url = properties.getBaseUrl() + "/api/generate";
+        
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        
+        HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
+        
+        String response;
+        long started;
+        try (OllamaAdmissionGate.Permit permit = admissionGate.enter(priority)) {
+            started = System.nanoTime();
+            try {
+                response = ollamaTransport.restTemplate(operation).postForObject(url, request, String.class);
+            } catch (RuntimeException e) {
+                metrics.recordFailure(operation, System.nanoTime() - started);
+                throw e;
+            }
         }
+        long elapsed = System.nanoTime() - started;
+        
+        JsonNode body = response != null ? objectMapper.readTree(response) : null;
+        metrics.recordSuccess(operation, elapsed, body);
+        // Null when there is no answer, which also keeps it out of the response cache
+        return OllamaPrompts.responseText(body);
     }
 }
-
@@ -0,0 +1,280 @@
+package com.wethinkcode.demo.infrastructure.ai;
+
+import com.wethinkcode.demo.domain.shared.TriagePriority;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bulkhead in front of Ollama.
+ * At most maxConcurrent requests are in flight; the rest wait in a queue ordered by the
+ * appointment's triage priority (HIGH first, then first come first served), so a HIGH-priority
+ * patient is never stuck behind a backlog of routine notes. When the queue is full, or a request
+ * has waited longer than maxWait, it is rejected with {@link AiBusyException} straight away
+ * instead of piling up on the HTTP connection pool.
+ * Blocking callers wait in {@link #enter}; reactive callers use {@link #admit}, which queues in
+ * the same order without holding a thread.
+ */
+@Component
+@Slf4j
+public class OllamaAdmissionGate implements MeterBinder {
+    
+    static final String BUSY_MESSAGE = "The AI assistant is busy with other consultations. Please try again in a moment.";
+    
+    private final int maxConcurrent;
+    private final int maxQueueDepth;
+    private final Duration maxWait;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Waiter> waiting = new PriorityQueue<>(
+        Comparator.comparing(Waiter::priority).thenComparingLong(Waiter::sequence));
+    private final List<Runnable> handOffs = new ArrayList<>();
+    private long nextSequence;
+    private int active;
+    
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    
+    @Autowired
+    public OllamaAdmissionGate(OllamaProperties properties) {
+        this(properties.getAdmission().getMaxConcurrent(),
+            properties.getAdmission().getMaxQueueDepth(),
+            properties.getAdmission().getMaxWait());
+    }
+    
+    public OllamaAdmissionGate(int maxConcurrent, int maxQueueDepth, Duration maxWait) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueueDepth = maxQueueDepth;
+        this.maxWait = maxWait;
+    }
+    
+    /**
+     * Wait for a free slot. The returned permit must be closed when the Ollama call is finished.
+     *
+     * @throws AiBusyException if the queue is full or no slot frees up within maxWait
+     */
+    public Permit enter(TriagePriority priority) throws InterruptedException {
+        TriagePriority effectivePriority = priority != null ? priority : TriagePriority.MEDIUM;
+        
+        lock.lock();
+        try {
+            if (waiting.isEmpty() && active < maxConcurrent) {
+                return grant();
+            }
+            if (waiting.size() >= maxQueueDepth) {
+                throw rejection(effectivePriority, "queue full");
+            }
+            
+            Waiter waiter = new Waiter(effectivePriority, nextSequence++, lock.newCondition(), null);
+            waiting.add(waiter);
+            long remaining = maxWait.toNanos();
+            try {
+                while (waiting.peek() != waiter || active >= maxConcurrent) {
+                    if (remaining <= 0) {
+                        waiting.remove(waiter);
+                        throw rejection(effectivePriority, "waited " + maxWait);
+                    }
+                    remaining = waiter.turn().awaitNanos(remaining);
+                }
+                waiting.poll();
+                return grant();
+            } catch (InterruptedException e) {
+                waiting.remove(waiter);
+                throw e;
+            } finally {
+                // Whoever is at the head now may be able to go (a slot is free or we left the queue)
+                signalNext();
+            }
+        } finally {
+            unlock();
+        }
+    }
+    
+    /**
+     * Non-blocking variant of {@link #enter}: emits a permit once a slot is free, or fails with
+     * {@link AiBusyException}. Cancelling while queued gives up the place in the queue, and a
+     * permit that arrives after cancellation is released straight away.
+     */
+    public Mono<Permit> admit(TriagePriority priority) {
+        TriagePriority effectivePriority = priority != null ? priority : TriagePriority.MEDIUM;
+        
+        return Mono.<Permit>create(sink -> {
+                lock.lock();
+                try {
+                    if (waiting.isEmpty() && active < maxConcurrent) {
+                        Permit permit = grant();
+                        handOffs.add(() -> sink.success(permit));
+                    } else if (waiting.size() >= maxQueueDepth) {
+                        AiBusyException busy = rejection(effectivePriority, "queue full");
+                        handOffs.add(() -> sink.error(busy));
+                    } else {
+                        Waiter waiter = new Waiter(effectivePriority, nextSequence++, null, sink);
+                        waiting.add(waiter);
+                        Disposable expiry = Schedulers.parallel().schedule(() -> expire(waiter), maxWait.toNanos(), TimeUnit.NANOSECONDS);
+                        sink.onCancel(() -> leave(waiter));
+                        sink.onDispose(expiry);
+                    }
+                } finally {
+                    unlock();
+                }
+            })
+            .doOnDiscard(Permit.class, Permit::close);
+    }
+    
+    public int activeRequests() {
+        lock.lock();
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public int queuedRequests() {
+        lock.lock();
+        try {
+            return waiting.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("ollama.admission.active", this, OllamaAdmissionGate::activeRequests)
+            .description("Requests currently being processed by Ollama")
+            .register(registry);
+        Gauge.builder("ollama.admission.queued", this, OllamaAdmissionGate::queuedRequests)
+            .description("Requests waiting for a free Ollama slot")
+            .register(registry);
+        FunctionCounter.builder("ollama.admission.requests", admitted, AtomicLong::get).tag("result", "admitted").register(registry);
+        FunctionCounter.builder("ollama.admission.requests", rejected, AtomicLong::get).tag("result", "rejected").register(registry);
+    }
+    
+    private Permit grant() {
+        active++;
+        admitted.incrementAndGet();
+        return new Permit();
+    }
+    
+    private AiBusyException rejection(TriagePriority priority, String reason) {
+        rejected.incrementAndGet();
+        log.warn("Rejected {} priority Ollama request ({}): {} active, {} queued", priority, reason, active, waiting.size());
+        return new AiBusyException(BUSY_MESSAGE);
+    }
+    
+    private void release() {
+        lock.lock();
+        try {
+            active--;
+            signalNext();
+        } finally {
+            unlock();
+        }
+    }
+    
+    /**
+     * A reactive waiter that is still queued after maxWait is rejected
+     */
+    private void expire(Waiter waiter) {
+        lock.lock();
+        try {
+            if (waiting.remove(waiter)) {
+                AiBusyException busy = rejection(waiter.priority(), "waited " + maxWait);
+                handOffs.add(() -> waiter.sink().error(busy));
+                signalNext();
+            }
+        } finally {
+            unlock();
+        }
+    }
+    
+    private void leave(Waiter waiter) {
+        lock.lock();
+        try {
+            if (waiting.remove(waiter)) {
+                signalNext();
+            }
+        } finally {
+            unlock();
+        }
+    }
+    
+    private void signalNext() {
+        Waiter next;
+        while ((next = waiting.peek()) != null && active < maxConcurrent) {
+            if (next.turn() != null) {
+                // A blocking waiter admits itself once woken
+                next.turn().signal();
+                return;
+            }
+            waiting.poll();
+            Permit permit = grant();
+            MonoSink<Permit> sink = next.sink();
+            handOffs.add(() -> sink.success(permit));
+        }
+    }
+    
+    /**
+     * Release the lock, then complete the reactive waiters that were admitted or rejected meanwhile.
+     * Subscribers run outside the lock, so they are free to enter or release the gate themselves.
+     */
+    private void unlock() {
+        List<Runnable> ready = null;
+        if (lock.getHoldCount() == 1 && !handOffs.isEmpty()) {
+            ready = new ArrayList<>(handOffs);
+            handOffs.clear();
+        }
+        lock.unlock();
+        if (ready != null) {
+            ready.forEach(Runnable::run);
+        }
+    }
+    
+    /**
+     * A queued request: blocking callers wait on their own condition, reactive callers on a sink
+     */
+    private record Waiter(TriagePriority priority, long sequence, Condition turn, MonoSink<Permit> sink) {
+    }
+    
+    /**
+     * A slot in the gate; closing it lets the next waiting request through
+     */
+    public final class Permit implements AutoCloseable {
+        
+        private boolean released;
+        
+        private Permit() {
+        }
+        
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+            }
+            release();
+        }
+    }
+}
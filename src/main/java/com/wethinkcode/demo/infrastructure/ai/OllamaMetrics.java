@@ -0,0 +1,112 @@
+package com.wethinkcode.demo.infrastructure.ai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics for calls that actually reach Ollama (cache hits are not counted), taken from the
+ * statistics Ollama returns with every finished answer:
+ * ollama.generate (latency histogram per operation and outcome), ollama.generate.tokens
+ * (prompt and completion tokens), ollama.generate.tokens.per.second (generation speed of the
+ * latest answer) and ollama.model.loads (answers that had to load the model into memory first).
+ */
+@Component
+public class OllamaMetrics {
+    
+    /** Loading a model that is already resident takes milliseconds; anything slower is a cold start */
+    static final Duration COLD_START = Duration.ofMillis(500);
+    
+    private final MeterRegistry registry;
+    private final Map<OllamaOperation, Timer> successes = new EnumMap<>(OllamaOperation.class);
+    private final Map<OllamaOperation, Timer> failures = new EnumMap<>(OllamaOperation.class);
+    private final Map<OllamaOperation, DistributionSummary> promptTokens = new EnumMap<>(OllamaOperation.class);
+    private final Map<OllamaOperation, DistributionSummary> completionTokens = new EnumMap<>(OllamaOperation.class);
+    private final Map<OllamaOperation, AtomicLong> tokensPerSecond = new EnumMap<>(OllamaOperation.class);
+    private final Map<OllamaOperation, Counter> modelLoads = new EnumMap<>(OllamaOperation.class);
+    
+    public OllamaMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (OllamaOperation operation : OllamaOperation.values()) {
+            String tag = operation.name().toLowerCase(Locale.ROOT);
+            successes.put(operation, timer(tag, "success"));
+            failures.put(operation, timer(tag, "error"));
+            promptTokens.put(operation, tokens(tag, "prompt"));
+            completionTokens.put(operation, tokens(tag, "completion"));
+            
+            // Stored as the bits of a double so the gauge can be read without locking
+            AtomicLong rate = new AtomicLong(Double.doubleToLongBits(0));
+            tokensPerSecond.put(operation, rate);
+            Gauge.builder("ollama.generate.tokens.per.second", rate, bits -> Double.longBitsToDouble(bits.get()))
+                .description("Generation speed of the most recent answer")
+                .tag("operation", tag)
+                .register(registry);
+            
+            modelLoads.put(operation, Counter.builder("ollama.model.loads")
+                .description("Answers that waited for Ollama to load the model (cold starts)")
+                .tag("operation", tag)
+                .register(registry));
+        }
+    }
+    
+    /**
+     * Record a finished answer; the body is Ollama's final JSON object (the last chunk when streaming)
+     */
+    public void recordSuccess(OllamaOperation operation, long elapsedNanos, JsonNode response) {
+        successes.get(operation).record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (response == null) {
+            return;
+        }
+        
+        if (response.has("prompt_eval_count")) {
+            promptTokens.get(operation).record(response.path("prompt_eval_count").asLong());
+        }
+        long evalCount = response.path("eval_count").asLong(0);
+        long evalDuration = response.path("eval_duration").asLong(0);
+        if (evalCount > 0) {
+            completionTokens.get(operation).record(evalCount);
+        }
+        if (evalCount > 0 && evalDuration > 0) {
+            double rate = evalCount / (evalDuration / 1_000_000_000.0);
+            tokensPerSecond.get(operation).set(Double.doubleToLongBits(rate));
+        }
+        if (response.path("load_duration").asLong(0) >= COLD_START.toNanos()) {
+            modelLoads.get(operation).increment();
+        }
+    }
+    
+    public void recordFailure(OllamaOperation operation, long elapsedNanos) {
+        failures.get(operation).record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    private Timer timer(String operation, String outcome) {
+        return Timer.builder("ollama.generate")
+            .description("Time from sending a request to Ollama until the answer is complete")
+            .tag("operation", operation)
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofMillis(50))
+            .maximumExpectedValue(Duration.ofMinutes(5))
+            .register(registry);
+    }
+    
+    private DistributionSummary tokens(String operation, String type) {
+        return DistributionSummary.builder("ollama.generate.tokens")
+            .description("Tokens per answer: prompt tokens evaluated and completion tokens generated")
+            .baseUnit("tokens")
+            .tag("operation", operation)
+            .tag("type", type)
+            .register(registry);
+    }
+}
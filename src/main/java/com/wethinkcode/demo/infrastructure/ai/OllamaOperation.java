@@ -0,0 +1,12 @@
+package com.wethinkcode.demo.infrastructure.ai;
+
+/**
+ * The kinds of calls made to Ollama; each has its own timeout
+ */
+public enum OllamaOperation {
+    SOAP_NOTE,
+    PATIENT_SUMMARY,
+    PRESCRIPTION,
+    COMBINED_DOCUMENTATION,
+    STREAMING
+}
@@ -0,0 +1,111 @@
+package com.wethinkcode.demo.infrastructure.ai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Prompts, request bodies and answer extraction shared by the blocking and the reactive Ollama clients
+ */
+final class OllamaPrompts {
+    
+    private OllamaPrompts() {
+    }
+    
+    static String soapNote(String roughNotes) {
+        return """
+            You are a medical documentation expert. Convert the following rough clinical notes into a structured SOAP note format.
+            Return the response as valid JSON with the following structure:
+            {
+                "subjective": "Patient's chief complaint and history",
+                "objective": "Vital signs and examination findings",
+                "assessment": "Clinical diagnosis and assessment",
+                "plan": "Treatment plan and recommendations"
+            }
+            
+            Rough notes:
+            %s
+            
+            Return ONLY valid JSON, no additional text.
+            """.formatted(roughNotes);
+    }
+    
+    static String patientSummary(String soapNote) {
+        return """
+            You are a medical translator. Convert the following medical SOAP note into a simple, patient-friendly summary.
+            Use simple 5th-grade level English that a patient can understand.
+            Avoid medical jargon. Explain in simple terms what the doctor found and what the patient should do next.
+            Keep it to 2-3 paragraphs maximum.
+            
+            SOAP Note:
+            %s
+            
+            Patient Summary:
+            """.formatted(soapNote);
+    }
+    
+    static String prescription(String soapNote) {
+        return """
+            Extract any prescription medications from the following medical note.
+            Format as a simple list with medication name, dosage, and frequency.
+            If no medications are mentioned, return "No prescriptions recommended".
+            
+            Medical Note:
+            %s
+            
+            Prescription List:
+            """.formatted(soapNote);
+    }
+    
+    static String combinedDocumentation(String roughNotes) {
+        return """
+            You are a medical documentation expert. From the rough clinical notes below, produce ONE JSON document with exactly these fields:
+            {
+                "soap": {
+                    "subjective": "Patient's chief complaint and history",
+                    "objective": "Vital signs and examination findings",
+                    "assessment": "Clinical diagnosis and assessment",
+                    "plan": "Treatment plan and recommendations"
+                },
+                "patient_summary": "A simple, patient-friendly summary in 5th-grade level English, 2-3 paragraphs, no medical jargon",
+                "prescriptions": [
+                    {"name": "Medication name", "dosage": "Dosage", "frequency": "Frequency"}
+                ]
+            }
+            Use an empty "prescriptions" array if no medications are mentioned.
+            
+            Rough notes:
+            %s
+            
+            Return ONLY valid JSON, no additional text.
+            """.formatted(roughNotes);
+    }
+    
+    static Map<String, Object> requestBody(String prompt, boolean stream) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", "llama2");
+        requestBody.put("prompt", prompt);
+        requestBody.put("stream", stream);
+        return requestBody;
+    }
+    
+    /**
+     * The generated text of a non-streamed answer, or null when the body carries none
+     * (no body, or no "response" field). Null answers are never cached.
+     */
+    static String responseText(JsonNode body) {
+        if (body == null) {
+            return null;
+        }
+        JsonNode response = body.path("response");
+        return response.isMissingNode() || response.isNull() ? null : response.asText();
+    }
+    
+    /**
+     * How both clients fail a call that Ollama answered without any text
+     */
+    static IllegalStateException noAnswer(OllamaOperation operation) {
+        return new IllegalStateException("Ollama returned no answer for " + operation);
+    }
+}
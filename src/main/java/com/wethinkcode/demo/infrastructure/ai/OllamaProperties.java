@@ -0,0 +1,119 @@
+package com.wethinkcode.demo.infrastructure.ai;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Ollama connection settings under spring.ai.ollama.*
+ */
+@Data
+@ConfigurationProperties(prefix = "spring.ai.ollama")
+public class OllamaProperties {
+    
+    private String baseUrl = "http://localhost:11434";
+    
+    private final Http http = new Http();
+    
+    private final Timeouts timeouts = new Timeouts();
+    
+    private final Cache cache = new Cache();
+    
+    private final Admission admission = new Admission();
+    
+    private final Retry retry = new Retry();
+    
+    /**
+     * Longest a blocking call for the operation can take: waiting for an admission slot and a pooled
+     * connection, connecting, and then the operation's read timeout
+     */
+    public Duration callDeadline(OllamaOperation operation) {
+        return admission.getMaxWait()
+            .plus(http.getConnectionRequestTimeout())
+            .plus(http.getConnectTimeout())
+            .plus(timeouts.forOperation(operation));
+    }
+    
+    @Data
+    public static class Http {
+        /** Time allowed to open a TCP connection to Ollama */
+        private Duration connectTimeout = Duration.ofSeconds(2);
+        /** Time a request may wait for a free pooled connection */
+        private Duration connectionRequestTimeout = Duration.ofSeconds(5);
+        /** Pool size; there is only one route (the Ollama host) so this is also the per-route limit */
+        private int maxConnections = 20;
+        /** How long an idle connection is kept open for reuse */
+        private Duration keepAlive = Duration.ofMinutes(5);
+        /** Ask Ollama (or a proxy in front of it) for gzip-compressed responses */
+        private boolean gzip = true;
+    }
+    
+    /**
+     * How long to wait for Ollama's answer, per operation
+     */
+    @Data
+    public static class Timeouts {
+        private Duration soapNote = Duration.ofSeconds(180);
+        private Duration patientSummary = Duration.ofSeconds(90);
+        private Duration prescription = Duration.ofSeconds(60);
+        private Duration combinedDocumentation = Duration.ofSeconds(240);
+        /** Longest gap allowed between two chunks of a streamed response */
+        private Duration streaming = Duration.ofSeconds(30);
+        
+        public Duration forOperation(OllamaOperation operation) {
+            return switch (operation) {
+                case SOAP_NOTE -> soapNote;
+                case PATIENT_SUMMARY -> patientSummary;
+                case PRESCRIPTION -> prescription;
+                case COMBINED_DOCUMENTATION -> combinedDocumentation;
+                case STREAMING -> streaming;
+            };
+        }
+    }
+    
+    /**
+     * Response cache for repeated prompts
+     */
+    @Data
+    public static class Cache {
+        private boolean enabled = true;
+        /** Responses kept in the in-memory LRU tier */
+        private int maxEntries = 1000;
+        /**
+         * Directory of the on-disk tier; blank (the default) keeps the cache in memory only.
+         * The files hold patient summaries and prescriptions unencrypted, so only point this at protected storage.
+         */
+        private String directory = "";
+        /** Size the on-disk log may reach before its oldest entries are evicted */
+        private DataSize maxDiskSize = DataSize.ofMegabytes(64);
+    }
+    
+    /**
+     * Limits on how many requests may be sent to Ollama at once and how many may wait
+     */
+    @Data
+    public static class Admission {
+        /** Requests Ollama works on at the same time; match OLLAMA_NUM_PARALLEL */
+        private int maxConcurrent = 2;
+        /** Requests allowed to wait for a free slot before new ones are rejected */
+        private int maxQueueDepth = 20;
+        /** Longest a request waits for a slot before it is rejected */
+        private Duration maxWait = Duration.ofSeconds(30);
+    }
+    
+    /**
+     * Retries of reactive calls that failed on the way to Ollama (connection errors, 5xx, 429)
+     */
+    @Data
+    public static class Retry {
+        /** Retries after the first attempt; 0 disables retrying */
+        private int maxAttempts = 2;
+        /** Delay before the first retry; doubles on every further attempt */
+        private Duration minBackoff = Duration.ofMillis(500);
+        private Duration maxBackoff = Duration.ofSeconds(5);
+        /** Random spread applied to each delay (0-1), so clients that failed together do not retry together */
+        private double jitter = 0.5;
+    }
+}
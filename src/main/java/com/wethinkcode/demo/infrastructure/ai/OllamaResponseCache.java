@@ -0,0 +1,462 @@
+package com.wethinkcode.demo.infrastructure.ai;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+
+/**
+ * Cache of Ollama responses keyed by a SHA-256 hash of the model, prompt and options.
+ * Concurrent misses for the same key share a single call to Ollama.
+ * <p>
+ * The first tier is an in-memory LRU map. The optional second tier (off unless a directory is
+ * configured, as it holds patient summaries and prescriptions in plain text) is an append-only
+ * log file that survives restarts: every response is appended once, and an in-memory index maps
+ * each key to the offset of its newest entry. Entries are
+ * {@code [32-byte key][int length][UTF-8 response][int CRC32]}; a torn entry at the end
+ * of the file (e.g. after a crash) is discarded on startup. When the log grows past its size
+ * limit it is rewritten with only the newest entries, down to half the limit.
+ */
+@Component
+@Slf4j
+public class OllamaResponseCache implements MeterBinder {
+    
+    private static final String LOG_FILE = "responses.log";
+    private static final int KEY_BYTES = 32;
+    private static final int HEADER_BYTES = KEY_BYTES + Integer.BYTES;
+    static final long DEFAULT_MAX_DISK_BYTES = 64L * 1024 * 1024;
+    
+    private final boolean enabled;
+    private final Map<String, String> memory;
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Mono<String>> reactiveInFlight = new ConcurrentHashMap<>();
+    
+    private final Path directory;
+    private final long maxDiskBytes;
+    // Guards diskIndex and diskLog; the index is in write order, oldest first, for eviction
+    private final Object diskLock = new Object();
+    private final Map<String, Long> diskIndex = new LinkedHashMap<>();
+    private FileChannel diskLog;
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong diskEvictions = new AtomicLong();
+    
+    @Autowired
+    public OllamaResponseCache(OllamaProperties properties) {
+        this(properties.getCache().isEnabled(),
+            properties.getCache().getMaxEntries(),
+            properties.getCache().getDirectory(),
+            properties.getCache().getMaxDiskSize().toBytes());
+    }
+    
+    public OllamaResponseCache(boolean enabled, int maxEntries, String directory) {
+        this(enabled, maxEntries, directory, DEFAULT_MAX_DISK_BYTES);
+    }
+    
+    public OllamaResponseCache(boolean enabled, int maxEntries, String directory, long maxDiskBytes) {
+        this.enabled = enabled;
+        this.maxDiskBytes = maxDiskBytes;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                if (size() > maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.directory = enabled && directory != null && !directory.isBlank() ? Path.of(directory) : null;
+        if (this.directory != null) {
+            synchronized (diskLock) {
+                diskLog = openDiskLog(this.directory);
+            }
+        }
+    }
+    
+    /**
+     * Cache key for an Ollama request body. "stream" does not change the answer, so it is not part of the key.
+     */
+    public static String key(Map<String, Object> requestBody) {
+        StringBuilder material = new StringBuilder();
+        new TreeMap<>(requestBody).forEach((name, value) -> {
+            if (!"stream".equals(name)) {
+                material.append(name).append('\u0000').append(value).append('\u0000');
+            }
+        });
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(material.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    /**
+     * Return the cached response for the key, or call Ollama and remember its answer.
+     * Nothing is cached when the call fails or returns null. Callers that miss while another
+     * caller is already loading the same key wait for that answer (or Ollama's failure) instead of
+     * calling Ollama. If the loading caller was only turned away or gave up (busy, interrupted,
+     * cancelled or timed out), the waiting callers try again with their own loader and priority.
+     */
+    public String getOrCompute(String key, Callable<String> loader) throws Exception {
+        if (!enabled) {
+            return loader.call();
+        }
+        
+        while (true) {
+            String cached = lookup(key);
+            if (cached != null) {
+                return cached;
+            }
+            
+            CompletableFuture<String> flight = new CompletableFuture<>();
+            CompletableFuture<String> leader = inFlight.putIfAbsent(key, flight);
+            if (leader == null) {
+                return load(key, flight, loader);
+            }
+            try {
+                return leader.get();
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof Exception cause)) {
+                    throw e;
+                }
+                if (!leaderGaveUp(cause)) {
+                    throw cause;
+                }
+                // The leader's own admission or deadline failed, not the call to Ollama
+            }
+        }
+    }
+    
+    /**
+     * Reactive variant of {@link #getOrCompute}: the loader is only subscribed to on a miss, and
+     * concurrent misses for the same key share one subscription (cancelled once all of them cancel).
+     * The disk tier is read and written on the bounded elastic scheduler, never on the caller's thread.
+     */
+    public Mono<String> getOrCompute(String key, Mono<String> loader) {
+        if (!enabled) {
+            return loader;
+        }
+        
+        return Mono.fromCallable(() -> lookup(key))
+            .subscribeOn(Schedulers.boundedElastic())
+            .switchIfEmpty(Mono.defer(() -> reactiveInFlight.computeIfAbsent(key, k -> sharedLoad(k, loader))));
+    }
+    
+    public CacheStats stats() {
+        int size;
+        synchronized (memory) {
+            size = memory.size();
+        }
+        int diskSize;
+        synchronized (diskLock) {
+            diskSize = diskIndex.size();
+        }
+        return new CacheStats(hits.get(), diskHits.get(), misses.get(), evictions.get(), size, diskSize);
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("ollama.cache.requests", hits, AtomicLong::get).tag("result", "hit").register(registry);
+        FunctionCounter.builder("ollama.cache.requests", diskHits, AtomicLong::get).tag("result", "disk_hit").register(registry);
+        FunctionCounter.builder("ollama.cache.requests", misses, AtomicLong::get).tag("result", "miss").register(registry);
+        FunctionCounter.builder("ollama.cache.evictions", evictions, AtomicLong::get).register(registry);
+        FunctionCounter.builder("ollama.cache.disk.evictions", diskEvictions, AtomicLong::get).register(registry);
+        Gauge.builder("ollama.cache.entries", this, cache -> cache.stats().memoryEntries()).tag("tier", "memory").register(registry);
+        Gauge.builder("ollama.cache.entries", this, cache -> cache.stats().diskEntries()).tag("tier", "disk").register(registry);
+    }
+    
+    @PreDestroy
+    public void close() throws IOException {
+        synchronized (diskLock) {
+            if (diskLog != null) {
+                diskLog.close();
+            }
+        }
+    }
+    
+    private String load(String key, CompletableFuture<String> flight, Callable<String> loader) throws Exception {
+        try {
+            String response = loader.call();
+            store(key, response);
+            flight.complete(response);
+            return response;
+        } catch (Exception e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+    
+    private static boolean leaderGaveUp(Exception cause) {
+        return cause instanceof AiBusyException
+            || cause instanceof InterruptedException
+            || cause instanceof CancellationException
+            || cause instanceof TimeoutException;
+    }
+    
+    /**
+     * One subscription to the loader for every concurrent miss on the key; the entry is removed
+     * once it completes, fails or is cancelled by its last subscriber. The outcome is kept, so a
+     * caller that picked up the entry just before it was removed gets the same answer instead of
+     * calling Ollama again.
+     */
+    private Mono<String> sharedLoad(String key, Mono<String> loader) {
+        AtomicReference<Mono<String>> shared = new AtomicReference<>();
+        shared.set(loader
+            .flatMap(response -> Mono.fromRunnable(() -> store(key, response))
+                .subscribeOn(Schedulers.boundedElastic())
+                .thenReturn(response))
+            // Only this load's entry: a newer load for the key may already have taken its place
+            .doFinally(signal -> reactiveInFlight.remove(key, shared.get()))
+            .cache());
+        return shared.get();
+    }
+    
+    private FileChannel openDiskLog(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            Path file = directory.resolve(LOG_FILE);
+            FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long validEnd = loadIndex(channel);
+            if (validEnd < channel.size()) {
+                log.warn("Discarding {} bytes of incomplete entries at the end of {}", channel.size() - validEnd, file);
+                channel.truncate(validEnd);
+            }
+            channel.position(validEnd);
+            
+            long liveBytes = 0;
+            for (long offset : diskIndex.values()) {
+                liveBytes += entrySize(channel, offset);
+            }
+            if (validEnd > maxDiskBytes) {
+                channel = compact(channel, directory, maxDiskBytes / 2);
+            } else if (validEnd > 2 * liveBytes + 1024 * 1024) {
+                channel = compact(channel, directory, maxDiskBytes);
+            }
+            log.info("Ollama response cache loaded {} entries from {}", diskIndex.size(), file);
+            return channel;
+        } catch (IOException e) {
+            log.warn("Ollama response cache disk tier disabled: {}", e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Scan the log, index every intact entry and return the offset just past the last one
+     */
+    private long loadIndex(FileChannel channel) throws IOException {
+        long position = 0;
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (position + HEADER_BYTES + Integer.BYTES <= size) {
+            header.clear();
+            channel.read(header, position);
+            header.flip();
+            byte[] keyBytes = new byte[KEY_BYTES];
+            header.get(keyBytes);
+            int length = header.getInt();
+            if (length < 0 || position + HEADER_BYTES + length + Integer.BYTES > size) {
+                break;
+            }
+            if (readValue(channel, position, length) == null) {
+                break;
+            }
+            String key = HexFormat.of().formatHex(keyBytes);
+            diskIndex.remove(key);
+            diskIndex.put(key, position);
+            position += HEADER_BYTES + length + Integer.BYTES;
+        }
+        return position;
+    }
+    
+    /**
+     * Rewrite the log with only the newest entry per key, keeping the most recently written
+     * entries that fit in the given number of bytes
+     */
+    private FileChannel compact(FileChannel channel, Path directory, long budget) throws IOException {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(diskIndex.entrySet());
+        long[] sizes = new long[entries.size()];
+        long kept = 0;
+        int first = entries.size();
+        while (first > 0) {
+            long size = entrySize(channel, entries.get(first - 1).getValue());
+            if (kept + size > budget) {
+                break;
+            }
+            kept += size;
+            sizes[--first] = size;
+        }
+        if (first > 0) {
+            diskEvictions.addAndGet(first);
+            log.info("Evicting {} Ollama responses from the disk cache to stay under {} bytes", first, maxDiskBytes);
+        }
+        
+        Path compacted = directory.resolve(LOG_FILE + ".compact");
+        Map<String, Long> newIndex = new LinkedHashMap<>();
+        try (FileChannel out = FileChannel.open(compacted,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (int i = first; i < entries.size(); i++) {
+                Map.Entry<String, Long> entry = entries.get(i);
+                newIndex.put(entry.getKey(), out.position());
+                channel.transferTo(entry.getValue(), sizes[i], out);
+            }
+            out.force(true);
+        }
+        channel.close();
+        Files.move(compacted, directory.resolve(LOG_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        diskIndex.clear();
+        diskIndex.putAll(newIndex);
+        FileChannel reopened = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        reopened.position(reopened.size());
+        return reopened;
+    }
+    
+    /**
+     * The cached response for the key, or null after counting a miss
+     */
+    private String lookup(String key) {
+        String cached;
+        synchronized (memory) {
+            cached = memory.get(key);
+        }
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        
+        cached = readFromDisk(key);
+        if (cached != null) {
+            diskHits.incrementAndGet();
+            synchronized (memory) {
+                memory.put(key, cached);
+            }
+            return cached;
+        }
+        
+        misses.incrementAndGet();
+        return null;
+    }
+    
+    private void store(String key, String response) {
+        if (response == null) {
+            return;
+        }
+        synchronized (memory) {
+            memory.put(key, response);
+        }
+        writeToDisk(key, response);
+    }
+    
+    private String readFromDisk(String key) {
+        try {
+            synchronized (diskLock) {
+                Long offset = diskLog == null ? null : diskIndex.get(key);
+                if (offset == null) {
+                    return null;
+                }
+                ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+                diskLog.read(length, offset + KEY_BYTES);
+                return readValue(diskLog, offset, length.flip().getInt());
+            }
+        } catch (IOException e) {
+            log.warn("Could not read cached Ollama response: {}", e.getMessage());
+            return null;
+        }
+    }
+    
+    private String readValue(FileChannel channel, long offset, int length) throws IOException {
+        ByteBuffer body = ByteBuffer.allocate(length + Integer.BYTES);
+        channel.read(body, offset + HEADER_BYTES);
+        body.flip();
+        byte[] value = new byte[length];
+        body.get(value);
+        CRC32 crc = new CRC32();
+        crc.update(value);
+        return (int) crc.getValue() == body.getInt() ? new String(value, StandardCharsets.UTF_8) : null;
+    }
+    
+    private void writeToDisk(String key, String response) {
+        if (directory == null) {
+            return;
+        }
+        byte[] value = response.getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(value);
+        ByteBuffer entry = ByteBuffer.allocate(HEADER_BYTES + value.length + Integer.BYTES)
+            .put(HexFormat.of().parseHex(key))
+            .putInt(value.length)
+            .put(value)
+            .putInt((int) crc.getValue())
+            .flip();
+        try {
+            synchronized (diskLock) {
+                if (diskLog == null) {
+                    return;
+                }
+                long offset = diskLog.position();
+                while (entry.hasRemaining()) {
+                    diskLog.write(entry);
+                }
+                diskIndex.remove(key);
+                diskIndex.put(key, offset);
+                if (diskLog.position() > maxDiskBytes) {
+                    diskLog = compact(diskLog, directory, maxDiskBytes / 2);
+                }
+            }
+        } catch (IOException e) {
+            // The response is still served from memory; losing the disk copy is not worth failing the call
+            log.warn("Could not write Ollama response cache: {}", e.getMessage());
+        }
+    }
+    
+    private static long entrySize(FileChannel channel, long offset) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        channel.read(length, offset + KEY_BYTES);
+        return HEADER_BYTES + length.flip().getInt() + Integer.BYTES;
+    }
+    
+    /**
+     * Hit/miss/eviction counters and current size of both tiers
+     */
+    public record CacheStats(long hits, long diskHits, long misses, long evictions, int memoryEntries, int diskEntries) {
+    }
+}
@@ -0,0 +1,133 @@
+package com.wethinkcode.demo.infrastructure.ai;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * HTTP plumbing for talking to Ollama.
+ * All blocking calls share one pool of keep-alive HTTP/1.1 connections, so the three calls
+ * of a consultation reuse the same sockets instead of opening a new one each time.
+ * Every operation gets its own RestTemplate on top of the shared client so that it can
+ * have its own read timeout. Streaming calls use a pooled Reactor Netty client.
+ */
+@Component
+public class OllamaTransport implements MeterBinder {
+    
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final Map<OllamaOperation, RestTemplate> restTemplates = new EnumMap<>(OllamaOperation.class);
+    private final ConnectionProvider streamingConnections;
+    private final WebClient webClient;
+    
+    public OllamaTransport(OllamaProperties properties, WebClient.Builder webClientBuilder) {
+        OllamaProperties.Http http = properties.getHttp();
+        
+        connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(http.getMaxConnections())
+            .setMaxConnPerRoute(http.getMaxConnections())
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.of(http.getConnectTimeout()))
+                .build())
+            .build();
+        
+        HttpClientBuilder clientBuilder = HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.of(http.getConnectionRequestTimeout()))
+                .build())
+            .setKeepAliveStrategy((response, context) -> TimeValue.of(http.getKeepAlive()))
+            .evictIdleConnections(TimeValue.of(http.getKeepAlive()))
+            .evictExpiredConnections();
+        if (!http.isGzip()) {
+            // Content compression (Accept-Encoding: gzip + transparent decoding) is on by default
+            clientBuilder.disableContentCompression();
+        }
+        httpClient = clientBuilder.build();
+        
+        for (OllamaOperation operation : OllamaOperation.values()) {
+            HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+            requestFactory.setReadTimeout(properties.getTimeouts().forOperation(operation));
+            restTemplates.put(operation, new RestTemplate(requestFactory));
+        }
+        
+        streamingConnections = ConnectionProvider.builder("ollama-streaming")
+            .maxConnections(http.getMaxConnections())
+            .maxIdleTime(http.getKeepAlive())
+            .pendingAcquireTimeout(http.getConnectionRequestTimeout())
+            .build();
+        HttpClient streamingClient = HttpClient.create(streamingConnections)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) http.getConnectTimeout().toMillis())
+            .responseTimeout(properties.getTimeouts().getStreaming())
+            .keepAlive(true)
+            .compress(http.isGzip());
+        webClient = webClientBuilder
+            .clientConnector(new ReactorClientHttpConnector(streamingClient))
+            .build();
+    }
+    
+    /**
+     * Blocking client configured with the timeout for the given operation
+     */
+    public RestTemplate restTemplate(OllamaOperation operation) {
+        return restTemplates.get(operation);
+    }
+    
+    /**
+     * Non-blocking client for streamed responses
+     */
+    public WebClient webClient() {
+        return webClient;
+    }
+    
+    /**
+     * Pool utilisation of the blocking client: leased, available, pending and max connections
+     */
+    public PoolStats poolStats() {
+        return connectionManager.getTotalStats();
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        poolGauge(registry, "ollama.http.pool.leased", "Connections to Ollama currently in use", PoolStats::getLeased);
+        poolGauge(registry, "ollama.http.pool.available", "Idle keep-alive connections to Ollama", PoolStats::getAvailable);
+        poolGauge(registry, "ollama.http.pool.pending", "Requests waiting for a connection to Ollama", PoolStats::getPending);
+        poolGauge(registry, "ollama.http.pool.max", "Maximum connections to Ollama", PoolStats::getMax);
+    }
+    
+    private void poolGauge(MeterRegistry registry, String name, String description, ToDoubleFunction<PoolStats> value) {
+        Gauge.builder(name, this, transport -> value.applyAsDouble(transport.poolStats()))
+            .description(description)
+            .register(registry);
+    }
+    
+    @PreDestroy
+    public void close() {
+        httpClient.close(CloseMode.GRACEFUL);
+        streamingConnections.dispose();
+    }
+}
@@ -0,0 +1,161 @@
+package com.wethinkcode.demo.infrastructure.ai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.wethinkcode.demo.domain.shared.TriagePriority;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClientRequest;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/**
+ * Non-blocking client for Ollama on the shared WebClient.
+ * Calls wait for the admission gate without holding a thread, hold their slot only while the
+ * HTTP exchange is running and release it when the call completes, fails or is cancelled, so a
+ * doctor who navigates away also stops the generation. Calls that fail before Ollama produced an
+ * answer (connection errors, 5xx, 429) are retried with jittered exponential backoff.
+ */
+@Service
+@Slf4j
+public class ReactiveLlamaAiService {
+    
+    private final OllamaTransport ollamaTransport;
+    private final OllamaResponseCache responseCache;
+    private final OllamaAdmissionGate admissionGate;
+    private final OllamaProperties properties;
+    private final OllamaMetrics metrics;
+    
+    public ReactiveLlamaAiService(
+            OllamaTransport ollamaTransport,
+            OllamaResponseCache responseCache,
+            OllamaAdmissionGate admissionGate,
+            OllamaProperties properties,
+            OllamaMetrics metrics) {
+        this.ollamaTransport = ollamaTransport;
+        this.responseCache = responseCache;
+        this.admissionGate = admissionGate;
+        this.properties = properties;
+        this.metrics = metrics;
+    }
+    
+    /**
+     * Generates a simplified patient-friendly summary from a SOAP note
+     */
+    public Mono<String> generatePatientSummary(String soapNote, TriagePriority priority) {
+        return generate(OllamaOperation.PATIENT_SUMMARY, priority, OllamaPrompts.patientSummary(soapNote), true);
+    }
+    
+    /**
+     * Extracts prescription details from a SOAP note
+     */
+    public Mono<String> extractPrescription(String soapNote, TriagePriority priority) {
+        return generate(OllamaOperation.PRESCRIPTION, priority, OllamaPrompts.prescription(soapNote), true);
+    }
+    
+    /**
+     * Streams a structured SOAP note token by token as Ollama produces it.
+     * Tokens are only read from the connection as fast as the subscriber requests them.
+     * Nothing is retried once the first token has been emitted.
+     */
+    public Flux<String> streamSoapNote(String roughNotes, TriagePriority priority) {
+        Map<String, Object> requestBody = OllamaPrompts.requestBody(OllamaPrompts.soapNote(roughNotes), true);
+        
+        return Flux.defer(() -> {
+            AtomicBoolean started = new AtomicBoolean();
+            return Flux.usingWhen(
+                    admissionGate.admit(priority),
+                    permit -> timed(OllamaOperation.STREAMING, post(requestBody, properties.getTimeouts().getStreaming())
+                            .bodyToFlux(JsonNode.class)
+                            .takeUntil(chunk -> chunk.path("done").asBoolean(false)))
+                        .map(chunk -> chunk.path("response").asText(""))
+                        .filter(token -> !token.isEmpty()),
+                    permit -> Mono.fromRunnable(permit::close))
+                .doOnNext(token -> started.set(true))
+                .retryWhen(retry(OllamaOperation.STREAMING, failure -> !started.get() && isTransient(failure)));
+        })
+        .doOnError(e -> log.error("Error streaming from Ollama API", e));
+    }
+    
+    /**
+     * One non-streamed generation. Cacheable calls are answered from the response cache when the
+     * same request was seen before; only calls that actually reach Ollama go through the gate.
+     */
+    private Mono<String> generate(OllamaOperation operation, TriagePriority priority, String prompt, boolean cacheable) {
+        Map<String, Object> requestBody = OllamaPrompts.requestBody(prompt, false);
+        Duration timeout = properties.getTimeouts().forOperation(operation);
+        
+        Mono<String> call = Mono.usingWhen(
+                admissionGate.admit(priority),
+                permit -> timed(operation, post(requestBody, timeout).bodyToMono(JsonNode.class).flux())
+                    .singleOrEmpty()
+                    .mapNotNull(OllamaPrompts::responseText),
+                permit -> Mono.fromRunnable(permit::close))
+            // Same failure as the blocking client; an error is never cached
+            .switchIfEmpty(Mono.error(() -> OllamaPrompts.noAnswer(operation)))
+            .retryWhen(retry(operation, ReactiveLlamaAiService::isTransient))
+            .doOnError(e -> log.warn("Ollama call for {} failed: {}", operation, e.toString()));
+        
+        return cacheable ? responseCache.getOrCompute(OllamaResponseCache.key(requestBody), call) : call;
+    }
+    
+    private WebClient.ResponseSpec post(Map<String, Object> requestBody, Duration timeout) {
+        return ollamaTransport.webClient().post()
+            .uri(properties.getBaseUrl() + "/api/generate")
+            .contentType(MediaType.APPLICATION_JSON)
+            .httpRequest(request -> {
+                // Longest silence allowed on the connection; a non-streamed answer arrives in one piece at the end
+                HttpClientRequest nettyRequest = request.getNativeRequest();
+                nettyRequest.responseTimeout(timeout);
+            })
+            .bodyValue(requestBody)
+            .retrieve();
+    }
+    
+    /**
+     * Records one exchange with Ollama in {@link OllamaMetrics}; the final chunk carries Ollama's statistics.
+     * An exchange abandoned by the subscriber is recorded as neither success nor failure.
+     */
+    private Flux<JsonNode> timed(OllamaOperation operation, Flux<JsonNode> exchange) {
+        return Flux.defer(() -> {
+            long started = System.nanoTime();
+            AtomicReference<JsonNode> last = new AtomicReference<>();
+            return exchange
+                .doOnNext(last::set)
+                .doOnComplete(() -> metrics.recordSuccess(operation, System.nanoTime() - started, last.get()))
+                .doOnError(e -> metrics.recordFailure(operation, System.nanoTime() - started));
+        });
+    }
+    
+    private Retry retry(OllamaOperation operation, Predicate<Throwable> retryable) {
+        OllamaProperties.Retry settings = properties.getRetry();
+        return Retry.backoff(settings.getMaxAttempts(), settings.getMinBackoff())
+            .maxBackoff(settings.getMaxBackoff())
+            .jitter(settings.getJitter())
+            .filter(retryable)
+            .doBeforeRetry(signal -> log.info("Retrying Ollama call for {} (attempt {}): {}",
+                operation, signal.totalRetries() + 1, signal.failure().toString()))
+            .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+    
+    /**
+     * Failures that a later attempt may not see: the connection failed, or Ollama was overloaded or restarting
+     */
+    private static boolean isTransient(Throwable failure) {
+        if (failure instanceof WebClientRequestException) {
+            return true;
+        }
+        return failure instanceof WebClientResponseException response
+            && (response.getStatusCode().is5xxServerError() || response.getStatusCode().value() == 429);
+    }
+}
@@ -0,0 +1,393 @@
+package com.wethinkcode.demo.infrastructure.journal;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of appointment and medical record state transitions.
+ * <p>
+ * Entries go into fixed-size memory-mapped segment files ({@code segment-<first sequence>.log}),
+ * each as {@code [int length][int CRC32][long sequence][long epoch millis][byte kind][long subject id][UTF-8 state]}.
+ * Appending is a memory copy; durability comes from group commit: every commitInterval one
+ * background fsync covers everything appended since the last one, and completes the futures of all
+ * those appends together. A full segment is synced and a new one started. On startup the journal
+ * is scanned and writing continues after the last intact entry; a torn write at the end is wiped.
+ * <p>
+ * The journal only has to cover what the database may have lost. A checkpoint records the sequence
+ * up to which the database is known to hold every transition: after startup recovery has committed,
+ * and checkpointDelay after a segment was rolled, by when the database has long flushed the commits
+ * journaled in it. Rebuilds start after the checkpoint and segments wholly before it are deleted.
+ */
+@Component
+@Slf4j
+public class ClinicalJournal implements MeterBinder {
+    
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final Duration commitInterval;
+    private final Duration checkpointDelay;
+    
+    private final Object lock = new Object();
+    private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+    private Segment current;
+    private long nextSequence;
+    private boolean closed;
+    
+    private final Object checkpointLock = new Object();
+    private volatile long checkpoint;
+    
+    private FileChannel lockChannel;
+    private FileLock directoryLock;
+    private ScheduledThreadPoolExecutor committer;
+    
+    private final AtomicLong appends = new AtomicLong();
+    private final AtomicLong syncs = new AtomicLong();
+    
+    @Autowired
+    public ClinicalJournal(
+            @Value("${noctor.journal.enabled:false}") boolean enabled,
+            @Value("${noctor.journal.directory:data/journal}") Path directory,
+            @Value("${noctor.journal.segment-size:16MB}") DataSize segmentSize,
+            @Value("${noctor.journal.commit-interval:5ms}") Duration commitInterval,
+            @Value("${noctor.journal.checkpoint-delay:10m}") Duration checkpointDelay) {
+        this(enabled, directory, (int) segmentSize.toBytes(), commitInterval, checkpointDelay);
+    }
+    
+    public ClinicalJournal(boolean enabled, Path directory, int segmentSize, Duration commitInterval) {
+        this(enabled, directory, segmentSize, commitInterval, Duration.ofMinutes(10));
+    }
+    
+    public ClinicalJournal(boolean enabled, Path directory, int segmentSize, Duration commitInterval, Duration checkpointDelay) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.commitInterval = commitInterval;
+        this.checkpointDelay = checkpointDelay;
+        if (!enabled) {
+            return;
+        }
+        
+        try {
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open clinical journal in " + directory, e);
+        }
+    }
+    
+    /**
+     * Start the group commit thread. Appends made before this are synced by the first commit.
+     */
+    @PostConstruct
+    public void start() {
+        if (!enabled || committer != null) {
+            return;
+        }
+        committer = new ScheduledThreadPoolExecutor(1, Thread.ofPlatform().name("journal-commit").daemon().factory());
+        // Checkpoints still waiting for their delay are dropped on close; the next startup recovery covers them
+        committer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        committer.scheduleWithFixedDelay(this::sync,
+            commitInterval.toNanos(), commitInterval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public Path getDirectory() {
+        return directory;
+    }
+    
+    /**
+     * Append a state transition. Returns at once; the future completes with the entry's sequence
+     * number once the group commit that covers it has reached the disk.
+     */
+    public CompletableFuture<Long> append(JournalEntry.Kind kind, long subjectId, String state) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(0L);
+        }
+        byte[] stateBytes = state.getBytes(StandardCharsets.UTF_8);
+        int length = JournalReplay.FIXED_PAYLOAD_BYTES + stateBytes.length;
+        int entrySize = JournalReplay.HEADER_BYTES + length;
+        if (entrySize > segmentSize) {
+            throw new IllegalArgumentException("Journal entry of " + entrySize + " bytes does not fit in a segment");
+        }
+        
+        CompletableFuture<Long> durable = new CompletableFuture<>();
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Clinical journal is closed");
+            }
+            if (current.position + entrySize > segmentSize) {
+                roll();
+            }
+            long sequence = nextSequence++;
+            byte[] payload = ByteBuffer.allocate(length)
+                .putLong(sequence)
+                .putLong(System.currentTimeMillis())
+                .put((byte) kind.ordinal())
+                .putLong(subjectId)
+                .put(stateBytes)
+                .array();
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            
+            int at = current.position;
+            current.buffer.putInt(at + Integer.BYTES, (int) crc.getValue());
+            current.buffer.put(at + JournalReplay.HEADER_BYTES, payload);
+            // The length goes in last: until then a reader sees the end marker (0) here
+            current.buffer.putInt(at, length);
+            current.position += entrySize;
+            pending.add(new Pending(sequence, durable));
+        }
+        appends.incrementAndGet();
+        return durable;
+    }
+    
+    /**
+     * Replay the journal after the checkpoint into the latest state per appointment and medical record
+     */
+    public JournalReplay.State rebuildState() throws IOException {
+        sync();
+        return JournalReplay.rebuild(directory, checkpoint);
+    }
+    
+    /**
+     * Record that the database holds every transition up to and including this sequence.
+     * Segments holding nothing after it are deleted. A checkpoint never moves backwards.
+     */
+    public void checkpoint(long sequence) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (checkpointLock) {
+            if (sequence <= checkpoint) {
+                return;
+            }
+            try {
+                Path written = directory.resolve(JournalReplay.CHECKPOINT_FILE + ".tmp");
+                Files.writeString(written, Long.toString(sequence), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+                Files.move(written, directory.resolve(JournalReplay.CHECKPOINT_FILE),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                checkpoint = sequence;
+                deleteSegmentsUpTo(sequence);
+            } catch (IOException e) {
+                log.warn("Could not checkpoint clinical journal at sequence {}: {}", sequence, e.getMessage());
+            }
+        }
+    }
+    
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+    
+    public long appendCount() {
+        return appends.get();
+    }
+    
+    public long syncCount() {
+        return syncs.get();
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("journal.appends", appends, AtomicLong::get)
+            .description("State transitions written to the clinical journal")
+            .register(registry);
+        FunctionCounter.builder("journal.syncs", syncs, AtomicLong::get)
+            .description("Group commits (fsyncs) of the clinical journal")
+            .register(registry);
+    }
+    
+    @PreDestroy
+    public void close() {
+        if (!enabled) {
+            return;
+        }
+        if (committer != null) {
+            committer.shutdown();
+            try {
+                committer.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        sync();
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                current.channel.close();
+                directoryLock.release();
+                lockChannel.close();
+            } catch (IOException e) {
+                log.warn("Could not close clinical journal: {}", e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * fsync everything appended since the last group commit and complete its futures
+     */
+    void sync() {
+        Segment segment;
+        int from;
+        int to;
+        List<Pending> batch;
+        synchronized (lock) {
+            if (pending.isEmpty() || closed) {
+                return;
+            }
+            segment = current;
+            from = segment.synced;
+            to = segment.position;
+            segment.synced = to;
+            batch = new ArrayList<>(pending);
+            pending.clear();
+        }
+        
+        try {
+            segment.buffer.force(from, to - from);
+            syncs.incrementAndGet();
+            batch.forEach(entry -> entry.durable().complete(entry.sequence()));
+        } catch (UncheckedIOException e) {
+            log.error("Clinical journal fsync failed: {}", e.getMessage());
+            batch.forEach(entry -> entry.durable().completeExceptionally(e));
+        }
+    }
+    
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        lockChannel = FileChannel.open(directory.resolve("journal.lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        directoryLock = lockChannel.tryLock();
+        if (directoryLock == null) {
+            lockChannel.close();
+            throw new IOException("journal is in use by another process");
+        }
+        
+        checkpoint = JournalReplay.checkpoint(directory);
+        List<Path> segments = JournalReplay.segments(directory);
+        long lastSequence = 0;
+        for (Path segment : segments.subList(0, Math.max(0, segments.size() - 1))) {
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                lastSequence = JournalReplay.scan(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), lastSequence, entry -> { }).lastSequence();
+            }
+        }
+        
+        if (segments.isEmpty()) {
+            current = Segment.open(directory, 1, segmentSize);
+        } else {
+            current = Segment.open(segments.get(segments.size() - 1), segmentSize);
+            JournalReplay.Scan scan = JournalReplay.scan(current.buffer, lastSequence, entry -> { });
+            lastSequence = scan.lastSequence();
+            current.position = scan.end();
+            current.synced = scan.end();
+            if (!scan.complete()) {
+                log.warn("Discarding torn entry at offset {} of {}", scan.end(), current.file);
+                wipeFrom(current, scan.end());
+            }
+        }
+        nextSequence = lastSequence + 1;
+        log.info("Clinical journal opened in {} at sequence {} (checkpoint {})", directory, nextSequence, checkpoint);
+    }
+    
+    private void roll() {
+        try {
+            current.buffer.force();
+            current.channel.close();
+            current = Segment.open(directory, nextSequence, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not start a new journal segment", e);
+        }
+        long rolledUpTo = nextSequence - 1;
+        if (committer != null && checkpointDelay.isPositive()) {
+            committer.schedule(() -> checkpoint(rolledUpTo), checkpointDelay.toNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+    
+    /**
+     * Delete every segment whose entries all lie at or before the sequence; the segment being written is kept
+     */
+    private void deleteSegmentsUpTo(long sequence) throws IOException {
+        List<Path> segments = JournalReplay.segments(directory);
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (JournalReplay.firstSequence(segments.get(i + 1)) - 1 > sequence) {
+                break;
+            }
+            Files.delete(segments.get(i));
+            log.debug("Deleted checkpointed journal segment {}", segments.get(i));
+        }
+    }
+    
+    private static void wipeFrom(Segment segment, int offset) {
+        byte[] zeros = new byte[Math.min(64 * 1024, segment.buffer.limit() - offset)];
+        for (int at = offset; at < segment.buffer.limit(); at += zeros.length) {
+            segment.buffer.put(at, zeros, 0, Math.min(zeros.length, segment.buffer.limit() - at));
+        }
+        segment.buffer.force();
+    }
+    
+    private record Pending(long sequence, CompletableFuture<Long> durable) {
+    }
+    
+    /**
+     * A mapped segment file and how far it has been written and synced
+     */
+    private static final class Segment {
+        
+        private final Path file;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int position;
+        private int synced;
+        
+        private Segment(Path file, FileChannel channel, MappedByteBuffer buffer) {
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+        
+        static Segment open(Path directory, long firstSequence, int size) throws IOException {
+            String name = String.format("%s%020d%s", JournalReplay.SEGMENT_PREFIX, firstSequence, JournalReplay.SEGMENT_SUFFIX);
+            return open(directory.resolve(name), size);
+        }
+        
+        static Segment open(Path file, int size) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            int mappedSize = (int) Math.max(size, channel.size());
+            return new Segment(file, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, mappedSize));
+        }
+    }
+}
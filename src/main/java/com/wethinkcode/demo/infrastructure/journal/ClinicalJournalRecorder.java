@@ -0,0 +1,63 @@
+package com.wethinkcode.demo.infrastructure.journal;
+
+import com.wethinkcode.demo.domain.shared.AppointmentStatusChangedEvent;
+import com.wethinkcode.demo.domain.shared.AppointmentsImportedEvent;
+import com.wethinkcode.demo.domain.shared.MedicalRecordChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Writes committed appointment and medical record changes to the {@link ClinicalJournal}.
+ * <p>
+ * The journal is written after the database commit, not ahead of it: a rolled-back transaction
+ * never reaches the journal, but a crash between the commit and the append loses that entry.
+ * What the journal adds is a copy that is fsynced within a few milliseconds, sooner than the
+ * database flushes a commit it has already acknowledged. Signing a record waits for the group
+ * commit that makes its entry durable; everything else is journaled without waiting.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ClinicalJournalRecorder {
+    
+    static final String DRAFT = "DRAFT";
+    static final String SIGNED = "SIGNED";
+    private static final long SIGN_DURABILITY_TIMEOUT_MS = 1000;
+    
+    private final ClinicalJournal journal;
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentStatusChanged(AppointmentStatusChangedEvent event) {
+        if (journal.isEnabled() && event.appointmentId() != null && event.status() != null) {
+            journal.append(JournalEntry.Kind.APPOINTMENT, event.appointmentId(), event.status().name());
+        }
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentsImported(AppointmentsImportedEvent event) {
+        event.changes().forEach(this::onAppointmentStatusChanged);
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMedicalRecordChanged(MedicalRecordChangedEvent event) {
+        if (!journal.isEnabled() || event.recordId() == null) {
+            return;
+        }
+        var durable = journal.append(JournalEntry.Kind.MEDICAL_RECORD, event.recordId(), event.signed() ? SIGNED : DRAFT);
+        if (event.signed()) {
+            try {
+                durable.get(SIGN_DURABILITY_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException e) {
+                log.error("Signature of medical record {} is committed but not yet in the journal: {}", event.recordId(), e.toString());
+            }
+        }
+    }
+}
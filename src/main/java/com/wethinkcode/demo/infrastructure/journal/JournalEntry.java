@@ -0,0 +1,15 @@
+package com.wethinkcode.demo.infrastructure.journal;
+
+import java.time.Instant;
+
+/**
+ * One state transition in the clinical journal: which appointment or medical record changed,
+ * and the state it moved to (an appointment status, or DRAFT/SIGNED for a record)
+ */
+public record JournalEntry(long sequence, Instant timestamp, Kind kind, long subjectId, String state) {
+    
+    public enum Kind {
+        APPOINTMENT,
+        MEDICAL_RECORD
+    }
+}
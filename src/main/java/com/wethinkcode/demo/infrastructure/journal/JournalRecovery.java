@@ -0,0 +1,86 @@
+package com.wethinkcode.demo.infrastructure.journal;
+
+import com.wethinkcode.demo.domain.shared.AppointmentStatus;
+import com.wethinkcode.demo.domain.shared.AppointmentStatusChangedEvent;
+import com.wethinkcode.demo.domain.shared.MedicalRecordChangedEvent;
+import com.wethinkcode.demo.infrastructure.persistence.AppointmentRepository;
+import com.wethinkcode.demo.infrastructure.persistence.MedicalRecordRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Brings the database back in line with the journal on startup.
+ * Entries are appended after the database commit (see {@link ClinicalJournalRecorder}) and synced
+ * every few milliseconds, while the database may lose commits it had acknowledged but not yet
+ * written out when it crashed. Any appointment the journal saw COMPLETED and any record it saw
+ * SIGNED is therefore completed or signed again. A transition lost in the gap between commit and
+ * append is in neither place and cannot be recovered. Replay only moves rows forward: it never
+ * reopens an appointment or unsigns a record. Each repaired row publishes the same event a normal
+ * completion or signature would, so the patient summary and other listeners catch up once the
+ * repair commits. Once the repair has committed the journal is checkpointed, so the next startup
+ * only replays what was journaled after this one. Runs before the triage queue is loaded.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class JournalRecovery {
+    
+    private final ClinicalJournal journal;
+    private final AppointmentRepository appointmentRepository;
+    private final MedicalRecordRepository medicalRecordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void recoverOnStartup() throws IOException {
+        if (journal.isEnabled()) {
+            JournalReplay.State state = journal.rebuildState();
+            recover(state);
+            journal.checkpoint(state.lastSequence());
+        }
+    }
+    
+    /**
+     * Apply completions and signatures from the journal that the database is missing
+     *
+     * @return the number of rows that had to be repaired
+     */
+    public int recover(JournalReplay.State state) {
+        Integer repaired = transactionTemplate.execute(status -> {
+            int rows = 0;
+            for (Map.Entry<Long, String> appointment : state.appointments().entrySet()) {
+                if (AppointmentStatus.COMPLETED.name().equals(appointment.getValue())
+                        && appointmentRepository.markCompleted(appointment.getKey()) > 0) {
+                    eventPublisher.publishEvent(new AppointmentStatusChangedEvent(
+                        appointment.getKey(), null, AppointmentStatus.COMPLETED));
+                    rows++;
+                }
+            }
+            for (Map.Entry<Long, String> record : state.medicalRecords().entrySet()) {
+                if (ClinicalJournalRecorder.SIGNED.equals(record.getValue())
+                        && medicalRecordRepository.markSigned(record.getKey()) > 0) {
+                    Long appointmentId = medicalRecordRepository.findAppointmentIdById(record.getKey()).orElse(null);
+                    eventPublisher.publishEvent(new MedicalRecordChangedEvent(record.getKey(), appointmentId, true));
+                    rows++;
+                }
+            }
+            return rows;
+        });
+        if (repaired != null && repaired > 0) {
+            log.warn("Restored {} completion(s)/signature(s) from the clinical journal (up to sequence {})",
+                repaired, state.lastSequence());
+        }
+        return repaired == null ? 0 : repaired;
+    }
+}
@@ -0,0 +1,200 @@
+package com.wethinkcode.demo.infrastructure.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Reads journal segments back in sequence order.
+ * Used by {@link ClinicalJournal} to find where to continue after a restart, by
+ * {@link JournalRecovery} to rebuild state after a crash, and from the command line:
+ * {@code java -cp app.jar com.wethinkcode.demo.infrastructure.journal.JournalReplay data/journal}
+ * prints every entry followed by the rebuilt state and the checkpoint.
+ */
+public final class JournalReplay {
+    
+    static final String SEGMENT_PREFIX = "segment-";
+    static final String SEGMENT_SUFFIX = ".log";
+    /** Holds the sequence up to which the database is known to have every transition */
+    static final String CHECKPOINT_FILE = "checkpoint";
+    /** [int payload length][int CRC32 of payload] */
+    static final int HEADER_BYTES = 2 * Integer.BYTES;
+    /** [long sequence][long epoch millis][byte kind][long subject id], followed by the UTF-8 state */
+    static final int FIXED_PAYLOAD_BYTES = 3 * Long.BYTES + 1;
+    
+    private JournalReplay() {
+    }
+    
+    /**
+     * Latest journaled state of every appointment and medical record
+     */
+    public record State(Map<Long, String> appointments, Map<Long, String> medicalRecords, long lastSequence) {
+    }
+    
+    /**
+     * Result of scanning one segment: the offset just past its last intact entry and that entry's sequence
+     */
+    record Scan(int end, long lastSequence, boolean complete) {
+    }
+    
+    /**
+     * Feed every intact entry to the consumer, oldest first. Stops at the first torn or corrupt entry,
+     * since nothing after it can be trusted to be in order.
+     *
+     * @return the sequence of the last entry replayed, or 0 for an empty journal
+     */
+    public static long replay(Path directory, Consumer<JournalEntry> consumer) throws IOException {
+        return replay(directory, 0, consumer);
+    }
+    
+    /**
+     * Feed every intact entry after the given sequence to the consumer, oldest first.
+     * Segments that end at or before that sequence are not read at all.
+     *
+     * @return the sequence of the last entry in the journal, or 0 for an empty journal
+     */
+    public static long replay(Path directory, long afterSequence, Consumer<JournalEntry> consumer) throws IOException {
+        Consumer<JournalEntry> newer = entry -> {
+            if (entry.sequence() > afterSequence) {
+                consumer.accept(entry);
+            }
+        };
+        List<Path> segments = segments(directory);
+        long lastSequence = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            Path segment = segments.get(i);
+            if (i + 1 < segments.size() && firstSequence(segments.get(i + 1)) - 1 <= afterSequence) {
+                lastSequence = firstSequence(segments.get(i + 1)) - 1;
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                Scan scan = scan(buffer, lastSequence, newer);
+                lastSequence = scan.lastSequence();
+                if (!scan.complete()) {
+                    break;
+                }
+            }
+        }
+        return lastSequence;
+    }
+    
+    /**
+     * Replay the journal into the latest state per appointment and medical record
+     */
+    public static State rebuild(Path directory) throws IOException {
+        return rebuild(directory, 0);
+    }
+    
+    /**
+     * Replay the entries after the given sequence into the latest state per appointment and medical record
+     */
+    public static State rebuild(Path directory, long afterSequence) throws IOException {
+        Map<Long, String> appointments = new HashMap<>();
+        Map<Long, String> medicalRecords = new HashMap<>();
+        long lastSequence = replay(directory, afterSequence, entry -> {
+            switch (entry.kind()) {
+                case APPOINTMENT -> appointments.put(entry.subjectId(), entry.state());
+                case MEDICAL_RECORD -> medicalRecords.put(entry.subjectId(), entry.state());
+            }
+        });
+        return new State(appointments, medicalRecords, lastSequence);
+    }
+    
+    /**
+     * Segment files in the order they were written
+     */
+    static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                    && file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                .sorted()
+                .toList();
+        }
+    }
+    
+    /**
+     * Sequence of the first entry in a segment, taken from its file name
+     */
+    static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+    
+    /**
+     * The recorded checkpoint, or 0 if none was recorded yet
+     */
+    static long checkpoint(Path directory) throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        return Files.exists(file) ? Long.parseLong(Files.readString(file).trim()) : 0;
+    }
+    
+    /**
+     * Read entries from the start of a segment until the end marker (a zero length) or the first bad entry.
+     * complete is false when a bad entry was found, i.e. the segment ends in a torn write.
+     */
+    static Scan scan(ByteBuffer segment, long previousSequence, Consumer<JournalEntry> consumer) {
+        int position = 0;
+        long lastSequence = previousSequence;
+        while (position + HEADER_BYTES <= segment.limit()) {
+            int length = segment.getInt(position);
+            if (length == 0) {
+                return new Scan(position, lastSequence, true);
+            }
+            if (length < FIXED_PAYLOAD_BYTES || position + HEADER_BYTES + length > segment.limit()) {
+                return new Scan(position, lastSequence, false);
+            }
+            byte[] payload = new byte[length];
+            segment.get(position + HEADER_BYTES, payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != segment.getInt(position + Integer.BYTES)) {
+                return new Scan(position, lastSequence, false);
+            }
+            
+            ByteBuffer fields = ByteBuffer.wrap(payload);
+            long sequence = fields.getLong();
+            if (sequence != lastSequence + 1 && lastSequence != 0) {
+                return new Scan(position, lastSequence, false);
+            }
+            Instant timestamp = Instant.ofEpochMilli(fields.getLong());
+            int kind = fields.get();
+            if (kind < 0 || kind >= JournalEntry.Kind.values().length) {
+                return new Scan(position, lastSequence, false);
+            }
+            long subjectId = fields.getLong();
+            String state = new String(payload, FIXED_PAYLOAD_BYTES, length - FIXED_PAYLOAD_BYTES, StandardCharsets.UTF_8);
+            consumer.accept(new JournalEntry(sequence, timestamp, JournalEntry.Kind.values()[kind], subjectId, state));
+            
+            lastSequence = sequence;
+            position += HEADER_BYTES + length;
+        }
+        return new Scan(position, lastSequence, true);
+    }
+    
+    public static void main(String[] args) throws IOException {
+        Path directory = Path.of(args.length > 0 ? args[0] : "data/journal");
+        replay(directory, entry -> System.out.printf("%10d  %s  %-14s %8d  %s%n",
+            entry.sequence(), entry.timestamp(), entry.kind(), entry.subjectId(), entry.state()));
+        State state = rebuild(directory);
+        System.out.printf("Last sequence %d, checkpoint %d: %d appointments, %d medical records (%d signed)%n",
+            state.lastSequence(), checkpoint(directory), state.appointments().size(), state.medicalRecords().size(),
+            state.medicalRecords().values().stream().filter("SIGNED"::equals).count());
+    }
+}
@@ -2,14 +2,85 @@ package com.wethinkcode.demo.infrastructure.persistence;
 
 import com.wethinkcode.demo.domain.shared.Appointment;
 import com.wethinkcode.demo.domain.shared.AppointmentStatus;
+import com.wethinkcode.demo.domain.shared.AppointmentView;
+import com.wethinkcode.demo.domain.shared.PatientHistoryEntry;
+import com.wethinkcode.demo.domain.shared.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
+    
+    String VIEW_SELECT = "select new com.wethinkcode.demo.domain.shared.AppointmentView("
+        + "a.id, p.id, p.name, d.id, d.name, a.triagePriority, a.status) "
+        + "from Appointment a join a.patient p left join a.doctor d ";
+    
     List<Appointment> findByStatus(AppointmentStatus status);
     List<Appointment> findByDoctorId(Long doctorId);
     List<Appointment> findByPatientId(Long patientId);
+    
+    @Query("select a from Appointment a join fetch a.patient left join fetch a.doctor where a.id = :id")
+    Optional<Appointment> findWithPeopleById(@Param("id") Long id);
+    
+    @Query(VIEW_SELECT + "where a.id in :ids")
+    List<AppointmentView> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query(VIEW_SELECT + "where d.id = :doctorId order by a.id")
+    List<AppointmentView> findViewsByDoctorId(@Param("doctorId") Long doctorId);
+    
+    @Query(VIEW_SELECT + "where d.id = :doctorId and a.id > :afterId order by a.id")
+    List<AppointmentView> findViewsByDoctorIdAfter(@Param("doctorId") Long doctorId, @Param("afterId") Long afterId, Limit limit);
+    
+    /**
+     * A page of a patient's history, newest first: appointments older than beforeId, each with its
+     * record header (keyset pagination on the (patient_id, id) index)
+     */
+    @Query("select new com.wethinkcode.demo.domain.shared.PatientHistoryEntry("
+        + "a.id, d.id, d.name, a.triagePriority, a.status, a.completedAt, "
+        + "r.id, r.isSigned, coalesce(r.hasPrescription, false)) "
+        + "from Appointment a left join a.doctor d left join MedicalRecord r on r.appointmentId = a.id "
+        + "where a.patient.id = :patientId and a.id < :beforeId order by a.id desc")
+    List<PatientHistoryEntry> findHistoryPage(@Param("patientId") Long patientId, @Param("beforeId") Long beforeId, Limit limit);
+    
+    @Query("select a.patient.id from Appointment a where a.id = :id")
+    Optional<Long> findPatientIdById(@Param("id") Long id);
+    
+    /**
+     * Stamp a completed appointment the first time it is seen; 0 rows means it was already counted
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Appointment a set a.completedAt = :at where a.id = :id "
+        + "and a.status = com.wethinkcode.demo.domain.shared.AppointmentStatus.COMPLETED and a.completedAt is null")
+    int stampCompleted(@Param("id") Long id, @Param("at") LocalDateTime at);
+    
+    /**
+     * Assign the doctor only if the appointment is still in the expected status.
+     * The check and the write are one statement, so of several concurrent claims exactly one
+     * updates the row; the others see 0 rows updated.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Appointment a set a.doctor = :doctor, a.status = :newStatus, a.version = a.version + 1 "
+        + "where a.id = :id and a.status = :expectedStatus")
+    int claim(@Param("id") Long id,
+              @Param("doctor") User doctor,
+              @Param("expectedStatus") AppointmentStatus expectedStatus,
+              @Param("newStatus") AppointmentStatus newStatus);
+    
+    /**
+     * Mark the appointment COMPLETED without publishing events (journal recovery publishes them itself)
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Appointment a set a.status = com.wethinkcode.demo.domain.shared.AppointmentStatus.COMPLETED, "
+        + "a.version = a.version + 1 "
+        + "where a.id = :id and a.status <> com.wethinkcode.demo.domain.shared.AppointmentStatus.COMPLETED")
+    int markCompleted(@Param("id") Long id);
 }
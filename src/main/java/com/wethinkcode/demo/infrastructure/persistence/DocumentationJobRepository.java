@@ -0,0 +1,17 @@
+package com.wethinkcode.demo.infrastructure.persistence;
+
+import com.wethinkcode.demo.domain.shared.DocumentationJob;
+import com.wethinkcode.demo.domain.shared.DocumentationJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DocumentationJobRepository extends JpaRepository<DocumentationJob, Long> {
+    Optional<DocumentationJob> findFirstByAppointmentIdOrderByIdDesc(Long appointmentId);
+    Optional<DocumentationJob> findFirstByAppointmentIdAndStatusInOrderByIdDesc(Long appointmentId, Collection<DocumentationJobStatus> statuses);
+    List<DocumentationJob> findByStatusIn(Collection<DocumentationJobStatus> statuses);
+}
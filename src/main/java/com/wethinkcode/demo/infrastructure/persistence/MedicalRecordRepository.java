@@ -1,12 +1,63 @@
 package com.wethinkcode.demo.infrastructure.persistence;
 
 import com.wethinkcode.demo.domain.shared.MedicalRecord;
+import com.wethinkcode.demo.domain.shared.MedicalRecordHeader;
+import com.wethinkcode.demo.domain.shared.MedicalRecordText;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface MedicalRecordRepository extends JpaRepository<MedicalRecord, Long> {
+    
+    String TEXT_SELECT = "select new com.wethinkcode.demo.domain.shared.MedicalRecordText("
+        + "r.id, r.appointmentId, r.soapNote, r.patientSummary, r.prescription, r.isSigned, r.createdAt) "
+        + "from MedicalRecord r ";
+    
     Optional<MedicalRecord> findByAppointmentId(Long appointmentId);
+    
+    @Query("select new com.wethinkcode.demo.domain.shared.MedicalRecordHeader("
+        + "r.id, r.appointmentId, r.isSigned, r.hasPrescription) "
+        + "from MedicalRecord r where r.appointmentId in :appointmentIds")
+    List<MedicalRecordHeader> findHeadersByAppointmentIdIn(@Param("appointmentIds") Collection<Long> appointmentIds);
+    
+    @Query("select r.appointmentId from MedicalRecord r where r.id = :id")
+    Optional<Long> findAppointmentIdById(@Param("id") Long id);
+    
+    @Query(TEXT_SELECT + "where r.id = :id")
+    Optional<MedicalRecordText> findTextById(@Param("id") Long id);
+    
+    /**
+     * Next page of record texts in id order (keyset pagination)
+     */
+    @Query(TEXT_SELECT + "where r.id > :afterId order by r.id")
+    List<MedicalRecordText> findTextsAfter(@Param("afterId") Long afterId, Limit limit);
+    
+    /**
+     * Next page of record texts changed since the given time, in id order
+     */
+    @Query(TEXT_SELECT + "where r.updatedAt >= :since and r.id > :afterId order by r.id")
+    List<MedicalRecordText> findTextsUpdatedSince(@Param("since") LocalDateTime since, @Param("afterId") Long afterId, Limit limit);
+    
+    /**
+     * Stamp a signed record the first time it is seen; 0 rows means it was already counted
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update MedicalRecord r set r.signedAt = :at where r.id = :id and r.isSigned = true and r.signedAt is null")
+    int stampSigned(@Param("id") Long id, @Param("at") LocalDateTime at);
+    
+    /**
+     * Mark the record signed without publishing events (journal recovery publishes them itself)
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update MedicalRecord r set r.isSigned = true, r.updatedAt = local datetime where r.id = :id and r.isSigned = false")
+    int markSigned(@Param("id") Long id);
 }
@@ -0,0 +1,24 @@
+package com.wethinkcode.demo.infrastructure.persistence;
+
+import com.wethinkcode.demo.domain.shared.PatientSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface PatientSummaryRepository extends JpaRepository<PatientSummary, Long> {
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update PatientSummary s set s.visitCount = s.visitCount + 1, "
+        + "s.lastVisitAt = case when s.lastVisitAt is null or s.lastVisitAt < :at then :at else s.lastVisitAt end "
+        + "where s.patientId = :patientId")
+    int addVisit(@Param("patientId") Long patientId, @Param("at") LocalDateTime at);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update PatientSummary s set s.prescriptionsIssued = s.prescriptionsIssued + 1 where s.patientId = :patientId")
+    int addPrescription(@Param("patientId") Long patientId);
+}
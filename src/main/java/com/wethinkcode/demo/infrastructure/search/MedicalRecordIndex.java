@@ -0,0 +1,652 @@
+package com.wethinkcode.demo.infrastructure.search;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wethinkcode.demo.domain.shared.MedicalRecordText;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over medical record texts, ranked with BM25.
+ * <p>
+ * Each SOAP section, the patient summary and the prescription is indexed as its own field
+ * with its own postings and length statistics, and a field's BM25 score is multiplied by its
+ * boost, so a term in the assessment counts for more than the same term in the subjective
+ * history. SOAP notes that are not JSON are indexed whole as {@link Field#NOTE}.
+ * <p>
+ * Records are added and replaced one at a time. A replaced record leaves a dead document
+ * behind that searches skip; once dead documents make up a quarter of the index it is compacted.
+ * Queries only touch the postings of their terms, never every record.
+ */
+public class MedicalRecordIndex {
+    
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int SNAPSHOT_MAGIC = 0x4E4F4958;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int MIN_DEAD_TO_COMPACT = 1024;
+    private static final Set<String> STOPWORDS = Set.of(
+        "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "has", "have", "in", "is",
+        "it", "of", "on", "or", "the", "to", "was", "were", "with");
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final Field[] FIELDS = Field.values();
+    
+    /**
+     * Indexed fields and how much a match in each one counts
+     */
+    public enum Field {
+        SUBJECTIVE(1.0f),
+        OBJECTIVE(1.0f),
+        ASSESSMENT(3.0f),
+        PLAN(1.5f),
+        NOTE(1.0f),
+        SUMMARY(0.5f),
+        PRESCRIPTION(1.0f);
+        
+        private final float boost;
+        
+        Field(float boost) {
+            this.boost = boost;
+        }
+        
+        public float boost() {
+            return boost;
+        }
+        
+        static Field byName(String name) {
+            for (Field field : FIELDS) {
+                if (field.name().equalsIgnoreCase(name)) {
+                    return field;
+                }
+            }
+            return null;
+        }
+    }
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Score buffers for searches, reused so a query does not allocate one float per document
+    private final Queue<float[]> scoreBuffers = new ConcurrentLinkedQueue<>();
+    
+    private final List<Map<String, Postings>> postings = new ArrayList<>(FIELDS.length);
+    private final Map<Long, Integer> documentsByRecord = new HashMap<>();
+    private long[] recordIds = new long[1024];
+    private long[] appointmentIds = new long[1024];
+    private int[] createdDays = new int[1024];
+    private int[] textHashes = new int[1024];
+    private int[][] fieldLengths = new int[FIELDS.length][1024];
+    private final long[] totalFieldLengths = new long[FIELDS.length];
+    private BitSet live = new BitSet();
+    private BitSet signed = new BitSet();
+    private int documentCount;
+    private int liveCount;
+    private long modifications;
+    
+    public MedicalRecordIndex() {
+        for (int f = 0; f < FIELDS.length; f++) {
+            postings.add(new HashMap<>());
+        }
+    }
+    
+    /**
+     * Add a record, or replace it if it is already indexed
+     */
+    public void index(MedicalRecordText record) {
+        Map<Field, String> texts = fieldTexts(record);
+        int textHash = texts.hashCode();
+        int createdDay = record.createdAt() != null ? (int) record.createdAt().toLocalDate().toEpochDay() : 0;
+        boolean isSigned = Boolean.TRUE.equals(record.isSigned());
+        
+        // Tokenise outside the lock
+        List<Map<String, Integer>> termFrequencies = new ArrayList<>(FIELDS.length);
+        for (Field field : FIELDS) {
+            Map<String, Integer> frequencies = new HashMap<>();
+            for (String token : tokenize(texts.get(field))) {
+                frequencies.merge(token, 1, Integer::sum);
+            }
+            termFrequencies.add(frequencies);
+        }
+        
+        lock.writeLock().lock();
+        try {
+            modifications++;
+            Integer existing = documentsByRecord.get(record.id());
+            if (existing != null && textHashes[existing] == textHash && createdDays[existing] == createdDay) {
+                // Only the signature changed; the postings are still right
+                signed.set(existing, isSigned);
+                return;
+            }
+            if (existing != null) {
+                kill(existing);
+            }
+            
+            int document = documentCount++;
+            ensureCapacity(documentCount);
+            recordIds[document] = record.id();
+            appointmentIds[document] = record.appointmentId() != null ? record.appointmentId() : 0;
+            createdDays[document] = createdDay;
+            textHashes[document] = textHash;
+            for (int f = 0; f < FIELDS.length; f++) {
+                int length = 0;
+                for (Map.Entry<String, Integer> term : termFrequencies.get(f).entrySet()) {
+                    postings.get(f).computeIfAbsent(term.getKey(), key -> new Postings()).add(document, term.getValue());
+                    length += term.getValue();
+                }
+                fieldLengths[f][document] = length;
+                totalFieldLengths[f] += length;
+            }
+            live.set(document);
+            signed.set(document, isSigned);
+            documentsByRecord.put(record.id(), document);
+            liveCount++;
+            
+            int dead = documentCount - liveCount;
+            if (dead >= MIN_DEAD_TO_COMPACT && dead * 4 > documentCount) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Drop a record from the index
+     */
+    public void remove(Long recordId) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = documentsByRecord.get(recordId);
+            if (existing != null) {
+                modifications++;
+                kill(existing);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Best matching records for a query, highest score first.
+     * Terms may be restricted to one field with {@code field:term}, e.g. {@code assessment:pneumonia}.
+     *
+     * @param from       earliest creation date to include, or null
+     * @param to         latest creation date to include, or null
+     * @param signedOnly only return signed records
+     */
+    public List<Match> search(String query, LocalDate from, LocalDate to, boolean signedOnly, int limit) {
+        List<QueryTerm> terms = parseQuery(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        int fromDay = from != null ? (int) from.toEpochDay() : Integer.MIN_VALUE;
+        int toDay = to != null ? (int) to.toEpochDay() : Integer.MAX_VALUE;
+        
+        lock.readLock().lock();
+        float[] scores = null;
+        int[] touched = new int[64];
+        int touchedCount = 0;
+        try {
+            scores = scoreBuffer(documentCount);
+            
+            for (QueryTerm term : terms) {
+                for (int f = 0; f < FIELDS.length; f++) {
+                    if (term.field() != null && term.field().ordinal() != f) {
+                        continue;
+                    }
+                    Postings termPostings = postings.get(f).get(term.text());
+                    if (termPostings == null) {
+                        continue;
+                    }
+                    // Replaced and removed records stay in the postings until compaction; they must not count
+                    int liveDocuments = termPostings.liveDocuments(live);
+                    if (liveDocuments == 0) {
+                        continue;
+                    }
+                    float idf = (float) Math.log(1 + (liveCount - liveDocuments + 0.5) / (liveDocuments + 0.5));
+                    float weight = FIELDS[f].boost() * Math.max(idf, 0.01f);
+                    float averageLength = Math.max(1f, (float) totalFieldLengths[f] / Math.max(1, liveCount));
+                    int[] lengths = fieldLengths[f];
+                    
+                    for (int i = 0; i < termPostings.size; i++) {
+                        int document = termPostings.documents[i];
+                        if (!live.get(document)
+                                || createdDays[document] < fromDay || createdDays[document] > toDay
+                                || (signedOnly && !signed.get(document))) {
+                            continue;
+                        }
+                        int frequency = termPostings.frequencies[i];
+                        float norm = K1 * (1 - B + B * lengths[document] / averageLength);
+                        if (scores[document] == 0) {
+                            if (touchedCount == touched.length) {
+                                touched = Arrays.copyOf(touched, touchedCount * 2);
+                            }
+                            touched[touchedCount++] = document;
+                        }
+                        scores[document] += weight * frequency * (K1 + 1) / (frequency + norm);
+                    }
+                }
+            }
+            
+            // Keep the best `limit` documents in a min-heap; ties go to the newer record
+            float[] documentScores = scores;
+            Comparator<Integer> worstFirst = Comparator.<Integer>comparingDouble(document -> documentScores[document])
+                .thenComparingLong(document -> recordIds[document]);
+            PriorityQueue<Integer> best = new PriorityQueue<>(worstFirst);
+            for (int i = 0; i < touchedCount; i++) {
+                int document = touched[i];
+                if (best.size() < limit) {
+                    best.add(document);
+                } else if (worstFirst.compare(document, best.peek()) > 0) {
+                    best.poll();
+                    best.add(document);
+                }
+            }
+            
+            Match[] matches = new Match[best.size()];
+            for (int i = matches.length - 1; i >= 0; i--) {
+                int document = best.poll();
+                matches[i] = new Match(recordIds[document], appointmentIds[document],
+                    LocalDate.ofEpochDay(createdDays[document]), signed.get(document), scores[document]);
+            }
+            return List.of(matches);
+        } finally {
+            lock.readLock().unlock();
+            if (scores != null) {
+                for (int i = 0; i < touchedCount; i++) {
+                    scores[touched[i]] = 0;
+                }
+                scoreBuffers.offer(scores);
+            }
+        }
+    }
+    
+    /**
+     * Number of records currently searchable
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Counter that moves on every change, for deciding whether a new snapshot is needed
+     */
+    public long modifications() {
+        lock.readLock().lock();
+        try {
+            return modifications;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Write the index to a file, replacing it atomically. The index is encoded in memory under
+     * the read lock and written to disk after releasing it, so updates do not wait for file I/O.
+     *
+     * @param watermark records changed before this time are known to be in the snapshot
+     */
+    public void writeSnapshot(Path file, LocalDateTime watermark) throws IOException {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream(1 << 16);
+        lock.readLock().lock();
+        try (DataOutputStream out = new DataOutputStream(encoded)) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeUTF(watermark.toString());
+            out.writeInt(FIELDS.length);
+            
+            // Live documents only, renumbered densely
+            int[] renumbered = new int[documentCount];
+            int next = 0;
+            out.writeInt(liveCount);
+            for (int document = 0; document < documentCount; document++) {
+                if (!live.get(document)) {
+                    renumbered[document] = -1;
+                    continue;
+                }
+                renumbered[document] = next++;
+                out.writeLong(recordIds[document]);
+                out.writeLong(appointmentIds[document]);
+                out.writeInt(createdDays[document]);
+                out.writeInt(textHashes[document]);
+                out.writeBoolean(signed.get(document));
+                for (int f = 0; f < FIELDS.length; f++) {
+                    out.writeInt(fieldLengths[f][document]);
+                }
+            }
+            
+            for (int f = 0; f < FIELDS.length; f++) {
+                out.writeInt(postings.get(f).size());
+                for (Map.Entry<String, Postings> term : postings.get(f).entrySet()) {
+                    Postings termPostings = term.getValue();
+                    int liveDocuments = 0;
+                    for (int i = 0; i < termPostings.size; i++) {
+                        if (renumbered[termPostings.documents[i]] >= 0) {
+                            liveDocuments++;
+                        }
+                    }
+                    out.writeUTF(term.getKey());
+                    out.writeInt(liveDocuments);
+                    for (int i = 0; i < termPostings.size; i++) {
+                        int document = renumbered[termPostings.documents[i]];
+                        if (document >= 0) {
+                            out.writeInt(document);
+                            out.writeInt(termPostings.frequencies[i]);
+                        }
+                    }
+                }
+            }
+            out.writeInt(SNAPSHOT_MAGIC);
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temporary)) {
+            encoded.writeTo(out);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    /**
+     * Read an index written by {@link #writeSnapshot}
+     *
+     * @throws IOException if the file is missing, truncated or from another format version
+     */
+    public static Snapshot readSnapshot(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Not a search index snapshot: " + file);
+            }
+            LocalDateTime watermark = LocalDateTime.parse(in.readUTF());
+            if (in.readInt() != FIELDS.length) {
+                throw new IOException("Search index snapshot has different fields: " + file);
+            }
+            
+            MedicalRecordIndex index = new MedicalRecordIndex();
+            int count = in.readInt();
+            index.ensureCapacity(count);
+            for (int document = 0; document < count; document++) {
+                index.recordIds[document] = in.readLong();
+                index.appointmentIds[document] = in.readLong();
+                index.createdDays[document] = in.readInt();
+                index.textHashes[document] = in.readInt();
+                index.signed.set(document, in.readBoolean());
+                for (int f = 0; f < FIELDS.length; f++) {
+                    index.fieldLengths[f][document] = in.readInt();
+                    index.totalFieldLengths[f] += index.fieldLengths[f][document];
+                }
+                index.documentsByRecord.put(index.recordIds[document], document);
+            }
+            index.live.set(0, count);
+            index.documentCount = count;
+            index.liveCount = count;
+            
+            for (int f = 0; f < FIELDS.length; f++) {
+                int terms = in.readInt();
+                for (int t = 0; t < terms; t++) {
+                    String term = in.readUTF();
+                    int size = in.readInt();
+                    Postings termPostings = new Postings(size);
+                    for (int i = 0; i < size; i++) {
+                        termPostings.add(in.readInt(), in.readInt());
+                    }
+                    index.postings.get(f).put(term, termPostings);
+                }
+            }
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Search index snapshot is incomplete: " + file);
+            }
+            return new Snapshot(index, watermark);
+        }
+    }
+    
+    /**
+     * Lower-cased words and numbers, without common English stopwords
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordCharacter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordCharacter && start < 0) {
+                start = i;
+            } else if (!wordCharacter && start >= 0) {
+                String token = text.substring(start, i).toLowerCase(Locale.ROOT);
+                if (!STOPWORDS.contains(token)) {
+                    tokens.add(token);
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+    
+    /**
+     * Split a record into its indexed fields. A SOAP note written as JSON gives one field per
+     * section; anything else is indexed as a single note.
+     */
+    static Map<Field, String> fieldTexts(MedicalRecordText record) {
+        Map<Field, String> texts = new EnumMap<>(Field.class);
+        String soapNote = record.soapNote();
+        if (soapNote != null && !soapNote.isBlank()) {
+            JsonNode sections = parseSections(soapNote);
+            if (sections != null) {
+                texts.put(Field.SUBJECTIVE, sectionText(sections.get("subjective")));
+                texts.put(Field.OBJECTIVE, sectionText(sections.get("objective")));
+                texts.put(Field.ASSESSMENT, sectionText(sections.get("assessment")));
+                texts.put(Field.PLAN, sectionText(sections.get("plan")));
+            } else {
+                texts.put(Field.NOTE, soapNote);
+            }
+        }
+        texts.put(Field.SUMMARY, record.patientSummary());
+        texts.put(Field.PRESCRIPTION, record.prescription());
+        return texts;
+    }
+    
+    private static JsonNode parseSections(String soapNote) {
+        String trimmed = soapNote.trim();
+        if (!trimmed.startsWith("{")) {
+            return null;
+        }
+        try {
+            JsonNode node = JSON.readTree(trimmed);
+            boolean hasSection = node.has("subjective") || node.has("objective") || node.has("assessment") || node.has("plan");
+            return node.isObject() && hasSection ? node : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    
+    private static String sectionText(JsonNode section) {
+        if (section == null || section.isNull()) {
+            return null;
+        }
+        return section.isValueNode() ? section.asText() : section.toString();
+    }
+    
+    private static List<QueryTerm> parseQuery(String query) {
+        List<QueryTerm> terms = new ArrayList<>();
+        if (query == null) {
+            return terms;
+        }
+        for (String part : query.trim().split("\\s+")) {
+            int colon = part.indexOf(':');
+            Field field = colon > 0 ? Field.byName(part.substring(0, colon)) : null;
+            String text = field != null ? part.substring(colon + 1) : part;
+            for (String token : tokenize(text)) {
+                terms.add(new QueryTerm(field, token));
+            }
+        }
+        return terms;
+    }
+    
+    private void kill(int document) {
+        if (!live.get(document)) {
+            return;
+        }
+        live.clear(document);
+        signed.clear(document);
+        for (int f = 0; f < FIELDS.length; f++) {
+            totalFieldLengths[f] -= fieldLengths[f][document];
+        }
+        documentsByRecord.remove(recordIds[document]);
+        liveCount--;
+    }
+    
+    /**
+     * Drop dead documents and renumber the live ones densely
+     */
+    private void compact() {
+        int[] renumbered = new int[documentCount];
+        int next = 0;
+        for (int document = 0; document < documentCount; document++) {
+            if (!live.get(document)) {
+                renumbered[document] = -1;
+                continue;
+            }
+            renumbered[document] = next;
+            recordIds[next] = recordIds[document];
+            appointmentIds[next] = appointmentIds[document];
+            createdDays[next] = createdDays[document];
+            textHashes[next] = textHashes[document];
+            for (int f = 0; f < FIELDS.length; f++) {
+                fieldLengths[f][next] = fieldLengths[f][document];
+            }
+            documentsByRecord.put(recordIds[next], next);
+            next++;
+        }
+        
+        BitSet compactedSigned = new BitSet(next);
+        for (int document = signed.nextSetBit(0); document >= 0; document = signed.nextSetBit(document + 1)) {
+            compactedSigned.set(renumbered[document]);
+        }
+        signed = compactedSigned;
+        live = new BitSet(next);
+        live.set(0, next);
+        
+        for (int f = 0; f < FIELDS.length; f++) {
+            postings.get(f).values().removeIf(termPostings -> termPostings.renumber(renumbered) == 0);
+        }
+        documentCount = next;
+    }
+    
+    private float[] scoreBuffer(int documents) {
+        float[] buffer = scoreBuffers.poll();
+        return buffer != null && buffer.length >= documents ? buffer : new float[Math.max(documents, 1024)];
+    }
+    
+    private void ensureCapacity(int documents) {
+        if (documents <= recordIds.length) {
+            return;
+        }
+        int capacity = Math.max(documents, recordIds.length + (recordIds.length >> 1));
+        recordIds = Arrays.copyOf(recordIds, capacity);
+        appointmentIds = Arrays.copyOf(appointmentIds, capacity);
+        createdDays = Arrays.copyOf(createdDays, capacity);
+        textHashes = Arrays.copyOf(textHashes, capacity);
+        for (int f = 0; f < FIELDS.length; f++) {
+            fieldLengths[f] = Arrays.copyOf(fieldLengths[f], capacity);
+        }
+    }
+    
+    /**
+     * Documents containing one term in one field, in the order they were added
+     */
+    private static final class Postings {
+        
+        private int[] documents;
+        private int[] frequencies;
+        private int size;
+        
+        Postings() {
+            this(4);
+        }
+        
+        Postings(int capacity) {
+            documents = new int[Math.max(capacity, 1)];
+            frequencies = new int[Math.max(capacity, 1)];
+        }
+        
+        void add(int document, int frequency) {
+            if (size == documents.length) {
+                int capacity = size + (size >> 1) + 1;
+                documents = Arrays.copyOf(documents, capacity);
+                frequencies = Arrays.copyOf(frequencies, capacity);
+            }
+            documents[size] = document;
+            frequencies[size] = frequency;
+            size++;
+        }
+        
+        int liveDocuments(BitSet live) {
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (live.get(documents[i])) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        
+        int renumber(int[] renumbered) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int document = renumbered[documents[i]];
+                if (document >= 0) {
+                    documents[kept] = document;
+                    frequencies[kept] = frequencies[i];
+                    kept++;
+                }
+            }
+            size = kept;
+            return kept;
+        }
+    }
+    
+    private record QueryTerm(Field field, String text) {
+    }
+    
+    /**
+     * A record that matched a query
+     */
+    public record Match(long recordId, long appointmentId, LocalDate createdOn, boolean signed, float score) {
+    }
+    
+    /**
+     * An index read from disk, and the time up to which it is complete
+     */
+    public record Snapshot(MedicalRecordIndex index, LocalDateTime watermark) {
+    }
+}
@@ -0,0 +1,17 @@
+package com.wethinkcode.demo.infrastructure.search;
+
+import java.time.LocalDate;
+
+/**
+ * A medical record found by a search, with the patient and doctor it belongs to
+ */
+public record MedicalRecordSearchHit(
+        Long recordId,
+        Long appointmentId,
+        Long patientId,
+        String patientName,
+        String doctorName,
+        LocalDate createdOn,
+        boolean signed,
+        float score) {
+}
@@ -0,0 +1,226 @@
+package com.wethinkcode.demo.infrastructure.search;
+
+import com.wethinkcode.demo.domain.shared.AppointmentView;
+import com.wethinkcode.demo.domain.shared.MedicalRecordChangedEvent;
+import com.wethinkcode.demo.domain.shared.MedicalRecordText;
+import com.wethinkcode.demo.infrastructure.persistence.AppointmentRepository;
+import com.wethinkcode.demo.infrastructure.persistence.MedicalRecordRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Full-text search over medical records.
+ * <p>
+ * The {@link MedicalRecordIndex} is built on startup and then follows
+ * {@link MedicalRecordChangedEvent}s, so records are searchable as soon as they are saved or
+ * signed. With a snapshot directory configured the index is written to disk periodically and on
+ * shutdown; the next start loads the snapshot and only reads the records changed since it was
+ * taken, instead of every record in the database.
+ */
+@Service
+@Slf4j
+public class MedicalRecordSearchService implements MeterBinder {
+    
+    static final String SNAPSHOT_FILE = "medical-records.idx";
+    static final int MAX_RESULTS = 100;
+    private static final int PAGE_SIZE = 1000;
+    // Covers transactions that set updated_at before the snapshot was taken but committed after it
+    private static final Duration CATCH_UP_MARGIN = Duration.ofMinutes(1);
+    
+    private final MedicalRecordRepository medicalRecordRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final Path snapshotFile;
+    private final Duration snapshotInterval;
+    private ScheduledExecutorService snapshots;
+    
+    private volatile MedicalRecordIndex index = new MedicalRecordIndex();
+    private long snapshotModifications = -1;
+    
+    public MedicalRecordSearchService(
+            MedicalRecordRepository medicalRecordRepository,
+            AppointmentRepository appointmentRepository,
+            @Value("${noctor.search.snapshot-directory:}") String snapshotDirectory,
+            @Value("${noctor.search.snapshot-interval:5m}") Duration snapshotInterval) {
+        this.medicalRecordRepository = medicalRecordRepository;
+        this.appointmentRepository = appointmentRepository;
+        this.snapshotFile = snapshotDirectory == null || snapshotDirectory.isBlank()
+            ? null : Path.of(snapshotDirectory).resolve(SNAPSHOT_FILE);
+        this.snapshotInterval = snapshotInterval;
+    }
+    
+    /**
+     * Start writing periodic snapshots, if a snapshot directory is configured
+     */
+    @PostConstruct
+    public void startSnapshots() {
+        if (snapshotFile == null) {
+            return;
+        }
+        snapshots = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("search-snapshot").daemon().factory());
+        snapshots.scheduleWithFixedDelay(this::snapshotQuietly,
+            snapshotInterval.toMillis(), snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Load the last snapshot and catch up, or index every record when there is none
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndex() {
+        long start = System.nanoTime();
+        MedicalRecordIndex.Snapshot snapshot = readSnapshot();
+        LocalDateTime since = null;
+        if (snapshot != null) {
+            index = snapshot.index();
+            since = snapshot.watermark().minus(CATCH_UP_MARGIN);
+        } else {
+            index = new MedicalRecordIndex();
+        }
+        
+        int indexed = 0;
+        Long afterId = 0L;
+        while (true) {
+            List<MedicalRecordText> page = since == null
+                ? medicalRecordRepository.findTextsAfter(afterId, Limit.of(PAGE_SIZE))
+                : medicalRecordRepository.findTextsUpdatedSince(since, afterId, Limit.of(PAGE_SIZE));
+            page.forEach(index::index);
+            indexed += page.size();
+            if (page.size() < PAGE_SIZE) {
+                break;
+            }
+            afterId = page.get(page.size() - 1).id();
+        }
+        log.info("Search index ready with {} record(s): {} {} in {} ms", index.size(),
+            snapshot != null ? "caught up on" : "indexed", indexed, Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+    
+    /**
+     * Re-index a record once its transaction has committed (or straight away outside a transaction)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMedicalRecordChanged(MedicalRecordChangedEvent event) {
+        if (event.recordId() == null) {
+            return;
+        }
+        try {
+            medicalRecordRepository.findTextById(event.recordId())
+                .ifPresentOrElse(index::index, () -> index.remove(event.recordId()));
+        } catch (RuntimeException e) {
+            // The record is saved; it will be picked up again by the next rebuild
+            log.warn("Could not index medical record {}: {}", event.recordId(), e.getMessage());
+        }
+    }
+    
+    /**
+     * Best matching records, highest score first
+     *
+     * @param from       earliest creation date to include, or null
+     * @param to         latest creation date to include, or null
+     * @param signedOnly only return signed records
+     */
+    public List<MedicalRecordSearchHit> search(String query, LocalDate from, LocalDate to, boolean signedOnly, int limit) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("Search start date " + from + " is after end date " + to);
+        }
+        List<MedicalRecordIndex.Match> matches = index.search(query, from, to, signedOnly, Math.min(limit, MAX_RESULTS));
+        if (matches.isEmpty()) {
+            return List.of();
+        }
+        
+        // One query for the patient and doctor names of every hit
+        List<Long> appointmentIds = matches.stream().map(MedicalRecordIndex.Match::appointmentId).distinct().toList();
+        Map<Long, AppointmentView> appointments = appointmentRepository.findViewsByIdIn(appointmentIds).stream()
+            .collect(Collectors.toMap(AppointmentView::id, Function.identity()));
+        return matches.stream()
+            .map(match -> {
+                AppointmentView appointment = appointments.get(match.appointmentId());
+                return new MedicalRecordSearchHit(match.recordId(), match.appointmentId(),
+                    appointment != null ? appointment.patientId() : null,
+                    appointment != null ? appointment.patientName() : null,
+                    appointment != null ? appointment.doctorName() : null,
+                    match.createdOn(), match.signed(), match.score());
+            })
+            .toList();
+    }
+    
+    /**
+     * Write the index to the snapshot directory if it changed since the last snapshot
+     *
+     * @return whether a snapshot was written
+     */
+    public synchronized boolean snapshot() throws IOException {
+        MedicalRecordIndex current = index;
+        long modifications = current.modifications();
+        if (snapshotFile == null || modifications == snapshotModifications) {
+            return false;
+        }
+        // Taken before the index is read, so anything changed while writing is caught up on next start
+        LocalDateTime watermark = LocalDateTime.now();
+        Files.createDirectories(snapshotFile.getParent());
+        current.writeSnapshot(snapshotFile, watermark);
+        snapshotModifications = modifications;
+        log.debug("Wrote search index snapshot of {} record(s) to {}", current.size(), snapshotFile);
+        return true;
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("search.index.records", this, service -> service.index.size())
+            .description("Medical records in the full-text search index")
+            .register(registry);
+    }
+    
+    @PreDestroy
+    public void close() {
+        if (snapshots != null) {
+            snapshots.shutdownNow();
+            snapshotQuietly();
+        }
+    }
+    
+    private MedicalRecordIndex.Snapshot readSnapshot() {
+        if (snapshotFile == null || !Files.exists(snapshotFile)) {
+            return null;
+        }
+        try {
+            MedicalRecordIndex.Snapshot snapshot = MedicalRecordIndex.readSnapshot(snapshotFile);
+            snapshotModifications = snapshot.index().modifications();
+            return snapshot;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable search index snapshot {}, rebuilding: {}", snapshotFile, e.getMessage());
+            return null;
+        }
+    }
+    
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not write search index snapshot to {}: {}", snapshotFile, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.wethinkcode.demo.presentation;
+
+import java.util.List;
+
+/**
+ * JSON result of a bulk patient registration
+ */
+public record BulkRegistrationResponse(int registered, List<Long> appointmentIds) {
+}
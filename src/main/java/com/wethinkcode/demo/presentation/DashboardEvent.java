@@ -0,0 +1,36 @@
+package com.wethinkcode.demo.presentation;
+
+import com.wethinkcode.demo.domain.shared.Appointment;
+import com.wethinkcode.demo.domain.shared.AppointmentStatus;
+import com.wethinkcode.demo.domain.shared.TriagePriority;
+
+/**
+ * Queue change pushed to open dashboards: "added" (patient is waiting), "claimed"
+ * (a doctor took the patient) or "completed" (the medical record was saved)
+ */
+public record DashboardEvent(
+        String type,
+        Long appointmentId,
+        Long patientId,
+        String patientName,
+        TriagePriority triagePriority,
+        Long doctorId) {
+    
+    public static DashboardEvent from(Appointment appointment) {
+        return new DashboardEvent(
+            typeOf(appointment.getStatus()),
+            appointment.getId(),
+            appointment.getPatient().getId(),
+            appointment.getPatient().getName(),
+            appointment.getTriagePriority(),
+            appointment.getDoctor() != null ? appointment.getDoctor().getId() : null);
+    }
+    
+    private static String typeOf(AppointmentStatus status) {
+        return switch (status) {
+            case WAITING -> "added";
+            case IN_CONSULT -> "claimed";
+            case COMPLETED -> "completed";
+        };
+    }
+}
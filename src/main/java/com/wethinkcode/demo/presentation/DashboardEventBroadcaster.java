@@ -0,0 +1,127 @@
+package com.wethinkcode.demo.presentation;
+
+import com.wethinkcode.demo.domain.shared.AppointmentStatusChangedEvent;
+import com.wethinkcode.demo.domain.shared.AppointmentsImportedEvent;
+import com.wethinkcode.demo.infrastructure.persistence.AppointmentRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes triage queue changes to every open nurse and doctor dashboard over Server-Sent Events.
+ * Each change is read from the database once and fanned out to all subscribers, so dashboards
+ * no longer have to reload (and re-run every query) to notice new arrivals.
+ */
+@Component
+@Slf4j
+public class DashboardEventBroadcaster {
+    
+    private final AppointmentRepository appointmentRepository;
+    private final Duration subscriptionTimeout;
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().name("dashboard-heartbeat").daemon().factory());
+    
+    public DashboardEventBroadcaster(
+            AppointmentRepository appointmentRepository,
+            @Value("${noctor.dashboard.subscription-timeout:30m}") Duration subscriptionTimeout,
+            @Value("${noctor.dashboard.heartbeat-interval:25s}") Duration heartbeatInterval) {
+        this.appointmentRepository = appointmentRepository;
+        this.subscriptionTimeout = subscriptionTimeout;
+        // Keeps idle connections from being closed by proxies and detects browsers that went away
+        heartbeat.scheduleAtFixedRate(this::sendHeartbeat,
+            heartbeatInterval.toMillis(), heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Register a dashboard. The browser reconnects on its own when the subscription times out.
+     */
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(subscriptionTimeout.toMillis());
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(() -> subscribers.remove(emitter));
+        emitter.onError(e -> subscribers.remove(emitter));
+        subscribers.add(emitter);
+        return emitter;
+    }
+    
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+    
+    /**
+     * Broadcast a committed appointment change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentStatusChanged(AppointmentStatusChangedEvent event) {
+        if (subscribers.isEmpty() || event.appointmentId() == null) {
+            return;
+        }
+        appointmentRepository.findWithPeopleById(event.appointmentId())
+            .map(DashboardEvent::from)
+            .ifPresent(this::broadcast);
+    }
+    
+    /**
+     * Tell dashboards to reload after a bulk import rather than pushing every imported patient
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentsImported(AppointmentsImportedEvent event) {
+        if (subscribers.isEmpty() || event.changes().isEmpty()) {
+            return;
+        }
+        for (SseEmitter emitter : subscribers) {
+            send(emitter, SseEmitter.event().name("imported").data(event.changes().size()));
+        }
+    }
+    
+    void broadcast(DashboardEvent event) {
+        for (SseEmitter emitter : subscribers) {
+            send(emitter, SseEmitter.event().name(event.type()).data(event, MediaType.APPLICATION_JSON));
+        }
+    }
+    
+    private void sendHeartbeat() {
+        for (SseEmitter emitter : subscribers) {
+            send(emitter, SseEmitter.event().comment("heartbeat"));
+        }
+    }
+    
+    private void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            // The browser has gone away
+            subscribers.remove(emitter);
+            emitter.completeWithError(e);
+        }
+    }
+    
+    /**
+     * Open subscriptions would otherwise hold up the web server's graceful shutdown
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void disconnectAll() {
+        subscribers.forEach(SseEmitter::complete);
+        subscribers.clear();
+    }
+    
+    @PreDestroy
+    public void close() {
+        heartbeat.shutdownNow();
+    }
+}
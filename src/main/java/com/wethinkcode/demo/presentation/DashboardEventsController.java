@@ -0,0 +1,24 @@
+package com.wethinkcode.demo.presentation;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@Controller
+@RequiredArgsConstructor
+public class DashboardEventsController {
+    
+    private final DashboardEventBroadcaster dashboardEventBroadcaster;
+    
+    /**
+     * Live triage queue updates for the nurse and doctor dashboards
+     */
+    @GetMapping(value = "/dashboard/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public SseEmitter dashboardEvents() {
+        return dashboardEventBroadcaster.subscribe();
+    }
+}
@@ -1,32 +1,56 @@
 package com.wethinkcode.demo.presentation;
 
 import com.wethinkcode.demo.domain.shared.Appointment;
+import com.wethinkcode.demo.domain.shared.AppointmentClaimService;
+import com.wethinkcode.demo.domain.shared.AppointmentView;
+import com.wethinkcode.demo.domain.shared.DocumentationJob;
 import com.wethinkcode.demo.domain.shared.MedicalRecord;
 import com.wethinkcode.demo.domain.shared.User;
 import com.wethinkcode.demo.domain.doctor.DoctorService;
+import com.wethinkcode.demo.domain.doctor.DocumentationJobService;
 import com.wethinkcode.demo.domain.shared.TriageService;
-import com.wethinkcode.demo.domain.shared.AppointmentStatus;
 import com.wethinkcode.demo.infrastructure.persistence.UserRepository;
 import com.wethinkcode.demo.infrastructure.persistence.AppointmentRepository;
 import com.wethinkcode.demo.infrastructure.persistence.MedicalRecordRepository;
+import com.wethinkcode.demo.infrastructure.search.MedicalRecordSearchHit;
+import com.wethinkcode.demo.infrastructure.search.MedicalRecordSearchService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 
 @Controller
 @RequestMapping("/doctor")
 @RequiredArgsConstructor
 public class DoctorController {
     
+    private static final int MAX_JOB_WAIT_SECONDS = 120;
+    
     private final DoctorService doctorService;
+    private final DocumentationJobService documentationJobService;
     private final TriageService triageService;
+    private final AppointmentClaimService appointmentClaimService;
     private final AppointmentRepository appointmentRepository;
     private final UserRepository userRepository;
     private final MedicalRecordRepository medicalRecordRepository;
+    private final MedicalRecordSearchService medicalRecordSearchService;
+    private final ExecutorService documentationExecutor;
     
     /**
      * Doctor Dashboard - shows waiting appointments
@@ -37,8 +61,8 @@ public class DoctorController {
             Model model) {
         
         Optional<User> doctor = userRepository.findById(doctorId);
-        List<Appointment> waitingAppointments = triageService.getWaitingAppointmentsByPriority();
-        List<Appointment> doctorAppointments = doctorService.getDoctorAppointments(doctorId);
+        List<AppointmentView> waitingAppointments = triageService.getWaitingQueue();
+        List<AppointmentView> doctorAppointments = doctorService.getDoctorAppointments(doctorId);
         
         model.addAttribute("doctor", doctor.orElse(null));
         model.addAttribute("doctorId", doctorId);
@@ -55,21 +79,34 @@ public class DoctorController {
     public String acceptAppointment(
             @PathVariable Long appointmentId,
             @RequestParam Long doctorId,
-            Model model) {
-        
-        Optional<Appointment> appointment = appointmentRepository.findById(appointmentId);
-        Optional<User> doctor = userRepository.findById(doctorId);
+            RedirectAttributes redirectAttributes) {
         
-        if (appointment.isPresent() && doctor.isPresent()) {
-            Appointment apt = appointment.get();
-            apt.setDoctor(doctor.get());
-            apt.setStatus(AppointmentStatus.IN_CONSULT);
-            appointmentRepository.save(apt);
+        switch (appointmentClaimService.claim(appointmentId, doctorId)) {
+            case CLAIMED -> { }
+            case TAKEN -> redirectAttributes.addFlashAttribute("claimError", "This patient has already been taken by another doctor.");
+            case UNKNOWN_DOCTOR -> redirectAttributes.addFlashAttribute("claimError", "No doctor with ID " + doctorId + " was found.");
         }
         
         return "redirect:/doctor/dashboard?doctorId=" + doctorId;
     }
     
+    /**
+     * Take the highest-priority waiting patient
+     */
+    @PostMapping("/claim-next")
+    public String claimNextAppointment(
+            @RequestParam Long doctorId,
+            RedirectAttributes redirectAttributes) {
+        
+        Optional<Appointment> claimed = appointmentClaimService.claimNext(doctorId);
+        if (claimed.isEmpty()) {
+            redirectAttributes.addFlashAttribute("claimError", "There are no waiting patients.");
+            return "redirect:/doctor/dashboard?doctorId=" + doctorId;
+        }
+        
+        return "redirect:/doctor/appointment/" + claimed.get().getId() + "?doctorId=" + doctorId;
+    }
+    
     /**
      * Show appointment details and recording interface
      */
@@ -79,12 +116,12 @@ public class DoctorController {
             @RequestParam(defaultValue = "1") Long doctorId,
             Model model) {
         
-        Optional<Appointment> appointmentOptional = appointmentRepository.findById(appointmentId);
+        Optional<Appointment> appointmentOptional = appointmentRepository.findWithPeopleById(appointmentId);
         if (appointmentOptional.isEmpty()) {
             return "redirect:/doctor/dashboard?doctorId=" + doctorId;
         }
         Appointment appointment = appointmentOptional.get();
-
+        
         MedicalRecord record = medicalRecordRepository.findByAppointmentId(appointmentId).orElseGet(() -> {
             MedicalRecord newRecord = new MedicalRecord();
             newRecord.setAppointmentId(appointmentId);
@@ -94,29 +131,120 @@ public class DoctorController {
         model.addAttribute("appointment", appointment);
         model.addAttribute("record", record);
         model.addAttribute("doctorId", doctorId);
+        if (record.getId() == null) {
+            model.addAttribute("documentationJob", documentationJobService.getLatestJob(appointmentId).orElse(null));
+        }
         
         return "appointment-detail";
     }
     
     /**
-     * Record consultation notes and generate medical record
+     * Record consultation notes and queue generation of the medical record.
+     * The AI runs in the background; the appointment page polls the job until the record is ready.
      */
     @PostMapping("/record-consultation/{appointmentId}")
     public String recordConsultation(
             @PathVariable Long appointmentId,
             @RequestParam String roughNotes,
             @RequestParam Long doctorId,
-            Model model) {
+            RedirectAttributes redirectAttributes) {
         
         try {
-            MedicalRecord record = doctorService.generateAndSaveMedicalRecord(appointmentId, roughNotes);
-            return "redirect:/doctor/appointment/" + appointmentId + "?doctorId=" + doctorId;
+            documentationJobService.submit(appointmentId, roughNotes);
         } catch (Exception e) {
-            model.addAttribute("error", "Error generating medical record: " + e.getMessage());
-            return "redirect:/doctor/appointment/" + appointmentId + "?doctorId=" + doctorId;
+            redirectAttributes.addFlashAttribute("error", "Error generating medical record: " + e.getMessage());
+        }
+        return "redirect:/doctor/appointment/" + appointmentId + "?doctorId=" + doctorId;
+    }
+    
+    /**
+     * Status of a background documentation job
+     */
+    @GetMapping("/documentation-job/{jobId}")
+    @ResponseBody
+    public ResponseEntity<DocumentationJobStatusResponse> getDocumentationJob(@PathVariable Long jobId) {
+        return documentationJobService.getJob(jobId)
+            .map(DocumentationJobStatusResponse::from)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Wait for a documentation job to finish (long polling). No thread is held while waiting: the
+     * response is completed by the job itself. If the job is still running after the wait, the
+     * current status is returned with 202 and the client asks again. The wait is in seconds.
+     */
+    @GetMapping("/documentation-job/{jobId}/result")
+    @ResponseBody
+    public DeferredResult<ResponseEntity<DocumentationJobStatusResponse>> awaitDocumentationJob(
+            @PathVariable Long jobId,
+            @RequestParam(name = "wait", defaultValue = "30") int waitSeconds) {
+        
+        Duration wait = Duration.ofSeconds(Math.clamp(waitSeconds, 1, MAX_JOB_WAIT_SECONDS));
+        DeferredResult<ResponseEntity<DocumentationJobStatusResponse>> result = new DeferredResult<>(wait.toMillis());
+        result.onTimeout(() -> result.setResult(documentationJobService.getJob(jobId)
+            .map(job -> ResponseEntity.accepted().body(DocumentationJobStatusResponse.from(job)))
+            .orElse(ResponseEntity.notFound().build())));
+        try {
+            CompletableFuture<DocumentationJob> finished = documentationJobService.whenFinished(jobId);
+            // Runs after a timeout as well, so an abandoned wait does not stay registered until the job ends
+            result.onCompletion(() -> documentationJobService.stopWaiting(jobId, finished));
+            finished.thenAccept(job -> result.setResult(ResponseEntity.ok(DocumentationJobStatusResponse.from(job))));
+        } catch (IllegalArgumentException e) {
+            result.setResult(ResponseEntity.notFound().build());
+        }
+        return result;
+    }
+    
+    /**
+     * Full-text search over SOAP notes, summaries and prescriptions, best match first.
+     * A term can be limited to one section, e.g. {@code assessment:pneumonia}.
+     */
+    @GetMapping("/search")
+    @ResponseBody
+    public ResponseEntity<List<MedicalRecordSearchHit>> searchRecords(
+            @RequestParam("q") String query,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "false") boolean signedOnly,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(medicalRecordSearchService.search(query, from, to, signedOnly, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
     }
     
+    /**
+     * Record consultation notes and stream the SOAP note to the browser as it is generated.
+     * Emits "token" events while Ollama is writing, then a "saved" event with the record ID
+     * once the assembled note has been stored (or an "error" event if that failed).
+     */
+    @PostMapping(value = "/record-consultation/{appointmentId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public Flux<ServerSentEvent<String>> streamConsultation(
+            @PathVariable Long appointmentId,
+            @RequestParam String roughNotes) {
+        
+        StringBuilder soapNote = new StringBuilder();
+        
+        Flux<ServerSentEvent<String>> tokens = doctorService.streamSoapNote(appointmentId, roughNotes)
+            .doOnNext(soapNote::append)
+            .map(token -> ServerSentEvent.builder(token).event("token").build());
+        
+        // The remaining AI steps are non-blocking; the database work runs on virtual threads off the stream's thread
+        Mono<ServerSentEvent<String>> saved = Mono
+            .defer(() -> doctorService.generateAndSaveMedicalRecord(
+                appointmentId, roughNotes, soapNote.toString(), Schedulers.fromExecutor(documentationExecutor)))
+            .map(record -> ServerSentEvent.builder(String.valueOf(record.getId())).event("saved").build());
+        
+        return tokens
+            .concatWith(saved)
+            .onErrorResume(e -> Mono.just(ServerSentEvent.builder("Error generating medical record: " + e.getMessage())
+                .event("error")
+                .build()));
+    }
+    
     /**
      * Sign medical record
      */
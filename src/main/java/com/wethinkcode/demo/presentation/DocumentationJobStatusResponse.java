@@ -0,0 +1,28 @@
+package com.wethinkcode.demo.presentation;
+
+import com.wethinkcode.demo.domain.shared.DocumentationJob;
+import com.wethinkcode.demo.domain.shared.DocumentationJobStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * JSON view of a documentation job for status polling
+ */
+public record DocumentationJobStatusResponse(
+        Long id,
+        Long appointmentId,
+        DocumentationJobStatus status,
+        Long medicalRecordId,
+        String error,
+        LocalDateTime updatedAt) {
+    
+    public static DocumentationJobStatusResponse from(DocumentationJob job) {
+        return new DocumentationJobStatusResponse(
+            job.getId(),
+            job.getAppointmentId(),
+            job.getStatus(),
+            job.getMedicalRecordId(),
+            job.getError(),
+            job.getUpdatedAt());
+    }
+}
@@ -1,19 +1,29 @@
 package com.wethinkcode.demo.presentation;
 
 import com.wethinkcode.demo.domain.shared.Appointment;
+import com.wethinkcode.demo.domain.shared.AppointmentClaimService;
+import com.wethinkcode.demo.domain.shared.AppointmentView;
+import com.wethinkcode.demo.domain.shared.PatientImportResult;
+import com.wethinkcode.demo.domain.shared.PatientImportService;
+import com.wethinkcode.demo.domain.shared.PatientRegistration;
+import com.wethinkcode.demo.domain.shared.PatientRegistrationService;
 import com.wethinkcode.demo.domain.shared.User;
 import com.wethinkcode.demo.domain.shared.TriagePriority;
-import com.wethinkcode.demo.domain.shared.UserRole;
-import com.wethinkcode.demo.domain.shared.AppointmentStatus;
 import com.wethinkcode.demo.domain.shared.TriageService;
-import com.wethinkcode.demo.infrastructure.persistence.AppointmentRepository;
 import com.wethinkcode.demo.infrastructure.persistence.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
-import jakarta.transaction.Transactional;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,9 +32,11 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class NurseController {
     
-    private final AppointmentRepository appointmentRepository;
     private final UserRepository userRepository;
     private final TriageService triageService;
+    private final AppointmentClaimService appointmentClaimService;
+    private final PatientRegistrationService patientRegistrationService;
+    private final PatientImportService patientImportService;
     
     /**
      * Nurse Dashboard - shows all patients and triage queue
@@ -35,7 +47,7 @@ public class NurseController {
             Model model) {
         
         Optional<User> nurse = userRepository.findById(nurseId);
-        List<Appointment> waitingAppointments = triageService.getWaitingAppointmentsByPriority();
+        List<AppointmentView> waitingAppointments = triageService.getWaitingQueue();
         List<User> availableDoctors = userRepository.findByStatus("AVAILABLE");
         
         model.addAttribute("nurse", nurse.orElse(null));
@@ -56,44 +68,57 @@ public class NurseController {
             @RequestParam Long nurseId,
             Model model) {
         
-        // Create new patient user
-        User patient = User.builder()
-            .name(patientName)
-            .role(UserRole.PATIENT)
-            .status("WAITING")
-            .build();
-        User savedPatient = userRepository.save(patient);
-        
-        // Create appointment
-        Appointment appointment = Appointment.builder()
-            .patient(savedPatient)
-            .triagePriority(TriagePriority.valueOf(triagePriority))
-            .status(AppointmentStatus.WAITING)
-            .roughNotes("")
-            .build();
-        appointmentRepository.save(appointment);
+        patientRegistrationService.register(patientName, TriagePriority.valueOf(triagePriority));
         
         return "redirect:/nurse/dashboard?nurseId=" + nurseId;
     }
     
+    /**
+     * Register many patients at once, e.g. when a clinic day is imported from another system
+     */
+    @PostMapping(value = "/register-patients", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<BulkRegistrationResponse> registerPatients(@RequestBody List<PatientRegistration> registrations) {
+        try {
+            List<Long> appointmentIds = patientRegistrationService.registerAll(registrations).stream()
+                .map(Appointment::getId)
+                .toList();
+            return ResponseEntity.ok(new BulkRegistrationResponse(appointmentIds.size(), appointmentIds));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    /**
+     * Stream a surge intake file into the triage queue. The body is CSV (patientName,triagePriority)
+     * or NDJSON and is read row by row; rows that cannot be imported are listed in the response.
+     */
+    @PostMapping(value = "/import-patients", consumes = {"text/csv", "application/x-ndjson"})
+    @ResponseBody
+    public PatientImportResult importPatients(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) throws IOException {
+        
+        PatientImportService.Format format = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.APPLICATION_NDJSON)
+            ? PatientImportService.Format.NDJSON
+            : PatientImportService.Format.CSV;
+        return patientImportService.importPatients(new InputStreamReader(body, StandardCharsets.UTF_8), format);
+    }
+    
     /**
      * Assign a doctor to a waiting patient
      */
     @PostMapping("/assign-doctor/{appointmentId}")
-    @Transactional
     public String assignDoctor(
             @PathVariable Long appointmentId,
             @RequestParam Long doctorId,
-            @RequestParam Long nurseId) {
-        
-        Optional<Appointment> appointment = appointmentRepository.findById(appointmentId);
-        Optional<User> doctor = userRepository.findById(doctorId);
+            @RequestParam Long nurseId,
+            RedirectAttributes redirectAttributes) {
         
-        if (appointment.isPresent() && doctor.isPresent()) {
-            Appointment apt = appointment.get();
-            apt.setDoctor(doctor.get());
-            apt.setStatus(AppointmentStatus.IN_CONSULT);
-            appointmentRepository.save(apt);
+        switch (appointmentClaimService.claim(appointmentId, doctorId)) {
+            case CLAIMED -> { }
+            case TAKEN -> redirectAttributes.addFlashAttribute("claimError", "This patient has already been assigned to a doctor.");
+            case UNKNOWN_DOCTOR -> redirectAttributes.addFlashAttribute("claimError", "No doctor with ID " + doctorId + " was found.");
         }
         
         return "redirect:/nurse/dashboard?nurseId=" + nurseId;
@@ -2,6 +2,8 @@ package com.wethinkcode.demo.presentation;
 
 import com.wethinkcode.demo.domain.shared.Appointment;
 import com.wethinkcode.demo.domain.shared.MedicalRecord;
+import com.wethinkcode.demo.domain.shared.PatientHistoryPage;
+import com.wethinkcode.demo.domain.shared.PatientHistoryService;
 import com.wethinkcode.demo.domain.shared.User;
 import com.wethinkcode.demo.infrastructure.persistence.UserRepository;
 import com.wethinkcode.demo.infrastructure.persistence.AppointmentRepository;
@@ -11,7 +13,6 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
 import java.util.Optional;
 
 @Controller
@@ -22,25 +23,39 @@ public class PatientController {
     private final UserRepository userRepository;
     private final AppointmentRepository appointmentRepository;
     private final MedicalRecordRepository medicalRecordRepository;
+    private final PatientHistoryService patientHistoryService;
     
     /**
-     * Patient View - shows their medical records and summaries
+     * Patient View - shows their medical records and summaries, newest first, one page at a time
      */
     @GetMapping("/view")
     public String getPatientView(
             @RequestParam(defaultValue = "1") Long patientId,
+            @RequestParam(required = false) Long before,
             Model model) {
         
         Optional<User> patient = userRepository.findById(patientId);
-        List<Appointment> appointments = appointmentRepository.findByPatientId(patientId);
+        PatientHistoryPage history = patientHistoryService.getHistory(patientId, before, PatientHistoryService.DEFAULT_PAGE_SIZE);
         
         model.addAttribute("patient", patient.orElse(null));
         model.addAttribute("patientId", patientId);
-        model.addAttribute("appointments", appointments);
+        model.addAttribute("history", history);
         
         return "patient-view";
     }
     
+    /**
+     * Patient history as JSON; pass the returned nextBefore as before to get the next, older page
+     */
+    @GetMapping("/history")
+    @ResponseBody
+    public PatientHistoryPage getPatientHistory(
+            @RequestParam Long patientId,
+            @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "" + PatientHistoryService.DEFAULT_PAGE_SIZE) int size) {
+        return patientHistoryService.getHistory(patientId, before, size);
+    }
+    
     /**
      * View detailed medical record with simplified summary
      */
@@ -50,11 +65,11 @@ public class PatientController {
             @RequestParam(defaultValue = "1") Long patientId,
             Model model) {
         
-        Optional<Appointment> appointment = appointmentRepository.findById(appointmentId);
+        // The patient and doctor come with the appointment
+        Optional<Appointment> appointment = appointmentRepository.findWithPeopleById(appointmentId);
         Optional<MedicalRecord> record = medicalRecordRepository.findByAppointmentId(appointmentId);
-        Optional<User> patient = userRepository.findById(patientId);
         
-        model.addAttribute("patient", patient.orElse(null));
+        model.addAttribute("patient", appointment.map(Appointment::getPatient).orElse(null));
         model.addAttribute("appointment", appointment.orElse(null));
         model.addAttribute("record", record.orElse(null));
         model.addAttribute("patientId", patientId);
@@ -0,0 +1,38 @@
+package com.wethinkcode.demo.presentation.api;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Opaque pagination cursors: the sort key of the last item on a page, base64url-encoded so
+ * clients treat it as a token rather than building their own
+ */
+final class ApiCursor {
+    
+    private ApiCursor() {
+    }
+    
+    static String encode(Object... sortKey) {
+        String joined = Stream.of(sortKey).map(String::valueOf).collect(Collectors.joining(":"));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(joined.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #encode} with as many parts
+     */
+    static String[] decode(String cursor, int parts) {
+        String joined;
+        try {
+            joined = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        String[] sortKey = joined.split(":", -1);
+        if (sortKey.length != parts) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        return sortKey;
+    }
+}
@@ -0,0 +1,18 @@
+package com.wethinkcode.demo.presentation.api;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Turns invalid input to the JSON API (bad cursors, unknown IDs in parameters) into a 400 problem response
+ */
+@RestControllerAdvice(assignableTypes = MobileApiController.class)
+public class ApiExceptionHandler {
+    
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ProblemDetail badRequest(IllegalArgumentException e) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+}
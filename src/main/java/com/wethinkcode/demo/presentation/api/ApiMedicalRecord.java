@@ -0,0 +1,25 @@
+package com.wethinkcode.demo.presentation.api;
+
+import com.wethinkcode.demo.domain.shared.MedicalRecord;
+
+import java.time.LocalDateTime;
+
+/**
+ * A medical record with its text bodies, as sent to the mobile client
+ */
+public record ApiMedicalRecord(
+        Long id,
+        Long appointmentId,
+        String soapNote,
+        String patientSummary,
+        String prescription,
+        boolean signed,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt) {
+    
+    static ApiMedicalRecord from(MedicalRecord record) {
+        return new ApiMedicalRecord(record.getId(), record.getAppointmentId(), record.getSoapNote(),
+            record.getPatientSummary(), record.getPrescription(), Boolean.TRUE.equals(record.getIsSigned()),
+            record.getCreatedAt(), record.getUpdatedAt());
+    }
+}
@@ -0,0 +1,10 @@
+package com.wethinkcode.demo.presentation.api;
+
+import java.util.List;
+
+/**
+ * One page of a list. Pass nextCursor back as the cursor parameter for the following page;
+ * it is null on the last page.
+ */
+public record ApiPage<T>(List<T> items, String nextCursor) {
+}
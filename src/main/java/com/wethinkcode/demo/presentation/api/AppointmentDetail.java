@@ -0,0 +1,10 @@
+package com.wethinkcode.demo.presentation.api;
+
+import com.wethinkcode.demo.domain.shared.AppointmentView;
+import com.wethinkcode.demo.domain.shared.MedicalRecordHeader;
+
+/**
+ * An appointment with the header of its medical record (null until one is written)
+ */
+public record AppointmentDetail(AppointmentView appointment, MedicalRecordHeader record) {
+}
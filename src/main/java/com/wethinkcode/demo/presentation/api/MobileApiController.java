@@ -0,0 +1,181 @@
+package com.wethinkcode.demo.presentation.api;
+
+import com.wethinkcode.demo.domain.shared.AppointmentView;
+import com.wethinkcode.demo.domain.shared.MedicalRecord;
+import com.wethinkcode.demo.domain.shared.MedicalRecordHeader;
+import com.wethinkcode.demo.domain.shared.PatientHistoryPage;
+import com.wethinkcode.demo.domain.shared.PatientHistoryService;
+import com.wethinkcode.demo.domain.shared.TriagePriority;
+import com.wethinkcode.demo.domain.shared.TriageService;
+import com.wethinkcode.demo.infrastructure.persistence.AppointmentRepository;
+import com.wethinkcode.demo.infrastructure.persistence.MedicalRecordRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Versioned JSON API for the mobile client, alongside the server-rendered pages.
+ * <p>
+ * Every response carries an ETag and must be revalidated ({@code Cache-Control: no-cache}), so
+ * a client that sends {@code If-None-Match} gets an empty 304 when nothing changed. Where the
+ * server knows a version without building the response (the triage queue's version, a record's
+ * updated_at) the check happens before anything is loaded; records also send {@code Last-Modified}.
+ * Lists are paged with opaque cursors.
+ */
+@RestController
+@RequestMapping("/api/v1")
+@RequiredArgsConstructor
+public class MobileApiController {
+    
+    static final int DEFAULT_LIMIT = 50;
+    static final int MAX_LIMIT = 200;
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+    
+    private final TriageService triageService;
+    private final PatientHistoryService patientHistoryService;
+    private final AppointmentRepository appointmentRepository;
+    private final MedicalRecordRepository medicalRecordRepository;
+    
+    /**
+     * WAITING appointments in triage order (HIGH first, then by arrival)
+     */
+    @GetMapping("/queue")
+    public ResponseEntity<ApiPage<AppointmentView>> getQueue(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit,
+            WebRequest request) {
+        int pageSize = pageSize(limit);
+        String etag = queueEtag(cursor, pageSize);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        
+        String[] after = cursor != null ? ApiCursor.decode(cursor, 2) : null;
+        List<AppointmentView> rows = triageService.getWaitingQueuePage(
+            after != null ? TriagePriority.valueOf(after[0]) : null,
+            after != null ? Long.valueOf(after[1]) : null,
+            pageSize + 1);
+        ApiPage<AppointmentView> page = page(rows, pageSize, view -> ApiCursor.encode(view.triagePriority(), view.id()));
+        return ResponseEntity.ok().cacheControl(REVALIDATE).eTag(etag).body(page);
+    }
+    
+    /**
+     * A doctor's appointments, oldest first
+     */
+    @GetMapping("/doctors/{doctorId}/appointments")
+    public ResponseEntity<ApiPage<AppointmentView>> getDoctorAppointments(
+            @PathVariable Long doctorId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit,
+            WebRequest request) {
+        int pageSize = pageSize(limit);
+        Long afterId = cursor != null ? Long.valueOf(ApiCursor.decode(cursor, 1)[0]) : 0L;
+        List<AppointmentView> rows = appointmentRepository.findViewsByDoctorIdAfter(doctorId, afterId, Limit.of(pageSize + 1));
+        return conditional(request, page(rows, pageSize, view -> ApiCursor.encode(view.id())));
+    }
+    
+    /**
+     * One appointment and its record header
+     */
+    @GetMapping("/appointments/{appointmentId}")
+    public ResponseEntity<AppointmentDetail> getAppointment(@PathVariable Long appointmentId, WebRequest request) {
+        Optional<AppointmentView> appointment = appointmentRepository.findViewsByIdIn(List.of(appointmentId)).stream().findFirst();
+        if (appointment.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        MedicalRecordHeader record = medicalRecordRepository.findHeadersByAppointmentIdIn(List.of(appointmentId)).stream()
+            .findFirst()
+            .orElse(null);
+        return conditional(request, new AppointmentDetail(appointment.get(), record));
+    }
+    
+    /**
+     * The full medical record of an appointment. The record's bodies are lazy, so an unchanged
+     * record is answered with 304 without reading or decompressing them.
+     */
+    @GetMapping("/appointments/{appointmentId}/record")
+    public ResponseEntity<ApiMedicalRecord> getMedicalRecord(@PathVariable Long appointmentId, WebRequest request) {
+        Optional<MedicalRecord> found = medicalRecordRepository.findByAppointmentId(appointmentId);
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        MedicalRecord record = found.get();
+        LocalDateTime modified = record.getUpdatedAt() != null ? record.getUpdatedAt() : record.getCreatedAt();
+        long lastModified = modified != null ? modified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : -1;
+        // Weak: Tomcat does not compress responses with a strong ETag
+        String etag = "W/\"record-" + record.getId() + "-" + modified + "\"";
+        if (request.checkNotModified(etag, lastModified)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+            .cacheControl(REVALIDATE)
+            .eTag(etag)
+            .lastModified(lastModified)
+            .body(ApiMedicalRecord.from(record));
+    }
+    
+    /**
+     * A patient's visits, newest first, with the summary strip
+     */
+    @GetMapping("/patients/{patientId}/history")
+    public ResponseEntity<PatientHistoryResponse> getPatientHistory(
+            @PathVariable Long patientId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + PatientHistoryService.DEFAULT_PAGE_SIZE) int limit,
+            WebRequest request) {
+        Long before = cursor != null ? Long.valueOf(ApiCursor.decode(cursor, 1)[0]) : null;
+        PatientHistoryPage history = patientHistoryService.getHistory(patientId, before, pageSize(limit));
+        return conditional(request, new PatientHistoryResponse(history.summary(), history.entries(),
+            history.nextBefore() != null ? ApiCursor.encode(history.nextBefore()) : null));
+    }
+    
+    /**
+     * Answer with 304 if the client already has this exact body, identified by a hash of its contents
+     */
+    private static <T> ResponseEntity<T> conditional(WebRequest request, T body) {
+        String etag = "W/\"" + DigestUtils.md5DigestAsHex(body.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(REVALIDATE).eTag(etag).body(body);
+    }
+    
+    /**
+     * The queue's ETag, from the boot epoch and queue version plus the page arguments, so it is
+     * known without loading the page and never matches a queue from before a restart
+     */
+    private String queueEtag(String cursor, int pageSize) {
+        long version = triageService.getQueueVersion();
+        return "W/\"queue-" + triageService.getQueueEpoch() + "-" + version + "-" + (cursor != null ? cursor : "") + "-" + pageSize + "\"";
+    }
+    
+    private static <T> ApiPage<T> page(List<T> rows, int pageSize, Function<T, String> cursorOf) {
+        if (rows.size() <= pageSize) {
+            return new ApiPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, pageSize);
+        return new ApiPage<>(items, cursorOf.apply(items.get(pageSize - 1)));
+    }
+    
+    private static int pageSize(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+}
@@ -0,0 +1,12 @@
+package com.wethinkcode.demo.presentation.api;
+
+import com.wethinkcode.demo.domain.shared.PatientHistoryEntry;
+import com.wethinkcode.demo.domain.shared.PatientSummary;
+
+import java.util.List;
+
+/**
+ * A page of a patient's history together with the summary strip, so the first screen needs one request
+ */
+public record PatientHistoryResponse(PatientSummary summary, List<PatientHistoryEntry> items, String nextCursor) {
+}
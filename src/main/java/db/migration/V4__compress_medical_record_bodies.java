@@ -0,0 +1,65 @@
+package db.migration;
+
+import com.wethinkcode.demo.domain.shared.MedicalRecord;
+import com.wethinkcode.demo.infrastructure.persistence.CompressedTextConverter;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Moves the medical record bodies from TEXT to compressed VARBINARY columns.
+ * A Java migration because the compression ({@link CompressedTextConverter}) cannot be done in SQL.
+ * The prescription flag is filled in from the plain text on the way, since the compressed
+ * column cannot be inspected afterwards.
+ */
+public class V4__compress_medical_record_bodies extends BaseJavaMigration {
+    
+    private static final String[] COLUMNS = {"soap_note", "patient_summary", "prescription"};
+    private static final int BATCH_SIZE = 500;
+    
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        try (Statement ddl = connection.createStatement()) {
+            for (String column : COLUMNS) {
+                ddl.execute("ALTER TABLE medical_records ADD COLUMN " + column + "_compressed VARBINARY("
+                    + CompressedTextConverter.MAX_STORED_LENGTH + ")");
+            }
+            ddl.execute("ALTER TABLE medical_records ADD COLUMN has_prescription BOOLEAN DEFAULT FALSE NOT NULL");
+        }
+        
+        try (Statement select = connection.createStatement();
+             ResultSet rows = select.executeQuery("SELECT id, soap_note, patient_summary, prescription FROM medical_records");
+             PreparedStatement update = connection.prepareStatement(
+                 "UPDATE medical_records SET soap_note_compressed = ?, patient_summary_compressed = ?, prescription_compressed = ?, "
+                     + "has_prescription = ? WHERE id = ?")) {
+            int pending = 0;
+            while (rows.next()) {
+                String text = null;
+                for (int i = 0; i < COLUMNS.length; i++) {
+                    text = rows.getString(i + 2);
+                    update.setBytes(i + 1, text == null ? null : CompressedTextConverter.compress(text));
+                }
+                // The prescription is the last column read
+                update.setBoolean(COLUMNS.length + 1, MedicalRecord.isPrescribed(text));
+                update.setLong(COLUMNS.length + 2, rows.getLong(1));
+                update.addBatch();
+                if (++pending % BATCH_SIZE == 0) {
+                    update.executeBatch();
+                }
+            }
+            update.executeBatch();
+        }
+        
+        try (Statement ddl = connection.createStatement()) {
+            for (String column : COLUMNS) {
+                ddl.execute("ALTER TABLE medical_records DROP COLUMN " + column);
+                ddl.execute("ALTER TABLE medical_records ALTER COLUMN " + column + "_compressed RENAME TO " + column);
+            }
+        }
+    }
+}
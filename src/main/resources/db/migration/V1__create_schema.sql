@@ -0,0 +1,40 @@
+-- Baseline schema, matching the JPA entities in com.wethinkcode.demo.domain.shared
+
+CREATE TABLE users (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    role VARCHAR(255) NOT NULL,
+    status VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE appointments (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    patient_id BIGINT NOT NULL,
+    doctor_id BIGINT,
+    triage_priority VARCHAR(255) NOT NULL,
+    status VARCHAR(255) NOT NULL,
+    rough_notes TEXT,
+    version BIGINT,
+    CONSTRAINT fk_appointments_patient FOREIGN KEY (patient_id) REFERENCES users (id),
+    CONSTRAINT fk_appointments_doctor FOREIGN KEY (doctor_id) REFERENCES users (id)
+);
+
+CREATE TABLE medical_records (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    appointment_id BIGINT NOT NULL,
+    soap_note TEXT,
+    patient_summary TEXT,
+    prescription TEXT,
+    is_signed BOOLEAN NOT NULL
+);
+
+CREATE TABLE documentation_jobs (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    appointment_id BIGINT NOT NULL,
+    rough_notes TEXT,
+    status VARCHAR(255) NOT NULL,
+    medical_record_id BIGINT,
+    error VARCHAR(1000),
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP
+);
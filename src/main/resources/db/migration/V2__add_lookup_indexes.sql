@@ -0,0 +1,17 @@
+-- Indexes for the lookups the repositories run on every dashboard and consultation
+
+-- Triage queue: findByStatus, ordered by priority then arrival
+CREATE INDEX idx_appointments_status_priority ON appointments (status, triage_priority, id);
+
+-- A doctor's own appointments (findByDoctorId / findViewsByDoctorId)
+CREATE INDEX idx_appointments_doctor ON appointments (doctor_id, status);
+
+-- A patient's appointment history (findByPatientId / findViewsByPatientId)
+CREATE INDEX idx_appointments_patient ON appointments (patient_id, id);
+
+-- One medical record per appointment; also serves findByAppointmentId
+ALTER TABLE medical_records ADD CONSTRAINT uk_medical_records_appointment UNIQUE (appointment_id);
+
+-- Latest documentation job per appointment, and unfinished jobs on startup
+CREATE INDEX idx_documentation_jobs_appointment ON documentation_jobs (appointment_id, id);
+CREATE INDEX idx_documentation_jobs_status ON documentation_jobs (status);
@@ -0,0 +1,15 @@
+-- Ids come from sequences handed out to Hibernate in blocks of 50 (allocationSize), so inserts can be
+-- sent as JDBC batches; IDENTITY columns need a round trip per row to read the generated key.
+-- Each sequence restarts above the ids already in use: Hibernate treats a value as the top of its block.
+
+CREATE SEQUENCE users_seq START WITH 50 INCREMENT BY 50;
+ALTER SEQUENCE users_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM users);
+
+CREATE SEQUENCE appointments_seq START WITH 50 INCREMENT BY 50;
+ALTER SEQUENCE appointments_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM appointments);
+
+CREATE SEQUENCE medical_records_seq START WITH 50 INCREMENT BY 50;
+ALTER SEQUENCE medical_records_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM medical_records);
+
+CREATE SEQUENCE documentation_jobs_seq START WITH 50 INCREMENT BY 50;
+ALTER SEQUENCE documentation_jobs_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM documentation_jobs);
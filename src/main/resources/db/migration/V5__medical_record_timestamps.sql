@@ -0,0 +1,8 @@
+-- When a record was written and last changed: search filters on the first,
+-- and the search index catches up from its snapshot using the second
+
+ALTER TABLE medical_records ADD COLUMN created_at TIMESTAMP(6) DEFAULT CURRENT_TIMESTAMP NOT NULL;
+ALTER TABLE medical_records ADD COLUMN updated_at TIMESTAMP(6);
+UPDATE medical_records SET updated_at = created_at;
+
+CREATE INDEX idx_medical_records_updated ON medical_records (updated_at);
@@ -0,0 +1,26 @@
+-- Patient history timeline: when each visit was completed and each record signed, and a
+-- per-patient summary that is updated as visits complete instead of recounted per page view
+
+ALTER TABLE appointments ADD COLUMN completed_at TIMESTAMP(6);
+ALTER TABLE medical_records ADD COLUMN signed_at TIMESTAMP(6);
+
+-- Existing rows count as already seen, so they are not counted twice when next saved
+UPDATE appointments SET completed_at = CURRENT_TIMESTAMP WHERE status = 'COMPLETED';
+UPDATE medical_records SET signed_at = COALESCE(updated_at, created_at) WHERE is_signed = TRUE;
+
+CREATE TABLE patient_summaries (
+    patient_id BIGINT PRIMARY KEY,
+    visit_count INTEGER NOT NULL,
+    last_visit_at TIMESTAMP(6),
+    prescriptions_issued INTEGER NOT NULL,
+    CONSTRAINT fk_patient_summaries_patient FOREIGN KEY (patient_id) REFERENCES users (id)
+);
+
+INSERT INTO patient_summaries (patient_id, visit_count, last_visit_at, prescriptions_issued)
+SELECT p.id,
+       (SELECT COUNT(*) FROM appointments a WHERE a.patient_id = p.id AND a.status = 'COMPLETED'),
+       (SELECT MAX(a.completed_at) FROM appointments a WHERE a.patient_id = p.id),
+       (SELECT COUNT(*) FROM medical_records r JOIN appointments a ON a.id = r.appointment_id
+        WHERE a.patient_id = p.id AND r.is_signed = TRUE AND r.has_prescription = TRUE)
+FROM users p
+WHERE EXISTS (SELECT 1 FROM appointments a WHERE a.patient_id = p.id);
@@ -0,0 +1,188 @@
+package com.wethinkcode.demo.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A scripted clinic day against a running application, over HTTP like the browsers would.
+ * Nurses register patients and watch their dashboard; doctors claim the next patient, open the
+ * appointment, dictate the consultation (as a background job they wait for, or streamed) and go
+ * back to their dashboard; every patient then opens their history and the new record.
+ */
+class ClinicDay {
+
+    private static final Pattern LOCATION_APPOINTMENT = Pattern.compile("/doctor/appointment/(\\d+)");
+    private static final Pattern JOB_ID = Pattern.compile("data-job-id=\"(\\d+)\"");
+    private static final Pattern PATIENT_ID = Pattern.compile("\"patientId\"\\s*:\\s*(\\d+)");
+    private static final List<String> PRIORITIES = List.of("HIGH", "MEDIUM", "MEDIUM", "LOW", "LOW");
+
+    private final String baseUrl;
+    private final List<Long> nurseIds;
+    private final List<Long> doctorIds;
+    private final double streamingShare;
+    private final LatencyRecorder recorder;
+    private final HttpClient client = HttpClient.newBuilder()
+        .followRedirects(HttpClient.Redirect.NEVER)
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+
+    private volatile boolean registrationOver;
+
+    ClinicDay(String baseUrl, List<Long> nurseIds, List<Long> doctorIds, double streamingShare, LatencyRecorder recorder) {
+        this.baseUrl = baseUrl;
+        this.nurseIds = nurseIds;
+        this.doctorIds = doctorIds;
+        this.streamingShare = streamingShare;
+        this.recorder = recorder;
+    }
+
+    /**
+     * Run the day until every registered patient has been seen and has read their record
+     */
+    void run(int patients) throws InterruptedException {
+        try (ExecutorService patientViews = Executors.newVirtualThreadPerTaskExecutor()) {
+            try (ExecutorService staff = Executors.newVirtualThreadPerTaskExecutor()) {
+                staff.submit(() -> {
+                    try (ExecutorService nurses = Executors.newVirtualThreadPerTaskExecutor()) {
+                        for (int n = 0; n < nurseIds.size(); n++) {
+                            int nurse = n;
+                            nurses.submit(() -> registerPatients(nurseIds.get(nurse), patients, nurse, nurseIds.size()));
+                        }
+                    } finally {
+                        registrationOver = true;
+                    }
+                });
+                for (Long doctorId : doctorIds) {
+                    staff.submit(() -> seePatients(doctorId, patientViews));
+                }
+            }
+        }
+    }
+
+    private Void registerPatients(Long nurseId, int patients, int nurse, int nurses) throws Exception {
+        for (int i = nurse; i < patients; i += nurses) {
+            String priority = PRIORITIES.get(ThreadLocalRandom.current().nextInt(PRIORITIES.size()));
+            post("POST /nurse/register-patient", "/nurse/register-patient",
+                "patientName", "Benchmark Patient " + i, "triagePriority", priority, "nurseId", String.valueOf(nurseId));
+            get("GET /nurse/dashboard", "/nurse/dashboard?nurseId=" + nurseId);
+        }
+        return null;
+    }
+
+    private Void seePatients(Long doctorId, ExecutorService patientViews) throws Exception {
+        while (true) {
+            HttpResponse<String> claim = post("POST /doctor/claim-next", "/doctor/claim-next", "doctorId", String.valueOf(doctorId));
+            Matcher appointment = LOCATION_APPOINTMENT.matcher(claim.headers().firstValue("Location").orElse(""));
+            if (!appointment.find()) {
+                if (registrationOver) {
+                    // The queue is empty and nobody else is coming
+                    return null;
+                }
+                // Nobody waiting yet: look at the dashboard for a moment, as a doctor would
+                get("GET /doctor/dashboard", "/doctor/dashboard?doctorId=" + doctorId);
+                Thread.sleep(100);
+                continue;
+            }
+            long appointmentId = Long.parseLong(appointment.group(1));
+            get("GET /doctor/appointment/{id}", "/doctor/appointment/" + appointmentId + "?doctorId=" + doctorId);
+            String roughNotes = "Patient " + appointmentId + " has had a cough and fever for " + (1 + appointmentId % 7)
+                + " days. Temp 38.2, chest clear. Likely viral URTI, paracetamol and rest.";
+            if (ThreadLocalRandom.current().nextDouble() < streamingShare) {
+                streamConsultation(appointmentId, roughNotes);
+            } else {
+                recordConsultation(doctorId, appointmentId, roughNotes);
+            }
+            get("GET /doctor/dashboard", "/doctor/dashboard?doctorId=" + doctorId);
+
+            patientViews.submit(() -> viewRecord(appointmentId));
+        }
+    }
+
+    private void recordConsultation(Long doctorId, long appointmentId, String roughNotes) throws Exception {
+        post("POST /doctor/record-consultation/{id}", "/doctor/record-consultation/" + appointmentId,
+            "roughNotes", roughNotes, "doctorId", String.valueOf(doctorId));
+        HttpResponse<String> page = get("GET /doctor/appointment/{id}", "/doctor/appointment/" + appointmentId + "?doctorId=" + doctorId);
+        Matcher job = JOB_ID.matcher(page.body());
+        if (!job.find()) {
+            // Already documented before the page was rendered
+            return;
+        }
+        HttpResponse<String> result;
+        do {
+            result = get("GET /doctor/documentation-job/{id}/result", "/doctor/documentation-job/" + job.group(1) + "/result?wait=60");
+        } while (result.statusCode() == 202);
+    }
+
+    private void streamConsultation(long appointmentId, String roughNotes) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/doctor/record-consultation/" + appointmentId + "/stream"))
+            .header("Content-Type", "application/x-www-form-urlencoded")
+            .header("Accept", "text/event-stream")
+            .timeout(Duration.ofMinutes(5))
+            .POST(HttpRequest.BodyPublishers.ofString(form("roughNotes", roughNotes)))
+            .build();
+        send("POST /doctor/record-consultation/{id}/stream", request,
+            response -> response.statusCode() == 200 && response.body().contains("event:saved"));
+    }
+
+    private Void viewRecord(long appointmentId) throws Exception {
+        HttpResponse<String> detail = get("GET /api/v1/appointments/{id}", "/api/v1/appointments/" + appointmentId);
+        Optional<String> patientId = Optional.of(PATIENT_ID.matcher(detail.body())).filter(Matcher::find).map(matcher -> matcher.group(1));
+        if (patientId.isPresent()) {
+            get("GET /patient/view", "/patient/view?patientId=" + patientId.get());
+            get("GET /patient/record/{id}", "/patient/record/" + appointmentId + "?patientId=" + patientId.get());
+        }
+        return null;
+    }
+
+    private HttpResponse<String> get(String endpoint, String path) throws IOException, InterruptedException {
+        return send(endpoint, HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofMinutes(2)).GET().build(),
+            response -> response.statusCode() < 400);
+    }
+
+    private HttpResponse<String> post(String endpoint, String path, String... parameters) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .header("Content-Type", "application/x-www-form-urlencoded")
+            .timeout(Duration.ofMinutes(2))
+            .POST(HttpRequest.BodyPublishers.ofString(form(parameters)))
+            .build();
+        return send(endpoint, request, response -> response.statusCode() < 400);
+    }
+
+    private HttpResponse<String> send(String endpoint, HttpRequest request, Predicate<HttpResponse<String>> ok)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            recorder.record(endpoint, Duration.ofNanos(System.nanoTime() - start), ok.test(response));
+            return response;
+        } catch (IOException e) {
+            recorder.record(endpoint, Duration.ofNanos(System.nanoTime() - start), false);
+            throw e;
+        }
+    }
+
+    private static String form(String... parameters) {
+        StringBuilder form = new StringBuilder();
+        for (int i = 0; i < parameters.length; i += 2) {
+            if (!form.isEmpty()) {
+                form.append('&');
+            }
+            form.append(parameters[i]).append('=').append(URLEncoder.encode(parameters[i + 1], StandardCharsets.UTF_8));
+        }
+        return form.toString();
+    }
+}
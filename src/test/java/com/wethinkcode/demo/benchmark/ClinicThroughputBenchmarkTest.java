@@ -0,0 +1,105 @@
+package com.wethinkcode.demo.benchmark;
+
+import com.wethinkcode.demo.domain.shared.AppointmentStatus;
+import com.wethinkcode.demo.domain.shared.User;
+import com.wethinkcode.demo.domain.shared.UserRole;
+import com.wethinkcode.demo.infrastructure.persistence.AppointmentRepository;
+import com.wethinkcode.demo.infrastructure.persistence.UserRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Throughput of a whole clinic day, end to end over HTTP, with Ollama replaced by {@link FakeOllama}.
+ * Only runs with {@code mvn test -Pbenchmark}. Tune it with system properties, e.g.
+ * {@code -Dbenchmark.patients=500 -Dbenchmark.doctors=20 -Dbenchmark.ollama.latency=lognormal:2s,15s}
+ * or {@code -Dbenchmark.ollama.replay=recordings.ndjson} to replay recorded Ollama answers.
+ * The report is printed and written to target/benchmark/clinic-day.txt.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "spring.ai.ollama.cache.enabled=false",
+    "logging.level.com.wethinkcode=WARN"
+})
+@DisplayName("Benchmark: A scripted clinic day against a stand-in Ollama")
+class ClinicThroughputBenchmarkTest {
+
+    private static final int PATIENTS = Integer.getInteger("benchmark.patients", 60);
+    private static final int NURSES = Integer.getInteger("benchmark.nurses", 2);
+    private static final int DOCTORS = Integer.getInteger("benchmark.doctors", 6);
+    private static final double STREAMING_SHARE = Double.parseDouble(System.getProperty("benchmark.streaming-share", "0.25"));
+
+    private static FakeOllama ollama;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void ollama(DynamicPropertyRegistry registry) throws Exception {
+        String replay = System.getProperty("benchmark.ollama.replay", "");
+        ollama = new FakeOllama(
+                LatencyDistribution.parse(System.getProperty("benchmark.ollama.latency", "lognormal:800ms,3s")),
+                Double.parseDouble(System.getProperty("benchmark.ollama.tokens-per-second", "40")),
+                Double.parseDouble(System.getProperty("benchmark.ollama.failure-rate", "0.02")),
+                replay.isBlank() ? null : Path.of(replay));
+        registry.add("spring.ai.ollama.base-url", ollama::baseUrl);
+        registry.add("spring.ai.ollama.admission.max-concurrent", () -> System.getProperty("benchmark.ollama.parallel", "4"));
+        registry.add("spring.ai.ollama.admission.max-queue-depth", () -> System.getProperty("benchmark.ollama.queue-depth", "100"));
+    }
+
+    @AfterAll
+    static void stopOllama() {
+        ollama.close();
+    }
+
+    @Test
+    @DisplayName("B1: Given a clinic day of nurses, doctors and patients, when it is run, then throughput and p50/p95/p99 are reported per endpoint")
+    void givenClinicDay_whenRun_thenThroughputAndPercentilesReported() throws Exception {
+        // Given: Nurses and doctors on shift
+        List<Long> nurseIds = staff(UserRole.NURSE, "Benchmark Nurse", NURSES);
+        List<Long> doctorIds = staff(UserRole.DOCTOR, "Dr. Benchmark", DOCTORS);
+        LatencyRecorder recorder = new LatencyRecorder();
+
+        // When: The day is played out
+        long start = System.nanoTime();
+        new ClinicDay("http://localhost:" + port, nurseIds, doctorIds, STREAMING_SHARE, recorder).run(PATIENTS);
+        Duration wallTime = Duration.ofNanos(System.nanoTime() - start);
+
+        // Then: Every patient was seen, and the numbers are reported
+        String report = String.format("Clinic day: %d patients, %d nurses, %d doctors in %.1f s; Ollama saw %d requests (%d failed on purpose)%n%s",
+                PATIENTS, NURSES, DOCTORS, wallTime.toMillis() / 1000.0, ollama.requests(), ollama.failures(), recorder.report(wallTime));
+        System.out.println(report);
+        Path reportFile = Path.of("target", "benchmark", "clinic-day.txt");
+        Files.createDirectories(reportFile.getParent());
+        Files.writeString(reportFile, report);
+
+        assertTrue(appointmentRepository.findByStatus(AppointmentStatus.WAITING).isEmpty(), "patients left waiting");
+        assertTrue(recorder.requests() > 0);
+    }
+
+    private List<Long> staff(UserRole role, String name, int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> userRepository.save(User.builder().name(name + " " + i).role(role).status("AVAILABLE").build()).getId())
+                .toList();
+    }
+}
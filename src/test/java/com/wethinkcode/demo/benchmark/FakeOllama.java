@@ -0,0 +1,196 @@
+package com.wethinkcode.demo.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.wethinkcode.demo.infrastructure.ai.OllamaOperation;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for Ollama's /api/generate.
+ * Each answer waits for a time-to-first-token drawn from a {@link LatencyDistribution} and then
+ * produces one word per token at a fixed token rate, streamed as NDJSON when the request asks for
+ * it. A share of requests can be failed with 503 to exercise retries and fallbacks.
+ * <p>
+ * Instead of canned answers it can replay recorded ones: a file with one Ollama /api/generate
+ * response (stream=false) per line, plus an "operation" field naming the {@link OllamaOperation}.
+ * Recorded answers are replayed with their own timing (load and prompt evaluation before the
+ * first token, eval_count tokens over eval_duration).
+ */
+class FakeOllama implements AutoCloseable {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final HttpServer server;
+    private final ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor();
+    private final LatencyDistribution firstToken;
+    private final double tokensPerSecond;
+    private final double failureRate;
+    private final Map<OllamaOperation, List<JsonNode>> recordings = new EnumMap<>(OllamaOperation.class);
+    private final AtomicInteger replayed = new AtomicInteger();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    FakeOllama(LatencyDistribution firstToken, double tokensPerSecond, double failureRate, Path recordings) throws IOException {
+        this.firstToken = firstToken;
+        this.tokensPerSecond = tokensPerSecond;
+        this.failureRate = failureRate;
+        if (recordings != null) {
+            loadRecordings(recordings);
+        }
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1000);
+        server.createContext("/api/generate", exchange -> {
+            try {
+                generate(exchange);
+            } catch (IOException e) {
+                // The application gave up on the request (timeout or cancellation)
+            } finally {
+                exchange.close();
+            }
+        });
+        server.setExecutor(threads);
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    long requests() {
+        return requests.get();
+    }
+
+    long failures() {
+        return failures.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        threads.close();
+    }
+
+    private void generate(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        JsonNode request = JSON.readTree(exchange.getRequestBody());
+        boolean stream = request.path("stream").asBoolean(false);
+        OllamaOperation operation = classify(request.path("prompt").asText(""), request.path("format").asText(""));
+
+        if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+            failures.incrementAndGet();
+            exchange.sendResponseHeaders(503, -1);
+            return;
+        }
+
+        Answer answer = answer(operation);
+        sleep(answer.firstToken());
+        String[] tokens = answer.text().split("(?<= )");
+        if (!stream) {
+            sleep(answer.perToken().multipliedBy(tokens.length));
+            byte[] body = JSON.writeValueAsBytes(Map.of("model", "llama2", "response", answer.text(), "done", true));
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            return;
+        }
+
+        exchange.getResponseHeaders().add("Content-Type", "application/x-ndjson");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream body = exchange.getResponseBody();
+        for (String token : tokens) {
+            sleep(answer.perToken());
+            body.write(JSON.writeValueAsBytes(Map.of("response", token, "done", false)));
+            body.write('\n');
+            body.flush();
+        }
+        body.write(JSON.writeValueAsBytes(Map.of("response", "", "done", true)));
+        body.write('\n');
+    }
+
+    private Answer answer(OllamaOperation operation) {
+        List<JsonNode> recorded = recordings.get(operation);
+        if (recorded != null && !recorded.isEmpty()) {
+            JsonNode recording = recorded.get(Math.floorMod(replayed.getAndIncrement(), recorded.size()));
+            long evalCount = Math.max(1, recording.path("eval_count").asLong(1));
+            return new Answer(
+                recording.path("response").asText(),
+                Duration.ofNanos(recording.path("load_duration").asLong(0) + recording.path("prompt_eval_duration").asLong(0)),
+                Duration.ofNanos(recording.path("eval_duration").asLong(0) / evalCount));
+        }
+        return new Answer(
+            cannedText(operation),
+            firstToken.next(ThreadLocalRandom.current()),
+            Duration.ofNanos((long) (1_000_000_000L / tokensPerSecond)));
+    }
+
+    private void loadRecordings(Path file) throws IOException {
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            JsonNode recording = JSON.readTree(line);
+            OllamaOperation operation = OllamaOperation.valueOf(recording.path("operation").asText());
+            recordings.computeIfAbsent(operation, ignored -> new ArrayList<>()).add(recording);
+        }
+    }
+
+    private static OllamaOperation classify(String prompt, String format) {
+        if ("json".equals(format) || prompt.contains("produce ONE JSON document")) {
+            return OllamaOperation.COMBINED_DOCUMENTATION;
+        }
+        if (prompt.contains("patient-friendly summary")) {
+            return OllamaOperation.PATIENT_SUMMARY;
+        }
+        if (prompt.contains("prescription medications")) {
+            return OllamaOperation.PRESCRIPTION;
+        }
+        return OllamaOperation.SOAP_NOTE;
+    }
+
+    private static String cannedText(OllamaOperation operation) {
+        return switch (operation) {
+            case PATIENT_SUMMARY -> "You have a chest infection caused by a virus. It should get better by itself in about a week. "
+                + "Rest at home, drink plenty of water and take paracetamol if you have a fever or pain. "
+                + "Come back to the clinic if you find it hard to breathe or the fever lasts more than three days.";
+            case PRESCRIPTION -> "- Paracetamol 500mg, two tablets, every six hours as needed\n- Ibuprofen 200mg, one tablet, three times daily with food";
+            case COMBINED_DOCUMENTATION -> "{\"soap\": {\"subjective\": \"Cough and fever for three days\", \"objective\": \"Temp 38.2C, chest clear\", "
+                + "\"assessment\": \"Viral upper respiratory tract infection\", \"plan\": \"Rest, fluids, paracetamol\"}, "
+                + "\"patient_summary\": \"You have a viral chest infection. Rest and drink plenty of water.\", "
+                + "\"prescriptions\": [{\"name\": \"Paracetamol\", \"dosage\": \"1g\", \"frequency\": \"6 hourly as needed\"}]}";
+            default -> "{\"subjective\": \"Cough and fever for three days, no shortness of breath\", "
+                + "\"objective\": \"Temp 38.2C, pulse 92, chest clear on auscultation\", "
+                + "\"assessment\": \"Viral upper respiratory tract infection\", "
+                + "\"plan\": \"Rest, fluids, paracetamol; return if breathing becomes difficult\"}";
+        };
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Answer(String text, Duration firstToken, Duration perToken) {
+    }
+}
@@ -0,0 +1,51 @@
+package com.wethinkcode.demo.benchmark;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.random.RandomGenerator;
+
+/**
+ * How long the stand-in Ollama takes before its first token.
+ * Written as {@code fixed:800ms}, {@code uniform:200ms-2s} or {@code lognormal:800ms,3s}
+ * (median and 99th percentile; the long tail real models show under load).
+ */
+@FunctionalInterface
+interface LatencyDistribution {
+
+    Duration next(RandomGenerator random);
+
+    static LatencyDistribution parse(String spec) {
+        String[] kindAndArguments = spec.trim().split(":", 2);
+        if (kindAndArguments.length != 2) {
+            throw new IllegalArgumentException("Expected <kind>:<arguments> but got " + spec);
+        }
+        String arguments = kindAndArguments[1];
+        return switch (kindAndArguments[0]) {
+            case "fixed" -> fixed(DurationStyle.detectAndParse(arguments));
+            case "uniform" -> {
+                String[] range = arguments.split("-");
+                yield uniform(DurationStyle.detectAndParse(range[0]), DurationStyle.detectAndParse(range[1]));
+            }
+            case "lognormal" -> {
+                String[] medianAndP99 = arguments.split(",");
+                yield logNormal(DurationStyle.detectAndParse(medianAndP99[0]), DurationStyle.detectAndParse(medianAndP99[1]));
+            }
+            default -> throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+        };
+    }
+
+    static LatencyDistribution fixed(Duration latency) {
+        return random -> latency;
+    }
+
+    static LatencyDistribution uniform(Duration min, Duration max) {
+        return random -> Duration.ofNanos(random.nextLong(min.toNanos(), max.toNanos() + 1));
+    }
+
+    static LatencyDistribution logNormal(Duration median, Duration p99) {
+        // z of the 99th percentile of the standard normal distribution
+        double sigma = Math.log((double) p99.toNanos() / median.toNanos()) / 2.326;
+        return random -> Duration.ofNanos((long) (median.toNanos() * Math.exp(sigma * random.nextGaussian())));
+    }
+}
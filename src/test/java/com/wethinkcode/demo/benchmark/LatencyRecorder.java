@@ -0,0 +1,66 @@
+package com.wethinkcode.demo.benchmark;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Response times per endpoint, reported as throughput and p50/p95/p99
+ */
+class LatencyRecorder {
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentSkipListMap<>();
+
+    void record(String endpoint, Duration latency, boolean ok) {
+        Endpoint stats = endpoints.computeIfAbsent(endpoint, name -> new Endpoint());
+        stats.latencies.add(latency.toNanos());
+        if (!ok) {
+            stats.errors.incrementAndGet();
+        }
+    }
+
+    long errors() {
+        return endpoints.values().stream().mapToLong(endpoint -> endpoint.errors.get()).sum();
+    }
+
+    long requests() {
+        return endpoints.values().stream().mapToLong(endpoint -> endpoint.latencies.size()).sum();
+    }
+
+    /**
+     * One row per endpoint; throughput is requests per second over the whole run
+     */
+    String report(Duration wallTime) {
+        StringBuilder report = new StringBuilder(String.format("%-48s %8s %7s %9s %9s %9s %9s %9s%n",
+            "endpoint", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        endpoints.forEach((name, endpoint) -> {
+            long[] sorted = endpoint.latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            report.append(String.format("%-48s %8d %7d %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                name, sorted.length, endpoint.errors.get(), sorted.length / (wallTime.toMillis() / 1000.0),
+                millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.95)), millis(percentile(sorted, 0.99)),
+                millis(sorted.length == 0 ? 0 : sorted[sorted.length - 1])));
+        });
+        return report.toString();
+    }
+
+    static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        // Nearest rank
+        int rank = (int) Math.ceil(percentile * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static final class Endpoint {
+        private final Queue<Long> latencies = new ConcurrentLinkedQueue<>();
+        private final AtomicLong errors = new AtomicLong();
+    }
+}
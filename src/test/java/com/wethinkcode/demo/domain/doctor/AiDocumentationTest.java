@@ -2,6 +2,7 @@ package com.wethinkcode.demo.domain.doctor;
 
 import com.wethinkcode.demo.domain.shared.*;
 import com.wethinkcode.demo.infrastructure.ai.LlamaAiService;
+import com.wethinkcode.demo.infrastructure.ai.OllamaProperties;
 import com.wethinkcode.demo.infrastructure.persistence.AppointmentRepository;
 import com.wethinkcode.demo.infrastructure.persistence.MedicalRecordRepository;
 import com.wethinkcode.demo.infrastructure.persistence.UserRepository;
@@ -11,6 +12,8 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -22,6 +25,9 @@ class AiDocumentationTest {
     @Mock
     private LlamaAiService llamaAiService;
 
+    @Mock
+    private ReactiveDocumentationPipeline reactiveDocumentationPipeline;
+
     @Mock
     private UserRepository userRepository;
 
@@ -31,6 +37,9 @@ class AiDocumentationTest {
     @Mock
     private MedicalRecordRepository medicalRecordRepository;
 
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     private DoctorService doctorService;
     private Appointment appointment;
     private MedicalRecord draftRecord;
@@ -41,7 +50,9 @@ class AiDocumentationTest {
                 userRepository,
                 appointmentRepository,
                 medicalRecordRepository,
-                llamaAiService
+                new DocumentationPipeline(llamaAiService, Runnable::run, new OllamaProperties(), false),
+                reactiveDocumentationPipeline,
+                new TransactionTemplate(transactionManager)
         );
 
         // Create test patient
@@ -166,6 +177,31 @@ class AiDocumentationTest {
         assertTrue(saved.getSoapNote().contains("Plan"));
     }
 
+    @Test
+    @DisplayName("C4.4: Given SOAP note already streamed to the doctor, when saving record, then it is stored without regenerating")
+    void givenStreamedSoapNote_whenSavingRecord_thenStoredWithoutRegenerating() {
+        // Given: The SOAP note was assembled from streamed tokens on the doctor's screen
+        String roughNotes = "Patient has a headache and mild fever";
+        String streamedSoapNote = "{\"subjective\": \"Headache\", \"objective\": \"Febrile\", \"assessment\": \"Flu\", \"plan\": \"Rest\"}";
+
+        when(appointmentRepository.findById(appointment.getId())).thenReturn(java.util.Optional.of(appointment));
+        when(llamaAiService.generatePatientSummary(streamedSoapNote, TriagePriority.HIGH)).thenReturn("You have the flu. Rest and drink water.");
+        when(llamaAiService.extractPrescription(streamedSoapNote, TriagePriority.HIGH)).thenReturn("No prescriptions recommended");
+        when(medicalRecordRepository.save(any(MedicalRecord.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When: Saving the streamed note
+        MedicalRecord saved = doctorService.generateAndSaveMedicalRecord(appointment.getId(), roughNotes, streamedSoapNote);
+
+        // Then: The streamed note is stored as-is and the appointment is completed
+        assertEquals(streamedSoapNote, saved.getSoapNote());
+        assertEquals("You have the flu. Rest and drink water.", saved.getPatientSummary());
+        assertEquals(AppointmentStatus.COMPLETED, appointment.getStatus());
+        assertEquals(roughNotes, appointment.getRoughNotes());
+
+        verify(llamaAiService, never()).generateSoapNote(anyString(), any());
+        verify(appointmentRepository, times(1)).save(appointment);
+    }
+
     @Test
     @DisplayName("C5.1: Given draft note, when doctor signs, then isSigned flag is true")
     void givenDraftNote_whenDoctorSigns_thenIsSignedFlagTrue() {
@@ -235,4 +271,51 @@ class AiDocumentationTest {
 
         verify(medicalRecordRepository, times(1)).save(record1);
     }
+
+    @Test
+    @DisplayName("C5.22: Given a signed record, when the consultation is documented again, then the signed content is kept")
+    void givenSignedRecord_whenDocumentedAgain_thenSignedContentKept() {
+        // Given: The appointment's record has been signed
+        MedicalRecord signedRecord = MedicalRecord.builder()
+                .id(1L)
+                .appointmentId(appointment.getId())
+                .soapNote("Signed SOAP note")
+                .patientSummary("Signed summary")
+                .prescription("Paracetamol 500mg")
+                .isSigned(true)
+                .build();
+        when(appointmentRepository.findById(appointment.getId())).thenReturn(java.util.Optional.of(appointment));
+        when(medicalRecordRepository.findByAppointmentId(appointment.getId())).thenReturn(java.util.Optional.of(signedRecord));
+        var documentation = new DocumentationPipeline.Documentation("New SOAP note", "New summary", "No prescriptions recommended");
+
+        // When: A documentation job finishes for it
+        assertThrows(IllegalStateException.class,
+                () -> doctorService.saveMedicalRecord(appointment.getId(), "New notes", documentation));
+
+        // Then: The signed record keeps its content and stays signed
+        assertEquals("Signed SOAP note", signedRecord.getSoapNote());
+        assertEquals("Signed summary", signedRecord.getPatientSummary());
+        assertEquals("Paracetamol 500mg", signedRecord.getPrescription());
+        assertTrue(signedRecord.getIsSigned());
+        assertEquals(AppointmentStatus.IN_CONSULT, appointment.getStatus());
+        verify(medicalRecordRepository, never()).save(any(MedicalRecord.class));
+        verify(appointmentRepository, never()).save(any(Appointment.class));
+    }
+
+    @Test
+    @DisplayName("C5.23: Given a signed record, when notes are submitted again, then it is refused before the AI is called")
+    void givenSignedRecord_whenNotesSubmittedAgain_thenRefusedBeforeAi() {
+        // Given: The appointment's record has been signed
+        draftRecord.setIsSigned(true);
+        when(appointmentRepository.findById(appointment.getId())).thenReturn(java.util.Optional.of(appointment));
+        when(medicalRecordRepository.findByAppointmentId(appointment.getId())).thenReturn(java.util.Optional.of(draftRecord));
+
+        // When: The doctor records the consultation again
+        assertThrows(IllegalStateException.class,
+                () -> doctorService.generateAndSaveMedicalRecord(appointment.getId(), "New notes"));
+
+        // Then: No AI work is done and nothing is written
+        verifyNoInteractions(llamaAiService);
+        verify(medicalRecordRepository, never()).save(any(MedicalRecord.class));
+    }
 }
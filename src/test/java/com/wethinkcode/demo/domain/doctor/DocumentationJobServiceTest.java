@@ -0,0 +1,192 @@
+package com.wethinkcode.demo.domain.doctor;
+
+import com.wethinkcode.demo.domain.shared.Appointment;
+import com.wethinkcode.demo.domain.shared.DocumentationJob;
+import com.wethinkcode.demo.domain.shared.DocumentationJobStatus;
+import com.wethinkcode.demo.domain.shared.MedicalRecord;
+import com.wethinkcode.demo.domain.shared.TriagePriority;
+import com.wethinkcode.demo.infrastructure.persistence.AppointmentRepository;
+import com.wethinkcode.demo.infrastructure.persistence.DocumentationJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Story C4: Medical records are generated by background documentation jobs")
+class DocumentationJobServiceTest {
+
+    private static final String ROUGH_NOTES = "Cough for 3 days, temp 38.5";
+
+    @Mock
+    private DocumentationJobRepository documentationJobRepository;
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    @Mock
+    private DocumentationPipeline documentationPipeline;
+
+    @Mock
+    private DoctorService doctorService;
+
+    private final Map<Long, DocumentationJob> jobs = new HashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        // In-memory job table
+        lenient().when(documentationJobRepository.save(any(DocumentationJob.class))).thenAnswer(invocation -> {
+            DocumentationJob job = invocation.getArgument(0);
+            if (job.getId() == null) {
+                job.setId(ids.incrementAndGet());
+            }
+            jobs.put(job.getId(), job);
+            return job;
+        });
+        lenient().when(documentationJobRepository.findById(anyLong()))
+                .thenAnswer(invocation -> Optional.ofNullable(jobs.get(invocation.<Long>getArgument(0))));
+        lenient().when(documentationJobRepository.findFirstByAppointmentIdAndStatusInOrderByIdDesc(anyLong(), anyCollection()))
+                .thenAnswer(invocation -> jobs.values().stream()
+                        .filter(job -> job.getAppointmentId().equals(invocation.getArgument(0)))
+                        .filter(job -> invocation.<Collection<?>>getArgument(1).contains(job.getStatus()))
+                        .max(Comparator.comparing(DocumentationJob::getId)));
+    }
+
+    private DocumentationJobService service(Executor executor) {
+        return new DocumentationJobService(documentationJobRepository, appointmentRepository,
+                documentationPipeline, doctorService, executor);
+    }
+
+    @Test
+    @DisplayName("C4.13: Given a consultation, when the job runs, then the record is saved and the job is DONE")
+    void givenConsultation_whenJobRuns_thenRecordSavedAndJobDone() {
+        // Given: A valid appointment and a working AI pipeline
+        var documentation = new DocumentationPipeline.Documentation("SOAP", "Summary", "Rx");
+        when(appointmentRepository.existsById(1L)).thenReturn(true);
+        when(appointmentRepository.findById(1L)).thenReturn(Optional.of(Appointment.builder().id(1L).triagePriority(TriagePriority.HIGH).build()));
+        when(documentationPipeline.document(ROUGH_NOTES, TriagePriority.HIGH)).thenReturn(documentation);
+        when(doctorService.saveMedicalRecord(1L, ROUGH_NOTES, documentation))
+                .thenReturn(MedicalRecord.builder().id(42L).appointmentId(1L).build());
+
+        // When: Submitting the job (run inline)
+        DocumentationJob job = service(Runnable::run).submit(1L, ROUGH_NOTES);
+
+        // Then: The job finished with a link to the record
+        assertEquals(DocumentationJobStatus.DONE, jobs.get(job.getId()).getStatus());
+        assertEquals(42L, jobs.get(job.getId()).getMedicalRecordId());
+        assertNull(jobs.get(job.getId()).getError());
+    }
+
+    @Test
+    @DisplayName("C4.14: Given the AI fails, when the job runs, then the job is FAILED and nothing is saved")
+    void givenAiFails_whenJobRuns_thenJobFailedAndNothingSaved() {
+        // Given: The pipeline cannot produce a SOAP note
+        when(appointmentRepository.existsById(1L)).thenReturn(true);
+        when(documentationPipeline.document(ROUGH_NOTES, null)).thenThrow(new IllegalStateException("SOAP note generation failed"));
+
+        // When: Submitting the job
+        DocumentationJob job = service(Runnable::run).submit(1L, ROUGH_NOTES);
+
+        // Then: The failure is recorded on the job
+        assertEquals(DocumentationJobStatus.FAILED, jobs.get(job.getId()).getStatus());
+        assertEquals("SOAP note generation failed", jobs.get(job.getId()).getError());
+        verify(doctorService, never()).saveMedicalRecord(anyLong(), any(), any());
+    }
+
+    @Test
+    @DisplayName("C4.15: Given the worker queue is full, when submitting, then the job fails fast")
+    void givenWorkerQueueFull_whenSubmitting_thenJobFailsFast() {
+        // Given: An executor that rejects everything
+        when(appointmentRepository.existsById(1L)).thenReturn(true);
+        Executor saturated = task -> {
+            throw new RejectedExecutionException("full");
+        };
+
+        // When: Submitting the job
+        DocumentationJob job = service(saturated).submit(1L, ROUGH_NOTES);
+
+        // Then: The doctor is told to retry instead of waiting forever
+        assertEquals(DocumentationJobStatus.FAILED, jobs.get(job.getId()).getStatus());
+        assertEquals(DocumentationJobService.QUEUE_FULL, jobs.get(job.getId()).getError());
+        verifyNoInteractions(documentationPipeline);
+    }
+
+    @Test
+    @DisplayName("C4.16: Given an unknown appointment, when submitting, then no job is created")
+    void givenUnknownAppointment_whenSubmitting_thenNoJobCreated() {
+        // Given: The appointment does not exist
+        when(appointmentRepository.existsById(99L)).thenReturn(false);
+
+        // When / Then: Submission is refused
+        assertThrows(IllegalArgumentException.class, () -> service(Runnable::run).submit(99L, ROUGH_NOTES));
+        assertTrue(jobs.isEmpty());
+    }
+
+    @Test
+    @DisplayName("C4.39: Given two callers waiting on a queued job, when both give up, then nothing stays registered for the job")
+    void givenTwoWaiters_whenBothGiveUp_thenNothingStaysRegistered() {
+        // Given: A job that stays queued and two callers long polling it
+        when(appointmentRepository.existsById(1L)).thenReturn(true);
+        DocumentationJobService service = service(task -> { });
+        DocumentationJob job = service.submit(1L, ROUGH_NOTES);
+        CompletableFuture<DocumentationJob> first = service.whenFinished(job.getId());
+        CompletableFuture<DocumentationJob> second = service.whenFinished(job.getId());
+        assertSame(first, second);
+
+        // When: The first wait times out
+        service.stopWaiting(job.getId(), first);
+
+        // Then: The second caller is still registered
+        assertEquals(1, service.waitingJobs());
+
+        // And once the second gives up too, the job's entry is gone although the job never finished
+        service.stopWaiting(job.getId(), second);
+        assertEquals(0, service.waitingJobs());
+        assertFalse(first.isDone());
+    }
+
+    @Test
+    @DisplayName("C4.40: Given a job already queued for a consultation, when the notes are submitted again, then the queued job is returned")
+    void givenQueuedJob_whenSubmittedAgain_thenQueuedJobReturned() {
+        // Given: A job that is waiting for a worker
+        when(appointmentRepository.existsById(1L)).thenReturn(true);
+        List<Runnable> workers = new ArrayList<>();
+        DocumentationJobService service = service(workers::add);
+        DocumentationJob first = service.submit(1L, ROUGH_NOTES);
+
+        // When: The doctor submits the consultation a second time
+        DocumentationJob second = service.submit(1L, ROUGH_NOTES + ", rash");
+
+        // Then: No second job is created or dispatched
+        assertEquals(first.getId(), second.getId());
+        assertEquals(1, jobs.size());
+        assertEquals(1, workers.size());
+
+        // And once the job has finished, a new submission is accepted
+        jobs.get(first.getId()).setStatus(DocumentationJobStatus.FAILED);
+        DocumentationJob retry = service.submit(1L, ROUGH_NOTES);
+        assertNotEquals(first.getId(), retry.getId());
+        assertEquals(2, workers.size());
+    }
+}
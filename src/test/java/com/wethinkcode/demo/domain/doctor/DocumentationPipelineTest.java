@@ -0,0 +1,251 @@
+package com.wethinkcode.demo.domain.doctor;
+
+import com.wethinkcode.demo.domain.shared.TriagePriority;
+import com.wethinkcode.demo.infrastructure.ai.AiBusyException;
+import com.wethinkcode.demo.infrastructure.ai.CombinedDocumentation;
+import com.wethinkcode.demo.infrastructure.ai.LlamaAiService;
+import com.wethinkcode.demo.infrastructure.ai.OllamaProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Story C4: Documentation stages run concurrently and tolerate partial failure")
+class DocumentationPipelineTest {
+
+    private static final String ROUGH_NOTES = "Cough for 3 days, temp 38.5, crackles right base";
+    private static final String SOAP_NOTE = "{\"subjective\": \"Cough\", \"objective\": \"Crackles\", \"assessment\": \"Pneumonia\", \"plan\": \"Amoxicillin\"}";
+
+    @Mock
+    private LlamaAiService llamaAiService;
+
+    private ExecutorService executor;
+    private DocumentationPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        pipeline = new DocumentationPipeline(llamaAiService, executor, timeouts(Duration.ofMillis(500)), false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("C4.5: Given a SOAP note, when documenting, then summary and prescription are generated at the same time")
+    void givenSoapNote_whenDocumenting_thenSummaryAndPrescriptionRunConcurrently() {
+        // Given: Each stage waits until the other one has started
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        when(llamaAiService.generateSoapNote(ROUGH_NOTES, TriagePriority.HIGH)).thenReturn(SOAP_NOTE);
+        when(llamaAiService.generatePatientSummary(SOAP_NOTE, TriagePriority.HIGH)).thenAnswer(invocation -> {
+            bothStarted.countDown();
+            return bothStarted.await(400, TimeUnit.MILLISECONDS) ? "You have a chest infection." : "sequential";
+        });
+        when(llamaAiService.extractPrescription(SOAP_NOTE, TriagePriority.HIGH)).thenAnswer(invocation -> {
+            bothStarted.countDown();
+            return bothStarted.await(400, TimeUnit.MILLISECONDS) ? "Amoxicillin 500mg TID x 7 days" : "sequential";
+        });
+
+        // When: Running the pipeline
+        DocumentationPipeline.Documentation documentation = pipeline.document(ROUGH_NOTES, TriagePriority.HIGH);
+
+        // Then: Both stages overlapped and all sections are present
+        assertEquals(SOAP_NOTE, documentation.soapNote());
+        assertEquals("You have a chest infection.", documentation.patientSummary());
+        assertEquals("Amoxicillin 500mg TID x 7 days", documentation.prescription());
+    }
+
+    @Test
+    @DisplayName("C4.6: Given the summary stage fails, when documenting, then prescription is kept and summary falls back")
+    void givenSummaryStageFails_whenDocumenting_thenPrescriptionKeptAndSummaryFallsBack() {
+        // Given: The summary call throws
+        when(llamaAiService.generatePatientSummary(SOAP_NOTE, TriagePriority.HIGH)).thenThrow(new IllegalStateException("Ollama unavailable"));
+        when(llamaAiService.extractPrescription(SOAP_NOTE, TriagePriority.HIGH)).thenReturn("Amoxicillin 500mg TID x 7 days");
+
+        // When: Documenting an existing SOAP note
+        DocumentationPipeline.Documentation documentation = pipeline.documentSoapNote(SOAP_NOTE, TriagePriority.HIGH);
+
+        // Then: Only the failed section is replaced
+        assertEquals(DocumentationPipeline.SUMMARY_UNAVAILABLE, documentation.patientSummary());
+        assertEquals("Amoxicillin 500mg TID x 7 days", documentation.prescription());
+    }
+
+    @Test
+    @DisplayName("C4.7: Given a stage exceeds its timeout, when documenting, then the record is not held up")
+    void givenStageExceedsTimeout_whenDocumenting_thenRecordNotHeldUp() {
+        // Given: Prescription extraction hangs
+        when(llamaAiService.generatePatientSummary(SOAP_NOTE, TriagePriority.HIGH)).thenReturn("You have a chest infection.");
+        when(llamaAiService.extractPrescription(SOAP_NOTE, TriagePriority.HIGH)).thenAnswer(invocation -> {
+            Thread.sleep(5_000);
+            return "too late";
+        });
+
+        // When: Documenting
+        long start = System.nanoTime();
+        DocumentationPipeline.Documentation documentation = pipeline.documentSoapNote(SOAP_NOTE, TriagePriority.HIGH);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Then: The slow stage is abandoned at the stage timeout
+        assertEquals(DocumentationPipeline.PRESCRIPTION_UNAVAILABLE, documentation.prescription());
+        assertEquals("You have a chest infection.", documentation.patientSummary());
+        assertTrue(elapsedMillis < 2_000, "Pipeline should return at the stage timeout, took " + elapsedMillis + "ms");
+    }
+
+    @Test
+    @DisplayName("C4.8: Given SOAP note generation fails, when documenting, then no record can be produced")
+    void givenSoapNoteGenerationFails_whenDocumenting_thenThrows() {
+        // Given: The first stage fails
+        when(llamaAiService.generateSoapNote(ROUGH_NOTES, TriagePriority.HIGH)).thenThrow(new IllegalStateException("Ollama unavailable"));
+
+        // When / Then: The pipeline refuses to continue without a SOAP note
+        assertThrows(IllegalStateException.class, () -> pipeline.document(ROUGH_NOTES, TriagePriority.HIGH));
+        verify(llamaAiService, never()).generatePatientSummary(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("C4.9: Given combined mode and a complete answer, when documenting, then one AI call is made")
+    void givenCombinedModeAndCompleteAnswer_whenDocumenting_thenOneAiCallIsMade() {
+        // Given: The combined call returns every section
+        DocumentationPipeline combinedPipeline = new DocumentationPipeline(llamaAiService, executor, timeouts(Duration.ofMillis(500)), true);
+        when(llamaAiService.generateCombinedDocumentation(ROUGH_NOTES, TriagePriority.HIGH)).thenReturn(
+                new CombinedDocumentation(SOAP_NOTE, "You have a chest infection.", "- Amoxicillin 500mg TID"));
+
+        // When: Documenting
+        DocumentationPipeline.Documentation documentation = combinedPipeline.document(ROUGH_NOTES, TriagePriority.HIGH);
+
+        // Then: No per-section calls were needed
+        assertEquals(SOAP_NOTE, documentation.soapNote());
+        assertEquals("- Amoxicillin 500mg TID", documentation.prescription());
+        verify(llamaAiService, never()).generateSoapNote(anyString(), any());
+        verify(llamaAiService, never()).generatePatientSummary(anyString(), any());
+        verify(llamaAiService, never()).extractPrescription(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("C4.10: Given combined mode and a missing section, when documenting, then only that section is regenerated")
+    void givenCombinedModeAndMissingSection_whenDocumenting_thenOnlyThatSectionRegenerated() {
+        // Given: The model left out the prescription list
+        DocumentationPipeline combinedPipeline = new DocumentationPipeline(llamaAiService, executor, timeouts(Duration.ofMillis(500)), true);
+        when(llamaAiService.generateCombinedDocumentation(ROUGH_NOTES, TriagePriority.HIGH)).thenReturn(
+                new CombinedDocumentation(SOAP_NOTE, "You have a chest infection.", null));
+        when(llamaAiService.extractPrescription(SOAP_NOTE, TriagePriority.HIGH)).thenReturn("Amoxicillin 500mg TID x 7 days");
+
+        // When: Documenting
+        DocumentationPipeline.Documentation documentation = combinedPipeline.document(ROUGH_NOTES, TriagePriority.HIGH);
+
+        // Then: Only the prescription fell back to its own call
+        assertEquals("You have a chest infection.", documentation.patientSummary());
+        assertEquals("Amoxicillin 500mg TID x 7 days", documentation.prescription());
+        verify(llamaAiService, never()).generateSoapNote(anyString(), any());
+        verify(llamaAiService, never()).generatePatientSummary(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("C4.41: Given combined mode and an invalid SOAP note, when documenting, then every section is regenerated from the new note")
+    void givenCombinedModeAndInvalidSoapNote_whenDocumenting_thenEverySectionRegenerated() {
+        // Given: The SOAP note failed validation while the summary and prescription parsed
+        DocumentationPipeline combinedPipeline = new DocumentationPipeline(llamaAiService, executor, timeouts(Duration.ofMillis(500)), true);
+        when(llamaAiService.generateCombinedDocumentation(ROUGH_NOTES, TriagePriority.HIGH)).thenReturn(
+                new CombinedDocumentation(null, "You have a sprained ankle.", "- Ibuprofen 400mg TID"));
+        when(llamaAiService.generateSoapNote(ROUGH_NOTES, TriagePriority.HIGH)).thenReturn(SOAP_NOTE);
+        when(llamaAiService.generatePatientSummary(SOAP_NOTE, TriagePriority.HIGH)).thenReturn("You have a chest infection.");
+        when(llamaAiService.extractPrescription(SOAP_NOTE, TriagePriority.HIGH)).thenReturn("Amoxicillin 500mg TID x 7 days");
+
+        // When: Documenting
+        DocumentationPipeline.Documentation documentation = combinedPipeline.document(ROUGH_NOTES, TriagePriority.HIGH);
+
+        // Then: Nothing from the invalid answer is kept
+        assertEquals(SOAP_NOTE, documentation.soapNote());
+        assertEquals("You have a chest infection.", documentation.patientSummary());
+        assertEquals("Amoxicillin 500mg TID x 7 days", documentation.prescription());
+    }
+
+    @Test
+    @DisplayName("C4.26: Given Ollama is saturated, when documenting, then the AI busy rejection reaches the caller unchanged")
+    void givenOllamaSaturated_whenDocumenting_thenAiBusyPropagates() {
+        // Given: The admission gate turns the SOAP note request away
+        when(llamaAiService.generateSoapNote(ROUGH_NOTES, TriagePriority.LOW)).thenThrow(new AiBusyException("AI busy"));
+
+        // When / Then: The caller sees the busy rejection rather than a generic failure
+        AiBusyException busy = assertThrows(AiBusyException.class, () -> pipeline.document(ROUGH_NOTES, TriagePriority.LOW));
+        assertEquals("AI busy", busy.getMessage());
+        verify(llamaAiService, never()).generatePatientSummary(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("C4.36: Given a stage exceeds its timeout, when documenting, then the blocked call is interrupted rather than left running")
+    void givenStageExceedsTimeout_whenDocumenting_thenBlockedCallInterrupted() throws Exception {
+        // Given: Prescription extraction blocks until interrupted
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(llamaAiService.generatePatientSummary(SOAP_NOTE, TriagePriority.HIGH)).thenReturn("You have a chest infection.");
+        when(llamaAiService.extractPrescription(SOAP_NOTE, TriagePriority.HIGH)).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(10_000);
+                return "too late";
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+        });
+
+        // When: Documenting
+        DocumentationPipeline.Documentation documentation = pipeline.documentSoapNote(SOAP_NOTE, TriagePriority.HIGH);
+
+        // Then: The stage fell back and its thread was released straight away
+        assertEquals(DocumentationPipeline.PRESCRIPTION_UNAVAILABLE, documentation.prescription());
+        assertTrue(interrupted.await(2, TimeUnit.SECONDS), "the timed-out call kept running");
+    }
+
+    @Test
+    @DisplayName("C4.44: Given a SOAP note timeout longer than the other stages, when the SOAP note is slow, then it is waited for")
+    void givenLongerSoapNoteTimeout_whenSoapNoteSlow_thenWaitedFor() {
+        // Given: SOAP notes may take 2s while the other stages get 300ms, and this SOAP note takes 600ms
+        OllamaProperties properties = timeouts(Duration.ofMillis(300));
+        properties.getTimeouts().setSoapNote(Duration.ofSeconds(2));
+        DocumentationPipeline slowSoapPipeline = new DocumentationPipeline(llamaAiService, executor, properties, false);
+        when(llamaAiService.generateSoapNote(ROUGH_NOTES, TriagePriority.HIGH)).thenAnswer(invocation -> {
+            Thread.sleep(600);
+            return SOAP_NOTE;
+        });
+        when(llamaAiService.generatePatientSummary(SOAP_NOTE, TriagePriority.HIGH)).thenReturn("You have a chest infection.");
+        when(llamaAiService.extractPrescription(SOAP_NOTE, TriagePriority.HIGH)).thenReturn("Amoxicillin 500mg TID x 7 days");
+
+        // When: Documenting
+        DocumentationPipeline.Documentation documentation = slowSoapPipeline.document(ROUGH_NOTES, TriagePriority.HIGH);
+
+        // Then: The SOAP note stage used its own timeout, not the shorter one of the other stages
+        assertEquals(SOAP_NOTE, documentation.soapNote());
+        assertEquals("You have a chest infection.", documentation.patientSummary());
+    }
+
+    /**
+     * Ollama settings where every operation times out after the given duration, with no time
+     * allowed for admission or connecting, so stages fail exactly at that timeout
+     */
+    static OllamaProperties timeouts(Duration timeout) {
+        OllamaProperties properties = new OllamaProperties();
+        properties.getTimeouts().setSoapNote(timeout);
+        properties.getTimeouts().setPatientSummary(timeout);
+        properties.getTimeouts().setPrescription(timeout);
+        properties.getTimeouts().setCombinedDocumentation(timeout);
+        properties.getAdmission().setMaxWait(Duration.ZERO);
+        properties.getHttp().setConnectionRequestTimeout(Duration.ZERO);
+        properties.getHttp().setConnectTimeout(Duration.ZERO);
+        return properties;
+    }
+}
@@ -0,0 +1,148 @@
+package com.wethinkcode.demo.domain.shared;
+
+import com.wethinkcode.demo.infrastructure.persistence.AppointmentRepository;
+import com.wethinkcode.demo.infrastructure.persistence.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@DisplayName("Story C2: Doctors claim waiting patients without taking the same patient twice")
+class AppointmentClaimServiceTest {
+
+    private static final int DOCTORS = 8;
+    private static final int PATIENTS = 60;
+
+    @Autowired
+    private AppointmentClaimService appointmentClaimService;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    @DisplayName("C2.9: Given doctors clicking Accept on the same patient at once, when claiming, then exactly one gets the patient")
+    void givenSimultaneousAccepts_whenClaiming_thenExactlyOneWins() throws Exception {
+        // Given: One waiting patient and several doctors
+        Appointment appointment = registerPatient("Contested Patient", TriagePriority.HIGH);
+        List<User> doctors = createDoctors("Accept");
+
+        // When: All doctors claim the patient at the same moment
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<ClaimResult>> results = new ArrayList<>();
+        try (ExecutorService pool = Executors.newFixedThreadPool(DOCTORS)) {
+            for (User doctor : doctors) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return appointmentClaimService.claim(appointment.getId(), doctor.getId());
+                }));
+            }
+            start.countDown();
+        }
+
+        // Then: A single claim succeeded, the others were told the patient is taken, and the appointment belongs to the winner
+        int winners = 0;
+        for (Future<ClaimResult> result : results) {
+            ClaimResult outcome = result.get();
+            assertNotEquals(ClaimResult.UNKNOWN_DOCTOR, outcome);
+            winners += outcome == ClaimResult.CLAIMED ? 1 : 0;
+        }
+        assertEquals(1, winners);
+        Appointment claimed = appointmentRepository.findById(appointment.getId()).orElseThrow();
+        assertEquals(AppointmentStatus.IN_CONSULT, claimed.getStatus());
+    }
+
+    @Test
+    @DisplayName("C2.10: Given many waiting patients, when doctors take the next patient in parallel, then every patient is taken exactly once")
+    void givenManyPatients_whenDoctorsClaimNextInParallel_thenNoDoubleAssignments() throws Exception {
+        // Given: A queue of waiting patients with mixed priorities
+        List<Long> registered = new ArrayList<>();
+        for (int i = 0; i < PATIENTS; i++) {
+            registered.add(registerPatient("Stress Patient " + i, TriagePriority.values()[i % 3]).getId());
+        }
+        List<User> doctors = createDoctors("Stress");
+
+        // When: Every doctor keeps taking the next patient until the queue is empty
+        Map<Long, Long> claimedBy = new ConcurrentHashMap<>();
+        AtomicInteger doubleAssignments = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object>> workers = new ArrayList<>();
+        try (ExecutorService pool = Executors.newFixedThreadPool(DOCTORS)) {
+            for (User doctor : doctors) {
+                workers.add(pool.submit(() -> {
+                    start.await();
+                    Optional<Appointment> next;
+                    while ((next = appointmentClaimService.claimNext(doctor.getId())).isPresent()) {
+                        if (claimedBy.putIfAbsent(next.get().getId(), doctor.getId()) != null) {
+                            doubleAssignments.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+        }
+        for (Future<Object> worker : workers) {
+            worker.get();
+        }
+
+        // Then: No patient went to two doctors and none was left behind
+        assertEquals(0, doubleAssignments.get());
+        assertTrue(claimedBy.keySet().containsAll(registered));
+        for (Long appointmentId : registered) {
+            Appointment appointment = appointmentRepository.findById(appointmentId).orElseThrow();
+            assertEquals(AppointmentStatus.IN_CONSULT, appointment.getStatus());
+        }
+    }
+
+    @Test
+    @DisplayName("C2.22: Given a doctor ID that does not exist, when claiming, then nothing is claimed and no error is raised")
+    void givenUnknownDoctor_whenClaiming_thenNothingClaimed() {
+        // Given: A waiting patient and a doctor ID nobody has
+        Appointment appointment = registerPatient("Unclaimed Patient", TriagePriority.HIGH);
+        Long unknownDoctorId = 999_999L;
+
+        // When: The unknown doctor tries to take the patient, or the next one
+        ClaimResult claimed = appointmentClaimService.claim(appointment.getId(), unknownDoctorId);
+        Optional<Appointment> next = appointmentClaimService.claimNext(unknownDoctorId);
+
+        // Then: Both calls decline, the claim says why, and the patient is still waiting
+        assertEquals(ClaimResult.UNKNOWN_DOCTOR, claimed);
+        assertTrue(next.isEmpty());
+        assertEquals(AppointmentStatus.WAITING, appointmentRepository.findById(appointment.getId()).orElseThrow().getStatus());
+    }
+
+    private Appointment registerPatient(String name, TriagePriority priority) {
+        User patient = userRepository.save(User.builder().name(name).role(UserRole.PATIENT).status("WAITING").build());
+        return appointmentRepository.save(Appointment.builder()
+                .patient(patient)
+                .triagePriority(priority)
+                .status(AppointmentStatus.WAITING)
+                .roughNotes("")
+                .build());
+    }
+
+    private List<User> createDoctors(String prefix) {
+        List<User> doctors = new ArrayList<>();
+        for (int i = 0; i < DOCTORS; i++) {
+            doctors.add(userRepository.save(User.builder().name(prefix + " Doctor " + i).role(UserRole.DOCTOR).status("AVAILABLE").build()));
+        }
+        return doctors;
+    }
+}
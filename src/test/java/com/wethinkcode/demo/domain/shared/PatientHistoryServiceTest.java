@@ -0,0 +1,199 @@
+package com.wethinkcode.demo.domain.shared;
+
+import com.wethinkcode.demo.infrastructure.journal.JournalRecovery;
+import com.wethinkcode.demo.infrastructure.journal.JournalReplay;
+import com.wethinkcode.demo.infrastructure.persistence.AppointmentRepository;
+import com.wethinkcode.demo.infrastructure.persistence.MedicalRecordRepository;
+import com.wethinkcode.demo.infrastructure.persistence.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DisplayName("Story P5: Patient browses their visit history")
+class PatientHistoryServiceTest {
+
+    @Autowired
+    private PatientHistoryService patientHistoryService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private MedicalRecordRepository medicalRecordRepository;
+
+    @Autowired
+    private JournalRecovery journalRecovery;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    @DisplayName("P5.1: Given 25 visits, when paging through the history, then pages are newest first and carry their record headers")
+    void givenManyVisits_whenPaging_thenNewestFirstWithRecordHeaders() throws Exception {
+        // Given: A long-term patient with 25 visits, the newest one documented with a prescription
+        User patient = userRepository.save(User.builder().name("History Patient").role(UserRole.PATIENT).status("WAITING").build());
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            ids.add(appointmentRepository.save(Appointment.builder()
+                    .patient(patient)
+                    .triagePriority(TriagePriority.LOW)
+                    .status(AppointmentStatus.COMPLETED)
+                    .roughNotes("")
+                    .build()).getId());
+        }
+        Long newest = ids.get(24);
+        medicalRecordRepository.save(MedicalRecord.builder()
+                .appointmentId(newest)
+                .soapNote("Follow-up")
+                .prescription("- Metformin 500mg BID")
+                .isSigned(true)
+                .build());
+
+        // When: Reading the first page and then the next one
+        PatientHistoryPage first = patientHistoryService.getHistory(patient.getId(), null, PatientHistoryService.DEFAULT_PAGE_SIZE);
+        PatientHistoryPage second = patientHistoryService.getHistory(patient.getId(), first.nextBefore(), PatientHistoryService.DEFAULT_PAGE_SIZE);
+
+        // Then: The newest 20 visits, then the remaining 5, with nothing after that
+        assertEquals(ids.reversed().subList(0, 20), first.entries().stream().map(PatientHistoryEntry::id).toList());
+        assertEquals(ids.reversed().subList(20, 25), second.entries().stream().map(PatientHistoryEntry::id).toList());
+        assertNull(second.nextBefore());
+
+        // And the record header came with the visit
+        PatientHistoryEntry latest = first.entries().get(0);
+        assertTrue(latest.isSigned());
+        assertTrue(latest.hasPrescription());
+        assertNull(first.entries().get(1).recordId());
+
+        // And the page renders with a link to older visits
+        mockMvc.perform(get("/patient/view").param("patientId", patient.getId().toString()))
+            .andExpect(status().isOk())
+            .andExpect(content().string(containsString("before=" + first.nextBefore())))
+            .andExpect(content().string(containsString("Prescription included")));
+        mockMvc.perform(get("/patient/history").param("patientId", patient.getId().toString()).param("before", first.nextBefore().toString()))
+            .andExpect(jsonPath("$.entries.length()").value(5))
+            .andExpect(jsonPath("$.summary.visitCount").value(25));
+    }
+
+    @Test
+    @DisplayName("P5.2: Given visits completing and records being signed, when saved again, then each is counted in the summary once")
+    void givenVisitsCompletedAndSigned_whenSavedAgain_thenCountedOnce() {
+        // Given: A patient in consultation
+        User patient = userRepository.save(User.builder().name("Summary Patient").role(UserRole.PATIENT).status("WAITING").build());
+        Appointment appointment = appointmentRepository.save(Appointment.builder()
+                .patient(patient)
+                .triagePriority(TriagePriority.HIGH)
+                .status(AppointmentStatus.IN_CONSULT)
+                .roughNotes("")
+                .build());
+        assertEquals(0, patientHistoryService.getSummary(patient.getId()).getVisitCount());
+
+        // When: The consultation completes, and the appointment is saved again afterwards
+        appointment.setStatus(AppointmentStatus.COMPLETED);
+        appointment = appointmentRepository.save(appointment);
+        appointment.setRoughNotes("Amended notes");
+        appointmentRepository.save(appointment);
+
+        // And its record with a prescription is signed, then saved again
+        MedicalRecord record = medicalRecordRepository.save(MedicalRecord.builder()
+                .appointmentId(appointment.getId())
+                .soapNote("Chest infection")
+                .prescription("- Amoxicillin 500mg TID")
+                .build());
+        record.setIsSigned(true);
+        record = medicalRecordRepository.save(record);
+        record.setPatientSummary("You have a chest infection.");
+        medicalRecordRepository.save(record);
+
+        // Then: One visit and one prescription
+        PatientSummary summary = patientHistoryService.getSummary(patient.getId());
+        assertEquals(1, summary.getVisitCount());
+        assertNotNull(summary.getLastVisitAt());
+        assertEquals(1, summary.getPrescriptionsIssued());
+    }
+
+    @Test
+    @DisplayName("P5.3: Given a completion and signature only the journal kept, when recovering, then the summary counts them")
+    void givenCompletionAndSignatureOnlyInJournal_whenRecovering_thenSummaryCountsThem() {
+        // Given: The database lost the completion and the signature of a visit with a prescription
+        User patient = userRepository.save(User.builder().name("Recovered Patient").role(UserRole.PATIENT).status("WAITING").build());
+        Appointment appointment = appointmentRepository.save(Appointment.builder()
+                .patient(patient)
+                .triagePriority(TriagePriority.MEDIUM)
+                .status(AppointmentStatus.IN_CONSULT)
+                .roughNotes("")
+                .build());
+        MedicalRecord record = medicalRecordRepository.save(MedicalRecord.builder()
+                .appointmentId(appointment.getId())
+                .soapNote("Sprained ankle")
+                .prescription("- Ibuprofen 400mg TID")
+                .build());
+
+        // When: Recovery replays the journal that saw both
+        int repaired = journalRecovery.recover(new JournalReplay.State(
+                Map.of(appointment.getId(), AppointmentStatus.COMPLETED.name()),
+                Map.of(record.getId(), "SIGNED"),
+                2));
+
+        // Then: Both rows are repaired and the summary counts the visit and the prescription
+        assertEquals(2, repaired);
+        PatientSummary summary = patientHistoryService.getSummary(patient.getId());
+        assertEquals(1, summary.getVisitCount());
+        assertNotNull(summary.getLastVisitAt());
+        assertEquals(1, summary.getPrescriptionsIssued());
+    }
+
+    @Test
+    @DisplayName("P5.4: Given a signed record whose notes prescribe nothing, when viewing the history, then no prescription is shown or counted")
+    void givenSignedRecordWithoutMedication_whenViewingHistory_thenNoPrescriptionShownOrCounted() throws Exception {
+        // Given: A completed visit whose signed record has the "no prescriptions" placeholder
+        User patient = userRepository.save(User.builder().name("No Medication Patient").role(UserRole.PATIENT).status("WAITING").build());
+        Appointment appointment = appointmentRepository.save(Appointment.builder()
+                .patient(patient)
+                .triagePriority(TriagePriority.LOW)
+                .status(AppointmentStatus.COMPLETED)
+                .roughNotes("Mild cold, rest and fluids")
+                .build());
+        MedicalRecord record = medicalRecordRepository.save(MedicalRecord.builder()
+                .appointmentId(appointment.getId())
+                .soapNote("Viral upper respiratory infection")
+                .prescription(MedicalRecord.NO_PRESCRIPTIONS)
+                .build());
+        record.setIsSigned(true);
+        medicalRecordRepository.save(record);
+
+        // When: Reading the history
+        PatientHistoryPage page = patientHistoryService.getHistory(patient.getId(), null, PatientHistoryService.DEFAULT_PAGE_SIZE);
+
+        // Then: The visit is signed but carries no prescription, and none is counted as issued
+        PatientHistoryEntry entry = page.entries().get(0);
+        assertTrue(entry.isSigned());
+        assertFalse(entry.hasPrescription());
+        assertEquals(1, page.summary().getVisitCount());
+        assertEquals(0, page.summary().getPrescriptionsIssued());
+
+        // And the page does not claim a prescription
+        mockMvc.perform(get("/patient/view").param("patientId", patient.getId().toString()))
+            .andExpect(status().isOk())
+            .andExpect(content().string(not(containsString("Prescription included"))));
+    }
+}
@@ -0,0 +1,95 @@
+package com.wethinkcode.demo.domain.shared;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@RecordApplicationEvents
+@DisplayName("Story C2: Nurse imports a surge of patients from a file")
+class PatientImportServiceTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PatientImportService patientImportService;
+
+    @Autowired
+    private TriageService triageService;
+
+    @Autowired
+    private ApplicationEvents applicationEvents;
+
+    @Test
+    @DisplayName("C2.15: Given a 10k row CSV with bad rows, when imported, then valid rows are queued and bad rows reported by line")
+    void givenLargeCsvWithBadRows_whenImported_thenValidRowsQueuedAndBadRowsReported() throws Exception {
+        // Given: A header, 10,000 patients and three bad rows
+        StringBuilder csv = new StringBuilder("patientName,triagePriority\n");
+        for (int i = 0; i < 10_000; i++) {
+            csv.append("\"Surge, Patient ").append(i).append("\",").append(TriagePriority.values()[i % 3]).append('\n');
+            if (i == 10) {
+                csv.append("Bad Priority,URGENT\n");
+                csv.append(",HIGH\n");
+                csv.append("Too,Many,Columns\n");
+            }
+        }
+
+        // When: The file is posted to the import endpoint
+        String response = mockMvc.perform(post("/nurse/import-patients").contentType("text/csv").content(csv.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(10_000))
+                .andExpect(jsonPath("$.rejected").value(3))
+                .andReturn().getResponse().getContentAsString();
+
+        // Then: Each bad row is reported with its line number
+        assertEquals(List.of(13, 14, 15), JsonPath.read(response, "$.errors[*].line"));
+        assertTrue(JsonPath.<String>read(response, "$.errors[0].message").contains("URGENT"));
+
+        // And the queue was updated by one event per saved chunk instead of one per row
+        assertEquals(0, applicationEvents.stream(AppointmentStatusChangedEvent.class).count());
+        List<AppointmentsImportedEvent> imports = applicationEvents.stream(AppointmentsImportedEvent.class).toList();
+        assertEquals(10_000 / PatientRegistrationService.CHUNK_SIZE, imports.size());
+        List<Long> importedIds = imports.stream()
+                .flatMap(imported -> imported.changes().stream())
+                .map(AppointmentStatusChangedEvent::appointmentId)
+                .toList();
+        assertEquals(10_000, importedIds.size());
+        assertTrue(triageService.getWaitingAppointmentIds().containsAll(importedIds));
+    }
+
+    @Test
+    @DisplayName("C2.16: Given NDJSON rows, when imported, then priorities are validated per row")
+    void givenNdjsonRows_whenImported_thenPrioritiesValidatedPerRow() throws Exception {
+        // Given: Two valid rows, one lower-case priority and one malformed line
+        String ndjson = """
+                {"patientName": "Ndjson One", "triagePriority": "HIGH"}
+                {"patientName": "Ndjson Two", "triagePriority": "low"}
+                {"patientName": "Ndjson Three", "triagePriority": "SOON"}
+                not json
+                """;
+
+        // When: The rows are imported
+        PatientImportResult result = patientImportService.importPatients(new StringReader(ndjson), PatientImportService.Format.NDJSON);
+
+        // Then: The valid rows are imported and the others reported
+        assertEquals(2, result.imported());
+        assertEquals(2, result.rejected());
+        assertEquals(List.of(3L, 4L), result.errors().stream().map(PatientImportResult.RowError::line).toList());
+    }
+}
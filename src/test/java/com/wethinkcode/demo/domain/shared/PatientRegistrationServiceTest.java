@@ -0,0 +1,72 @@
+package com.wethinkcode.demo.domain.shared;
+
+import com.wethinkcode.demo.infrastructure.persistence.AppointmentRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@DisplayName("Story C2: Nurse registers many waiting patients at once")
+class PatientRegistrationServiceTest {
+
+    @Autowired
+    private PatientRegistrationService patientRegistrationService;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private TriageService triageService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    @DisplayName("C2.13: Given 2000 arriving patients, when registered in bulk, then the inserts are batched and all join the queue")
+    void givenManyPatients_whenRegisteredInBulk_thenInsertsBatchedAndAllQueued() {
+        // Given: 2000 patients across all priorities
+        List<PatientRegistration> registrations = IntStream.range(0, 2000)
+                .mapToObj(i -> new PatientRegistration("Bulk Patient " + i, TriagePriority.values()[i % 3]))
+                .toList();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // When: They are registered in one call
+        List<Appointment> appointments = patientRegistrationService.registerAll(registrations);
+
+        // Then: 4000 rows cost a few hundred statements at most, not one per row
+        assertEquals(2000, appointments.size());
+        assertEquals(4000, statistics.getEntityInsertCount());
+        assertTrue(statistics.getPrepareStatementCount() < 400,
+                "Expected batched inserts but prepared " + statistics.getPrepareStatementCount() + " statements");
+
+        // And every appointment is stored and waiting in the triage queue
+        List<Long> ids = appointments.stream().map(Appointment::getId).toList();
+        assertEquals(2000, appointmentRepository.findAllById(ids).size());
+        assertTrue(triageService.getWaitingAppointmentIds().containsAll(ids));
+    }
+
+    @Test
+    @DisplayName("C2.14: Given one registration without a name, when registering in bulk, then nobody is registered")
+    void givenInvalidRegistration_whenRegisteringInBulk_thenNobodyRegistered() {
+        // Given: A valid registration followed by one without a name
+        long before = appointmentRepository.count();
+        List<PatientRegistration> registrations = new ArrayList<>();
+        registrations.add(new PatientRegistration("Valid Patient", TriagePriority.LOW));
+        registrations.add(new PatientRegistration(" ", TriagePriority.HIGH));
+
+        // When / Then: The request is rejected as a whole
+        assertThrows(IllegalArgumentException.class, () -> patientRegistrationService.registerAll(registrations));
+        assertEquals(before, appointmentRepository.count());
+    }
+}
@@ -0,0 +1,51 @@
+package com.wethinkcode.demo.domain.shared;
+
+import com.wethinkcode.demo.infrastructure.persistence.AppointmentRepository;
+import com.wethinkcode.demo.infrastructure.persistence.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@DisplayName("Story C2: The triage queue follows appointment status changes")
+class TriageQueueIntegrationTest {
+
+    @Autowired
+    private TriageService triageService;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    @DisplayName("C2.8: Given a registered patient, when the appointment is accepted, then it leaves the triage queue")
+    void givenRegisteredPatient_whenAccepted_thenLeavesQueue() {
+        // Given: A HIGH priority patient is registered
+        User patient = userRepository.save(User.builder().name("Queue Patient").role(UserRole.PATIENT).status("WAITING").build());
+        Appointment appointment = appointmentRepository.save(Appointment.builder()
+                .patient(patient)
+                .triagePriority(TriagePriority.HIGH)
+                .status(AppointmentStatus.WAITING)
+                .roughNotes("")
+                .build());
+        assertTrue(waitingIds().contains(appointment.getId()));
+
+        // When: A doctor accepts the appointment
+        appointment.setStatus(AppointmentStatus.IN_CONSULT);
+        appointmentRepository.save(appointment);
+
+        // Then: The queue no longer lists it
+        assertFalse(waitingIds().contains(appointment.getId()));
+    }
+
+    private List<Long> waitingIds() {
+        return triageService.getWaitingAppointmentsByPriority().stream().map(Appointment::getId).toList();
+    }
+}
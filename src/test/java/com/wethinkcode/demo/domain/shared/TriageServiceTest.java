@@ -204,4 +204,56 @@ class TriageServiceTest {
         assertEquals(AppointmentStatus.IN_CONSULT, saved.getStatus());
         verify(appointmentRepository, times(1)).save(appointmentB);
     }
+
+    @Test
+    @DisplayName("C2.6: Given a loaded queue, when a patient is registered, then the dashboard sees them without re-sorting the waiting list")
+    void givenLoadedQueue_whenPatientRegistered_thenQueueUpdatedFromEvent() {
+        // Given: The queue was loaded with a LOW and a MEDIUM patient
+        when(appointmentRepository.findByStatus(AppointmentStatus.WAITING)).thenReturn(Arrays.asList(appointmentA, appointmentC));
+        triageService.loadQueue();
+
+        // When: A HIGH priority patient is registered
+        triageService.onAppointmentStatusChanged(new AppointmentStatusChangedEvent(2L, TriagePriority.HIGH, AppointmentStatus.WAITING));
+        when(appointmentRepository.findAllById(List.of(2L, 3L, 1L))).thenReturn(Arrays.asList(appointmentA, appointmentB, appointmentC));
+        List<Appointment> result = triageService.getWaitingAppointmentsByPriority();
+
+        // Then: The new patient is first and the waiting list was not loaded again
+        assertEquals(List.of(2L, 3L, 1L), result.stream().map(Appointment::getId).toList());
+        verify(appointmentRepository, times(1)).findByStatus(AppointmentStatus.WAITING);
+    }
+
+    @Test
+    @DisplayName("C2.7: Given a loaded queue, when the HIGH priority patient is assigned, then the next patient is the MEDIUM one")
+    void givenLoadedQueue_whenHighPriorityAssigned_thenNextIsMedium() {
+        // Given: The queue was loaded with all three patients
+        when(appointmentRepository.findByStatus(AppointmentStatus.WAITING)).thenReturn(Arrays.asList(appointmentA, appointmentB, appointmentC));
+        triageService.loadQueue();
+
+        // When: The HIGH priority patient goes into consultation
+        triageService.onAppointmentStatusChanged(new AppointmentStatusChangedEvent(2L, TriagePriority.HIGH, AppointmentStatus.IN_CONSULT));
+        when(appointmentRepository.findById(3L)).thenReturn(java.util.Optional.of(appointmentC));
+        Appointment next = triageService.getNextHighPriorityAppointment();
+
+        // Then: Only the head of the queue is looked up
+        assertEquals(3L, next.getId());
+        verify(appointmentRepository, never()).findById(2L);
+        verify(appointmentRepository, never()).findById(1L);
+    }
+
+    @Test
+    @DisplayName("C2.21: Given the application restarted with the same queue, when reading the queue version, then the queue is loaded and the epoch differs")
+    void givenRestart_whenReadingQueueVersion_thenLoadedAndEpochDiffers() {
+        // Given: The same waiting list before and after a restart
+        when(appointmentRepository.findByStatus(AppointmentStatus.WAITING)).thenReturn(Arrays.asList(appointmentA, appointmentC));
+        TriageService restarted = new TriageService(appointmentRepository);
+
+        // When: Both runs report their queue version without having loaded the queue yet
+        long before = triageService.getQueueVersion();
+        long after = restarted.getQueueVersion();
+
+        // Then: The versions can coincide, so only the epoch tells the runs apart
+        assertEquals(before, after);
+        assertNotEquals(triageService.getQueueEpoch(), restarted.getQueueEpoch());
+        verify(appointmentRepository, times(2)).findByStatus(AppointmentStatus.WAITING);
+    }
 }
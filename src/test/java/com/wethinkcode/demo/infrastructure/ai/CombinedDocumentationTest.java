@@ -0,0 +1,70 @@
+package com.wethinkcode.demo.infrastructure.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Story C4: Combined documentation answers are validated section by section")
+class CombinedDocumentationTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("C4.11: Given a well-formed combined answer, when parsing, then all sections are present")
+    void givenWellFormedAnswer_whenParsing_thenAllSectionsPresent() throws Exception {
+        // Given: A JSON answer with every field
+        String json = """
+                {"soap": {"subjective": "Cough", "objective": "Crackles", "assessment": "Pneumonia", "plan": "Antibiotics"},
+                 "patient_summary": "You have a chest infection.",
+                 "prescriptions": [{"name": "Amoxicillin", "dosage": "500mg", "frequency": "TID"}, "Paracetamol 1g as needed"]}
+                """;
+
+        // When: Parsing it
+        CombinedDocumentation documentation = CombinedDocumentation.fromJson(objectMapper.readTree(json), objectMapper);
+
+        // Then: SOAP note keeps the standalone format and prescriptions become a list
+        assertTrue(documentation.isComplete());
+        assertEquals("Pneumonia", objectMapper.readTree(documentation.soapNote()).get("assessment").asText());
+        assertEquals("- Amoxicillin 500mg TID\n- Paracetamol 1g as needed", documentation.prescription());
+    }
+
+    @Test
+    @DisplayName("C4.12: Given an answer with an incomplete SOAP note, when parsing, then only that section is missing")
+    void givenIncompleteSoapNote_whenParsing_thenOnlySoapSectionMissing() throws Exception {
+        // Given: The plan is blank and prescriptions are empty
+        String json = """
+                {"soap": {"subjective": "Cough", "objective": "Crackles", "assessment": "Pneumonia", "plan": " "},
+                 "patient_summary": "You have a chest infection.",
+                 "prescriptions": []}
+                """;
+
+        // When: Parsing it
+        CombinedDocumentation documentation = CombinedDocumentation.fromJson(objectMapper.readTree(json), objectMapper);
+
+        // Then: The SOAP note is invalid; the other sections are valid on their own
+        assertNull(documentation.soapNote());
+        assertEquals("You have a chest infection.", documentation.patientSummary());
+        assertEquals(CombinedDocumentation.NO_PRESCRIPTIONS, documentation.prescription());
+    }
+
+    @Test
+    @DisplayName("C4.42: Given a prescription entry without a medication name, when parsing, then the prescription section is invalid")
+    void givenPrescriptionWithoutName_whenParsing_thenPrescriptionInvalid() throws Exception {
+        // Given: One entry lost its name and another is not text at all
+        String json = """
+                {"soap": {"subjective": "Cough", "objective": "Crackles", "assessment": "Pneumonia", "plan": "Antibiotics"},
+                 "patient_summary": "You have a chest infection.",
+                 "prescriptions": [{"dosage": "500mg", "frequency": "TID"}, 42]}
+                """;
+
+        // When: Parsing it
+        CombinedDocumentation documentation = CombinedDocumentation.fromJson(objectMapper.readTree(json), objectMapper);
+
+        // Then: The prescription is regenerated rather than reported as "no prescriptions"
+        assertNull(documentation.prescription());
+        assertNotNull(documentation.soapNote());
+        assertFalse(documentation.isComplete());
+    }
+}
@@ -0,0 +1,93 @@
+package com.wethinkcode.demo.infrastructure.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import com.wethinkcode.demo.domain.shared.TriagePriority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Story C4: Ollama failures are reported, not saved into the record")
+class LlamaAiServiceTest {
+
+    private HttpServer server;
+    private OllamaTransport transport;
+    private LlamaAiService service;
+    private ReactiveLlamaAiService reactiveService;
+    private final AtomicInteger status = new AtomicInteger(200);
+    private final AtomicReference<String> body = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // A stand-in for Ollama that answers every request with the chosen status and body
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 10);
+        server.createContext("/api/generate", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            String answer = body.get();
+            if (answer == null) {
+                exchange.sendResponseHeaders(status.get(), -1);
+            } else {
+                byte[] bytes = answer.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(status.get(), bytes.length);
+                exchange.getResponseBody().write(bytes);
+            }
+            exchange.close();
+        });
+        server.start();
+
+        OllamaProperties properties = new OllamaProperties();
+        properties.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        transport = new OllamaTransport(properties, WebClient.builder());
+        service = new LlamaAiService(properties, transport, new OllamaResponseCache(true, 10, null),
+                new OllamaAdmissionGate(2, 10, Duration.ofSeconds(5)), new OllamaMetrics(new SimpleMeterRegistry()), new ObjectMapper());
+        reactiveService = new ReactiveLlamaAiService(transport, new OllamaResponseCache(true, 10, null),
+                new OllamaAdmissionGate(2, 10, Duration.ofSeconds(5)), properties, new OllamaMetrics(new SimpleMeterRegistry()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("C4.37: Given Ollama answering 500, when generating a summary, then the call fails instead of returning error text")
+    void givenServerError_whenGeneratingSummary_thenThrows() {
+        // Given: Ollama fails every request
+        status.set(500);
+
+        // When / Then: The failure surfaces so the pipeline can use its placeholder
+        IllegalStateException failure = assertThrows(IllegalStateException.class,
+                () -> service.generatePatientSummary("SOAP", TriagePriority.MEDIUM));
+        assertTrue(failure.getMessage().contains("PATIENT_SUMMARY"), failure.getMessage());
+    }
+
+    @Test
+    @DisplayName("C4.38: Given Ollama answering without a response field, when generating, then the blocking and reactive clients fail the same way")
+    void givenAnswerWithoutResponse_whenGenerating_thenBothClientsFailAlike() {
+        // Given: Ollama answers 200 but the body carries no generated text
+        body.set("{\"model\":\"llama2\",\"done\":true}");
+
+        // When: Both clients ask for a prescription
+        IllegalStateException blocking = assertThrows(IllegalStateException.class,
+                () -> service.extractPrescription("SOAP", TriagePriority.MEDIUM));
+        IllegalStateException reactive = assertThrows(IllegalStateException.class,
+                () -> reactiveService.extractPrescription("SOAP", TriagePriority.MEDIUM).block(Duration.ofSeconds(5)));
+
+        // Then: Neither turns the missing answer into text, and they report it with the same message
+        assertEquals("Ollama returned no answer for PRESCRIPTION", blocking.getMessage());
+        assertEquals(blocking.getMessage(), reactive.getMessage());
+    }
+}
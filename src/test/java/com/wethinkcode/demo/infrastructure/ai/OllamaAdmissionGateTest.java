@@ -0,0 +1,119 @@
+package com.wethinkcode.demo.infrastructure.ai;
+
+import com.wethinkcode.demo.domain.shared.TriagePriority;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import reactor.core.Disposable;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Story C4: Ollama requests are admitted by triage priority and rejected when the queue is saturated")
+class OllamaAdmissionGateTest {
+
+    @Test
+    @DisplayName("C4.23: Given a busy Ollama, when LOW and then HIGH requests wait, then the HIGH request goes first")
+    void givenBusyOllama_whenLowThenHighWait_thenHighGoesFirst() throws Exception {
+        // Given: The only slot is taken
+        OllamaAdmissionGate gate = new OllamaAdmissionGate(1, 10, Duration.ofSeconds(10));
+        OllamaAdmissionGate.Permit running = gate.enter(TriagePriority.MEDIUM);
+        List<TriagePriority> admitted = new CopyOnWriteArrayList<>();
+
+        // When: A LOW request queues up before a HIGH one
+        Thread low = Thread.ofVirtual().start(() -> admitAndRecord(gate, TriagePriority.LOW, admitted));
+        awaitQueued(gate, 1);
+        Thread high = Thread.ofVirtual().start(() -> admitAndRecord(gate, TriagePriority.HIGH, admitted));
+        awaitQueued(gate, 2);
+        running.close();
+        low.join(5000);
+        high.join(5000);
+
+        // Then: The HIGH request overtook the LOW one
+        assertEquals(List.of(TriagePriority.HIGH, TriagePriority.LOW), admitted);
+        assertEquals(0, gate.activeRequests());
+    }
+
+    @Test
+    @DisplayName("C4.24: Given a full queue, when another request arrives, then it is rejected immediately as AI busy")
+    void givenFullQueue_whenAnotherRequestArrives_thenRejectedImmediately() throws Exception {
+        // Given: One request running and one waiting, with room for only one waiter
+        OllamaAdmissionGate gate = new OllamaAdmissionGate(1, 1, Duration.ofSeconds(10));
+        OllamaAdmissionGate.Permit running = gate.enter(TriagePriority.MEDIUM);
+        Thread waiter = Thread.ofVirtual().start(() -> admitAndRecord(gate, TriagePriority.MEDIUM, new CopyOnWriteArrayList<>()));
+        awaitQueued(gate, 1);
+
+        // When: A further request arrives
+        long start = System.nanoTime();
+        AiBusyException busy = assertThrows(AiBusyException.class, () -> gate.enter(TriagePriority.HIGH));
+
+        // Then: It is turned away without waiting
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1000);
+        assertEquals(OllamaAdmissionGate.BUSY_MESSAGE, busy.getMessage());
+        running.close();
+        waiter.join(5000);
+    }
+
+    @Test
+    @DisplayName("C4.25: Given a slot that never frees up, when a request waits longer than allowed, then it is rejected and leaves the queue")
+    void givenSlotNeverFrees_whenMaxWaitPasses_thenRejectedAndDequeued() throws Exception {
+        // Given: The only slot stays taken
+        OllamaAdmissionGate gate = new OllamaAdmissionGate(1, 10, Duration.ofMillis(100));
+        OllamaAdmissionGate.Permit running = gate.enter(TriagePriority.MEDIUM);
+
+        // When / Then: The waiting request gives up after max wait
+        assertThrows(AiBusyException.class, () -> gate.enter(TriagePriority.LOW));
+        assertEquals(0, gate.queuedRequests());
+
+        // And the slot is available again once released
+        running.close();
+        running.close();
+        try (OllamaAdmissionGate.Permit next = gate.enter(TriagePriority.LOW)) {
+            assertEquals(1, gate.activeRequests());
+        }
+        assertEquals(0, gate.activeRequests());
+    }
+
+    @Test
+    @DisplayName("C4.28: Given reactive requests queued without a thread, when one is cancelled and the slot frees, then the next one is admitted")
+    void givenReactiveWaiters_whenOneCancelledAndSlotFrees_thenNextAdmitted() throws Exception {
+        // Given: The only slot is taken and two reactive requests are queued
+        OllamaAdmissionGate gate = new OllamaAdmissionGate(1, 10, Duration.ofSeconds(10));
+        OllamaAdmissionGate.Permit running = gate.enter(TriagePriority.MEDIUM);
+        Disposable abandoned = gate.admit(TriagePriority.HIGH).subscribe();
+        CompletableFuture<OllamaAdmissionGate.Permit> next = gate.admit(TriagePriority.LOW).toFuture();
+        assertEquals(2, gate.queuedRequests());
+
+        // When: The HIGH request is cancelled (the doctor left) and the slot is released
+        abandoned.dispose();
+        running.close();
+
+        // Then: The LOW request got the slot and the cancelled one left the queue
+        OllamaAdmissionGate.Permit permit = next.get(5, TimeUnit.SECONDS);
+        assertEquals(1, gate.activeRequests());
+        assertEquals(0, gate.queuedRequests());
+        permit.close();
+        assertEquals(0, gate.activeRequests());
+    }
+
+    private static void admitAndRecord(OllamaAdmissionGate gate, TriagePriority priority, List<TriagePriority> admitted) {
+        try (OllamaAdmissionGate.Permit permit = gate.enter(priority)) {
+            admitted.add(priority);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitQueued(OllamaAdmissionGate gate, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (gate.queuedRequests() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, gate.queuedRequests());
+    }
+}
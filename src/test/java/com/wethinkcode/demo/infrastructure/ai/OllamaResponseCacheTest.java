@@ -0,0 +1,274 @@
+package com.wethinkcode.demo.infrastructure.ai;
+
+import com.wethinkcode.demo.domain.shared.TriagePriority;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Story C4: Repeated Ollama prompts are answered from the response cache")
+class OllamaResponseCacheTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("C4.19: Given the same request twice, when cached, then Ollama is only called once")
+    void givenSameRequestTwice_whenCached_thenOllamaCalledOnce() throws Exception {
+        // Given: A memory-only cache and a loader that counts calls
+        OllamaResponseCache cache = new OllamaResponseCache(true, 10, null);
+        AtomicInteger calls = new AtomicInteger();
+        String key = OllamaResponseCache.key(Map.of("model", "llama2", "prompt", "Summarise", "stream", false));
+
+        // When: Asking for the same answer twice, once with a different stream flag
+        String first = cache.getOrCompute(key, () -> "answer " + calls.incrementAndGet());
+        String second = cache.getOrCompute(
+            OllamaResponseCache.key(Map.of("model", "llama2", "prompt", "Summarise", "stream", true)),
+            () -> "answer " + calls.incrementAndGet());
+
+        // Then: The second answer comes from the cache
+        assertEquals("answer 1", first);
+        assertEquals("answer 1", second);
+        assertEquals(1, calls.get());
+        assertEquals(1, cache.stats().hits());
+        assertEquals(1, cache.stats().misses());
+    }
+
+    @Test
+    @DisplayName("C4.20: Given a full memory tier, when a new answer arrives, then the least recently used one is evicted")
+    void givenFullMemoryTier_whenNewAnswer_thenLeastRecentlyUsedEvicted() throws Exception {
+        // Given: Room for two answers, with "a" used more recently than "b"
+        OllamaResponseCache cache = new OllamaResponseCache(true, 2, null);
+        cache.getOrCompute(key("a"), () -> "A");
+        cache.getOrCompute(key("b"), () -> "B");
+        cache.getOrCompute(key("a"), () -> "unexpected");
+
+        // When: A third answer is cached
+        cache.getOrCompute(key("c"), () -> "C");
+
+        // Then: "b" was evicted and has to be generated again
+        assertEquals(1, cache.stats().evictions());
+        assertEquals("A", cache.getOrCompute(key("a"), () -> "unexpected"));
+        assertEquals("B again", cache.getOrCompute(key("b"), () -> "B again"));
+    }
+
+    @Test
+    @DisplayName("C4.21: Given cached answers on disk, when the application restarts, then they are served without calling Ollama")
+    void givenAnswersOnDisk_whenRestarted_thenServedFromDisk() throws Exception {
+        // Given: Two answers written by a previous run
+        OllamaResponseCache previousRun = new OllamaResponseCache(true, 10, directory.toString());
+        previousRun.getOrCompute(key("summary"), () -> "You have a chest infection.");
+        previousRun.getOrCompute(key("prescription"), () -> "- Amoxicillin 500mg TID");
+        previousRun.close();
+
+        // When: A new cache is opened on the same directory
+        OllamaResponseCache cache = new OllamaResponseCache(true, 10, directory.toString());
+
+        // Then: Both answers come from disk
+        assertEquals(2, cache.stats().diskEntries());
+        assertEquals("You have a chest infection.", cache.getOrCompute(key("summary"), () -> "unexpected"));
+        assertEquals("- Amoxicillin 500mg TID", cache.getOrCompute(key("prescription"), () -> "unexpected"));
+        assertEquals(2, cache.stats().diskHits());
+        assertEquals(0, cache.stats().misses());
+        cache.close();
+    }
+
+    @Test
+    @DisplayName("C4.22: Given a half-written entry at the end of the log, when opening the cache, then earlier entries survive")
+    void givenTornTail_whenOpening_thenEarlierEntriesSurvive() throws Exception {
+        // Given: One complete entry followed by garbage from an interrupted write
+        OllamaResponseCache previousRun = new OllamaResponseCache(true, 10, directory.toString());
+        previousRun.getOrCompute(key("summary"), () -> "You have a chest infection.");
+        previousRun.close();
+        Path log = directory.resolve("responses.log");
+        long intactSize = Files.size(log);
+        Files.write(log, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9}, StandardOpenOption.APPEND);
+
+        // When: Opening the cache again
+        OllamaResponseCache cache = new OllamaResponseCache(true, 10, directory.toString());
+
+        // Then: The complete entry is kept and the torn tail is cut off
+        assertEquals("You have a chest infection.", cache.getOrCompute(key("summary"), () -> "unexpected"));
+        assertEquals(intactSize, Files.size(log));
+        cache.close();
+    }
+
+    @Test
+    @DisplayName("C4.34: Given many doctors asking for the same summary at once, when it is not cached yet, then Ollama is called once")
+    void givenConcurrentIdenticalMisses_whenLoading_thenOllamaCalledOnce() throws Exception {
+        // Given: A slow loader that counts calls
+        OllamaResponseCache cache = new OllamaResponseCache(true, 10, null);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch allWaiting = new CountDownLatch(1);
+        Callable<String> loader = () -> {
+            calls.incrementAndGet();
+            allWaiting.await(5, TimeUnit.SECONDS);
+            return "You have a cold.";
+        };
+
+        // When: Eight requests for the same prompt arrive together
+        List<Future<String>> answers = new ArrayList<>();
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 8; i++) {
+                answers.add(threads.submit(() -> cache.getOrCompute(key("summary"), loader)));
+            }
+            Thread.sleep(200);
+            allWaiting.countDown();
+            for (Future<String> answer : answers) {
+                assertEquals("You have a cold.", answer.get(5, TimeUnit.SECONDS));
+            }
+        }
+
+        // Then: Only the first one reached Ollama
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    @DisplayName("C4.35: Given a disk tier with a size limit, when answers keep arriving, then the oldest are evicted while running")
+    void givenDiskSizeLimit_whenAnswersKeepArriving_thenOldestEvicted() throws Exception {
+        // Given: A disk tier of 4 KB
+        OllamaResponseCache cache = new OllamaResponseCache(true, 1, directory.toString(), 4096);
+        String answer = "x".repeat(400);
+
+        // When: Far more than 4 KB of answers are cached
+        for (int i = 0; i < 50; i++) {
+            int n = i;
+            cache.getOrCompute(key("prompt " + i), () -> answer + n);
+        }
+
+        // Then: The log stays under its limit, keeping the newest answers only
+        assertTrue(Files.size(directory.resolve("responses.log")) <= 4096);
+        assertTrue(cache.stats().diskEntries() < 50);
+        assertEquals(answer + 49, cache.getOrCompute(key("prompt 49"), () -> "unexpected"));
+        assertEquals("regenerated", cache.getOrCompute(key("prompt 0"), () -> "regenerated"));
+        cache.close();
+    }
+
+    @Test
+    @DisplayName("C4.45: Given reactive callers missing the same prompt, when the shared load finishes, then Ollama was called once and its answer is kept")
+    void givenReactiveConcurrentMisses_whenSharedLoadFinishes_thenOllamaCalledOnce() {
+        // Given: A loader that counts subscriptions and answers when released
+        OllamaResponseCache cache = new OllamaResponseCache(true, 10, null);
+        AtomicInteger calls = new AtomicInteger();
+        Sinks.One<String> answer = Sinks.one();
+        Mono<String> loader = Mono.defer(() -> {
+            calls.incrementAndGet();
+            return answer.asMono();
+        });
+
+        // When: Two callers wait on the same prompt and Ollama then answers
+        Mono<String> first = cache.getOrCompute(key("summary"), loader).cache();
+        Mono<String> second = cache.getOrCompute(key("summary"), loader).cache();
+        first.subscribe();
+        second.subscribe();
+        await(() -> calls.get() == 1);
+        answer.tryEmitValue("You have a cold.");
+
+        // Then: Both got the one answer, and a later caller is served from the cache
+        assertEquals("You have a cold.", first.block(Duration.ofSeconds(5)));
+        assertEquals("You have a cold.", second.block(Duration.ofSeconds(5)));
+        assertEquals("You have a cold.", cache.getOrCompute(key("summary"), loader).block(Duration.ofSeconds(5)));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    @DisplayName("C4.47: Given a LOW priority load turned away as busy, when a HIGH priority caller was waiting on it, then that caller loads the answer itself")
+    void givenLowPriorityLeaderBusy_whenHighPriorityCallerWaiting_thenItLoadsItself() throws Exception {
+        // Given: Ollama is saturated, so the admission gate turns LOW priority calls away but admits HIGH ones
+        OllamaResponseCache cache = new OllamaResponseCache(true, 10, null);
+        List<TriagePriority> calls = new CopyOnWriteArrayList<>();
+        CountDownLatch lowQueued = new CountDownLatch(1);
+        CountDownLatch rejectLow = new CountDownLatch(1);
+        Function<TriagePriority, Callable<String>> loader = priority -> () -> {
+            calls.add(priority);
+            if (priority == TriagePriority.LOW) {
+                lowQueued.countDown();
+                rejectLow.await(5, TimeUnit.SECONDS);
+                throw new AiBusyException("The AI assistant is busy");
+            }
+            return "You have a cold.";
+        };
+
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            // When: A LOW priority caller starts loading and a HIGH priority caller misses the same prompt meanwhile
+            Future<String> low = threads.submit(() -> cache.getOrCompute(key("summary"), loader.apply(TriagePriority.LOW)));
+            assertTrue(lowQueued.await(5, TimeUnit.SECONDS));
+            Future<String> high = threads.submit(() -> cache.getOrCompute(key("summary"), loader.apply(TriagePriority.HIGH)));
+            Thread.sleep(200);
+            rejectLow.countDown();
+
+            // Then: Only the LOW caller is turned away; the HIGH caller gets its answer from its own call
+            ExecutionException rejected = assertThrows(ExecutionException.class, () -> low.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(AiBusyException.class, rejected.getCause());
+            assertEquals("You have a cold.", high.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(List.of(TriagePriority.LOW, TriagePriority.HIGH), calls);
+        assertEquals("You have a cold.", cache.getOrCompute(key("summary"), () -> "unexpected"));
+    }
+
+    @Test
+    @DisplayName("C4.48: Given a load that Ollama fails, when another caller was waiting on it, then that caller gets the failure without calling again")
+    void givenOllamaFailsLoad_whenCallerWaiting_thenFailureShared() throws Exception {
+        // Given: A load that fails at Ollama once released
+        OllamaResponseCache cache = new OllamaResponseCache(true, 10, null);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch fail = new CountDownLatch(1);
+        Callable<String> loader = () -> {
+            calls.incrementAndGet();
+            loading.countDown();
+            fail.await(5, TimeUnit.SECONDS);
+            throw new IllegalStateException("Ollama returned 500");
+        };
+
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            // When: A second caller misses the same prompt while the first is loading, and Ollama fails
+            Future<String> first = threads.submit(() -> cache.getOrCompute(key("summary"), loader));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<String> second = threads.submit(() -> cache.getOrCompute(key("summary"), loader));
+            Thread.sleep(200);
+            fail.countDown();
+
+            // Then: Both see Ollama's failure and Ollama was called once
+            for (Future<String> answer : List.of(first, second)) {
+                ExecutionException failed = assertThrows(ExecutionException.class, () -> answer.get(5, TimeUnit.SECONDS));
+                assertInstanceOf(IllegalStateException.class, failed.getCause());
+            }
+        }
+        assertEquals(1, calls.get());
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.onSpinWait();
+        }
+    }
+
+    private static String key(String prompt) {
+        return OllamaResponseCache.key(Map.of("model", "llama2", "prompt", prompt));
+    }
+}
@@ -0,0 +1,88 @@
+package com.wethinkcode.demo.infrastructure.ai;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Story C4: Ollama calls share pooled keep-alive connections with per-operation timeouts")
+class OllamaTransportTest {
+
+    private HttpServer server;
+    private String baseUrl;
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private OllamaTransport transport;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // A stand-in for Ollama that remembers which client sockets it has seen
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/generate", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            if (exchange.getRequestURI().getQuery() != null && exchange.getRequestURI().getQuery().contains("slow")) {
+                try {
+                    Thread.sleep(1_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            byte[] body = "{\"response\": \"ok\", \"done\": true}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        OllamaProperties properties = new OllamaProperties();
+        properties.getTimeouts().setPrescription(Duration.ofMillis(200));
+        transport = new OllamaTransport(properties, WebClient.builder());
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("C4.17: Given several calls in a row, when sent through the transport, then one connection is reused")
+    void givenSeveralCalls_whenSent_thenOneConnectionReused() {
+        // When: Three calls, as for one consultation
+        for (OllamaOperation operation : new OllamaOperation[] {
+                OllamaOperation.SOAP_NOTE, OllamaOperation.PATIENT_SUMMARY, OllamaOperation.PRESCRIPTION}) {
+            String response = transport.restTemplate(operation).postForObject(baseUrl + "/api/generate", "{}", String.class);
+            assertTrue(response.contains("ok"));
+        }
+
+        // Then: Ollama saw a single client socket, which is now idle in the pool
+        assertEquals(1, clientPorts.size());
+        assertEquals(0, transport.poolStats().getLeased());
+        assertEquals(1, transport.poolStats().getAvailable());
+    }
+
+    @Test
+    @DisplayName("C4.18: Given an operation with a short timeout, when Ollama is slow, then only that operation times out")
+    void givenShortOperationTimeout_whenOllamaSlow_thenOnlyThatOperationTimesOut() {
+        // When / Then: Prescription extraction gives up after 200ms
+        assertThrows(ResourceAccessException.class, () -> transport.restTemplate(OllamaOperation.PRESCRIPTION)
+                .postForObject(baseUrl + "/api/generate?slow", "{}", String.class));
+
+        // And: A SOAP note call with its longer timeout still completes
+        String response = transport.restTemplate(OllamaOperation.SOAP_NOTE)
+                .postForObject(baseUrl + "/api/generate?slow", "{}", String.class);
+        assertTrue(response.contains("ok"));
+    }
+}
@@ -0,0 +1,199 @@
+package com.wethinkcode.demo.infrastructure.ai;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.wethinkcode.demo.domain.shared.TriagePriority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Story C4: Hundreds of dictations are documented by a few event-loop threads")
+class ReactiveLlamaAiServiceTest {
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private volatile Handler handler;
+    private OllamaTransport transport;
+    private OllamaAdmissionGate gate;
+    private SimpleMeterRegistry registry;
+    private ReactiveLlamaAiService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // A stand-in for Ollama whose behaviour each test chooses
+        serverThreads = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 500);
+        server.createContext("/api/generate", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            handler.handle(exchange);
+            exchange.close();
+        });
+        server.setExecutor(serverThreads);
+        server.start();
+
+        OllamaProperties properties = new OllamaProperties();
+        properties.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        properties.getHttp().setMaxConnections(50);
+        properties.getRetry().setMinBackoff(Duration.ofMillis(10));
+        transport = new OllamaTransport(properties, WebClient.builder());
+        gate = new OllamaAdmissionGate(50, 500, Duration.ofSeconds(30));
+        registry = new SimpleMeterRegistry();
+        OllamaMetrics metrics = new OllamaMetrics(registry);
+        service = new ReactiveLlamaAiService(transport, new OllamaResponseCache(false, 0, null), gate, properties, metrics);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+        server.stop(0);
+        serverThreads.close();
+    }
+
+    @Test
+    @DisplayName("C4.29: Given Ollama failing twice with 503, when generating a summary, then the call is retried and succeeds")
+    void givenTwoTransientFailures_whenGenerating_thenRetriedUntilSuccess() {
+        // Given: Ollama is restarting for the first two requests
+        AtomicInteger requests = new AtomicInteger();
+        handler = exchange -> {
+            if (requests.incrementAndGet() <= 2) {
+                exchange.sendResponseHeaders(503, -1);
+            } else {
+                respond(exchange, "{\"response\": \"You have a cold.\", \"done\": true}");
+            }
+        };
+
+        // When: Generating a patient summary
+        String summary = service.generatePatientSummary("SOAP", TriagePriority.MEDIUM).block(Duration.ofSeconds(10));
+
+        // Then: The third attempt answered and the slot was released after each attempt
+        assertEquals("You have a cold.", summary);
+        assertEquals(3, requests.get());
+        assertEquals(0, gate.activeRequests());
+    }
+
+    @Test
+    @DisplayName("C4.30: Given 200 dictations at once, when Ollama takes 200ms each, then they run concurrently on a few event-loop threads")
+    void givenHundredsOfDictations_whenGenerated_thenServedByFewThreads() {
+        // Given: Every answer takes 200ms
+        handler = exchange -> {
+            sleep(200);
+            respond(exchange, "{\"response\": \"You have a cold.\", \"done\": true}");
+        };
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        // When: 200 patient summaries are requested together
+        long start = System.nanoTime();
+        List<String> summaries = Flux.range(0, 200)
+                .flatMap(i -> service.generatePatientSummary("SOAP note " + i, TriagePriority.MEDIUM)
+                        .doOnNext(summary -> threads.add(Thread.currentThread().getName())), 200)
+                .collectList()
+                .block(Duration.ofSeconds(30));
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        // Then: All were answered, 50 at a time, without a thread per request
+        assertEquals(200, summaries.size());
+        assertTrue(elapsedMillis < 4_000, "took " + elapsedMillis + " ms");
+        assertTrue(threads.size() <= Math.max(4, Runtime.getRuntime().availableProcessors()), "threads used: " + threads);
+        assertTrue(threads.stream().allMatch(name -> name.startsWith("reactor-http")), "threads used: " + threads);
+        assertEquals(0, gate.activeRequests());
+    }
+
+    @Test
+    @DisplayName("C4.31: Given a SOAP note being streamed, when the doctor navigates away, then the Ollama request is cancelled")
+    void givenStreamingSoapNote_whenCancelled_thenRequestAbortedAndSlotReleased() throws Exception {
+        // Given: Ollama streams a long answer, one token every 50ms
+        CountDownLatch clientGone = new CountDownLatch(1);
+        handler = exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "application/x-ndjson");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                for (int i = 0; i < 200; i++) {
+                    body.write("{\"response\": \"token \", \"done\": false}\n".getBytes(StandardCharsets.UTF_8));
+                    body.flush();
+                    sleep(50);
+                }
+            } catch (IOException e) {
+                clientGone.countDown();
+            }
+        };
+
+        // When: The browser stops listening after three tokens
+        List<String> tokens = service.streamSoapNote("Cough", TriagePriority.HIGH)
+                .take(3)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        // Then: The connection to Ollama was dropped and the slot is free again
+        assertEquals(3, tokens.size());
+        assertEquals(0, gate.activeRequests());
+        assertTrue(clientGone.await(5, TimeUnit.SECONDS), "Ollama kept generating after the stream was cancelled");
+    }
+
+    @Test
+    @DisplayName("C4.32: Given Ollama loading the model before streaming, when the SOAP note finishes, then latency, tokens/sec and the cold start are recorded")
+    void givenColdModel_whenStreamFinishes_thenOllamaStatisticsRecorded() {
+        // Given: The final chunk reports 100 tokens in 2s after a 3s model load
+        handler = exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "application/x-ndjson");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write("{\"response\": \"Subjective\", \"done\": false}\n".getBytes(StandardCharsets.UTF_8));
+                body.write(("{\"response\": \"\", \"done\": true, \"load_duration\": 3000000000,"
+                        + " \"prompt_eval_count\": 40, \"eval_count\": 100, \"eval_duration\": 2000000000}\n")
+                        .getBytes(StandardCharsets.UTF_8));
+            }
+        };
+
+        // When: The whole note is streamed
+        List<String> tokens = service.streamSoapNote("Cough", TriagePriority.HIGH)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        // Then: Ollama's own statistics were turned into metrics for the streaming operation
+        assertEquals(List.of("Subjective"), tokens);
+        assertEquals(1, registry.get("ollama.generate").tags("operation", "streaming", "outcome", "success").timer().count());
+        assertEquals(50.0, registry.get("ollama.generate.tokens.per.second").tag("operation", "streaming").gauge().value(), 0.001);
+        assertEquals(100.0, registry.get("ollama.generate.tokens").tags("operation", "streaming", "type", "completion").summary().totalAmount());
+        assertEquals(40.0, registry.get("ollama.generate.tokens").tags("operation", "streaming", "type", "prompt").summary().totalAmount());
+        assertEquals(1.0, registry.get("ollama.model.loads").tag("operation", "streaming").counter().count());
+    }
+
+    private static void respond(HttpExchange exchange, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+}
@@ -0,0 +1,177 @@
+package com.wethinkcode.demo.infrastructure.journal;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Story C5: Signatures and completions are kept in a durable clinical journal")
+class ClinicalJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("C5.9: Given many concurrent writers, when they wait for durability, then far fewer fsyncs than appends are needed")
+    void givenConcurrentWriters_whenWaitingForDurability_thenFsyncsAreGrouped() throws Exception {
+        // Given: A journal with a 5ms group commit
+        ClinicalJournal journal = new ClinicalJournal(true, directory, 1024 * 1024, Duration.ofMillis(5));
+        journal.start();
+
+        // When: 16 threads append 2000 transitions and wait for each one to be durable
+        List<CompletableFuture<Long>> durable = new ArrayList<>();
+        try (ExecutorService writers = Executors.newFixedThreadPool(16)) {
+            for (int i = 0; i < 2000; i++) {
+                long appointmentId = i;
+                durable.add(CompletableFuture.supplyAsync(
+                        () -> journal.append(JournalEntry.Kind.APPOINTMENT, appointmentId, "COMPLETED").join(), writers));
+            }
+            CompletableFuture.allOf(durable.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+        }
+
+        // Then: Each append got its own sequence, but they shared the fsyncs
+        assertEquals(2000, durable.stream().map(CompletableFuture::join).distinct().count());
+        assertEquals(2000, journal.appendCount());
+        assertTrue(journal.syncCount() < 500, "Expected grouped fsyncs but made " + journal.syncCount());
+        journal.close();
+
+        // And replay returns every entry in sequence order
+        List<Long> sequences = new ArrayList<>();
+        JournalReplay.replay(directory, entry -> sequences.add(entry.sequence()));
+        assertEquals(2000, sequences.size());
+        for (int i = 0; i < sequences.size(); i++) {
+            assertEquals(i + 1, sequences.get(i));
+        }
+    }
+
+    @Test
+    @DisplayName("C5.10: Given small segments, when the journal fills them and restarts, then it rolls and continues the sequence")
+    void givenSmallSegments_whenFilledAndReopened_thenRollsAndContinues() throws Exception {
+        // Given: 1 KB segments, enough for about 25 entries each
+        ClinicalJournal journal = new ClinicalJournal(true, directory, 1024, Duration.ofMillis(5));
+        journal.start();
+        for (long id = 1; id <= 100; id++) {
+            journal.append(JournalEntry.Kind.MEDICAL_RECORD, id, "DRAFT");
+        }
+        journal.append(JournalEntry.Kind.MEDICAL_RECORD, 7, "SIGNED").get(5, TimeUnit.SECONDS);
+        journal.close();
+
+        // When: The journal is reopened and written to again
+        ClinicalJournal reopened = new ClinicalJournal(true, directory, 1024, Duration.ofMillis(5));
+        reopened.start();
+        long next = reopened.append(JournalEntry.Kind.APPOINTMENT, 3, "COMPLETED").get(5, TimeUnit.SECONDS);
+        JournalReplay.State state = reopened.rebuildState();
+        reopened.close();
+
+        // Then: Several segments were written and the sequence carried on across the restart
+        assertTrue(JournalReplay.segments(directory).size() >= 4);
+        assertEquals(102, next);
+        assertEquals(102, state.lastSequence());
+        assertEquals("SIGNED", state.medicalRecords().get(7L));
+        assertEquals("DRAFT", state.medicalRecords().get(8L));
+        assertEquals("COMPLETED", state.appointments().get(3L));
+    }
+
+    @Test
+    @DisplayName("C5.11: Given a torn last entry after a crash, when the journal reopens, then it keeps the intact entries and overwrites the torn one")
+    void givenTornLastEntry_whenReopened_thenIntactEntriesKept() throws Exception {
+        // Given: Three entries, the last of which is damaged on disk
+        ClinicalJournal journal = new ClinicalJournal(true, directory, 4096, Duration.ofMillis(5));
+        journal.start();
+        journal.append(JournalEntry.Kind.MEDICAL_RECORD, 1, "SIGNED");
+        journal.append(JournalEntry.Kind.MEDICAL_RECORD, 2, "SIGNED");
+        journal.append(JournalEntry.Kind.MEDICAL_RECORD, 3, "SIGNED").get(5, TimeUnit.SECONDS);
+        journal.close();
+        Path segment = JournalReplay.segments(directory).get(0);
+        int lastEntry = 2 * (JournalReplay.HEADER_BYTES + JournalReplay.FIXED_PAYLOAD_BYTES + "SIGNED".length());
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {42, 42, 42}), lastEntry + JournalReplay.HEADER_BYTES + 2);
+        }
+
+        // When: The journal is reopened and a new entry is written
+        ClinicalJournal reopened = new ClinicalJournal(true, directory, 4096, Duration.ofMillis(5));
+        reopened.start();
+        long next = reopened.append(JournalEntry.Kind.MEDICAL_RECORD, 4, "SIGNED").get(5, TimeUnit.SECONDS);
+        JournalReplay.State state = reopened.rebuildState();
+        reopened.close();
+
+        // Then: The damaged entry is gone and the new one takes its sequence number
+        assertEquals(3, next);
+        assertEquals(3, state.lastSequence());
+        assertTrue(state.medicalRecords().containsKey(2L));
+        assertFalse(state.medicalRecords().containsKey(3L));
+        assertTrue(state.medicalRecords().containsKey(4L));
+    }
+
+    @Test
+    @DisplayName("C5.19: Given a checkpoint, when the journal is rebuilt after a restart, then only later entries are replayed and older segments are gone")
+    void givenCheckpoint_whenRebuiltAfterRestart_thenOnlyLaterEntriesReplayed() throws Exception {
+        // Given: 100 entries over several 1 KB segments, checkpointed at entry 80
+        ClinicalJournal journal = new ClinicalJournal(true, directory, 1024, Duration.ofMillis(5), Duration.ZERO);
+        journal.start();
+        for (long id = 1; id < 100; id++) {
+            journal.append(JournalEntry.Kind.APPOINTMENT, id, "COMPLETED");
+        }
+        journal.append(JournalEntry.Kind.APPOINTMENT, 100, "COMPLETED").get(5, TimeUnit.SECONDS);
+        int segmentsBefore = JournalReplay.segments(directory).size();
+        journal.checkpoint(80);
+        journal.checkpoint(50);
+        journal.close();
+
+        // When: The journal is reopened and rebuilt
+        ClinicalJournal reopened = new ClinicalJournal(true, directory, 1024, Duration.ofMillis(5));
+        reopened.start();
+        JournalReplay.State state = reopened.rebuildState();
+        long next = reopened.append(JournalEntry.Kind.APPOINTMENT, 101, "COMPLETED").get(5, TimeUnit.SECONDS);
+        reopened.close();
+
+        // Then: Only the entries after the checkpoint are replayed, and the sequence carries on
+        assertEquals(80, reopened.getCheckpoint());
+        assertEquals(100, state.lastSequence());
+        assertEquals(20, state.appointments().size());
+        assertFalse(state.appointments().containsKey(80L));
+        assertTrue(state.appointments().containsKey(81L));
+        assertEquals(101, next);
+
+        // And segments holding only checkpointed entries were deleted
+        List<Path> segments = JournalReplay.segments(directory);
+        assertTrue(segments.size() < segmentsBefore);
+        assertTrue(JournalReplay.firstSequence(segments.get(0)) <= 81);
+    }
+
+    @Test
+    @DisplayName("C5.20: Given a checkpoint delay, when a segment fills up, then it is checkpointed and deleted once the delay has passed")
+    void givenCheckpointDelay_whenSegmentRolled_thenDeletedAfterDelay() throws Exception {
+        // Given: 1 KB segments that are checkpointed 50ms after they are rolled
+        ClinicalJournal journal = new ClinicalJournal(true, directory, 1024, Duration.ofMillis(5), Duration.ofMillis(50));
+        journal.start();
+
+        // When: Enough entries are written to fill a few segments
+        for (long id = 1; id < 100; id++) {
+            journal.append(JournalEntry.Kind.MEDICAL_RECORD, id, "SIGNED");
+        }
+        journal.append(JournalEntry.Kind.MEDICAL_RECORD, 100, "SIGNED").get(5, TimeUnit.SECONDS);
+        Thread.sleep(500);
+
+        // Then: Only the segment being written is left, and rebuilding starts where it begins
+        List<Path> segments = JournalReplay.segments(directory);
+        assertEquals(1, segments.size());
+        assertEquals(JournalReplay.firstSequence(segments.get(0)) - 1, journal.getCheckpoint());
+        JournalReplay.State state = journal.rebuildState();
+        journal.close();
+        assertEquals(100 - journal.getCheckpoint(), state.medicalRecords().size());
+    }
+}
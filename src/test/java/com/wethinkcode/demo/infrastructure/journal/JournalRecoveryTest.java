@@ -0,0 +1,94 @@
+package com.wethinkcode.demo.infrastructure.journal;
+
+import com.wethinkcode.demo.domain.shared.AppointmentStatus;
+import com.wethinkcode.demo.domain.shared.AppointmentStatusChangedEvent;
+import com.wethinkcode.demo.domain.shared.MedicalRecordChangedEvent;
+import com.wethinkcode.demo.infrastructure.persistence.AppointmentRepository;
+import com.wethinkcode.demo.infrastructure.persistence.MedicalRecordRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Story C5: Signatures and completions survive a database that lost its last writes")
+class JournalRecoveryTest {
+
+    @Mock
+    private ClinicalJournal journal;
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    @Mock
+    private MedicalRecordRepository medicalRecordRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate();
+
+    @InjectMocks
+    private JournalRecovery journalRecovery;
+
+    @Test
+    @DisplayName("C5.12: Given a journal with a signature and a completion, when recovering, then only those are re-applied and announced")
+    void givenJournalWithSignatureAndCompletion_whenRecovering_thenOnlyThoseReapplied() {
+        // Given: The journal saw appointment 7 completed, appointment 8 claimed, record 5 signed and record 6 drafted
+        doAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null))
+                .when(transactionTemplate).execute(any());
+        when(appointmentRepository.markCompleted(7L)).thenReturn(1);
+        when(medicalRecordRepository.markSigned(5L)).thenReturn(1);
+        when(medicalRecordRepository.findAppointmentIdById(5L)).thenReturn(Optional.of(7L));
+        JournalReplay.State state = new JournalReplay.State(
+                Map.of(7L, "COMPLETED", 8L, "IN_CONSULT"),
+                Map.of(5L, "SIGNED", 6L, "DRAFT"),
+                42);
+
+        // When: Recovering
+        int repaired = journalRecovery.recover(state);
+
+        // Then: The completion and the signature are restored; nothing moves backwards
+        assertEquals(2, repaired);
+        verify(appointmentRepository).markCompleted(7L);
+        verify(medicalRecordRepository).markSigned(5L);
+        verify(medicalRecordRepository).findAppointmentIdById(5L);
+        verifyNoMoreInteractions(appointmentRepository, medicalRecordRepository);
+
+        // And the same events as a live completion and signature are published, so the patient summary catches up
+        verify(eventPublisher).publishEvent(new AppointmentStatusChangedEvent(7L, null, AppointmentStatus.COMPLETED));
+        verify(eventPublisher).publishEvent(new MedicalRecordChangedEvent(5L, 7L, true));
+        verifyNoMoreInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("C5.21: Given a journal with entries, when recovery on startup has committed, then the journal is checkpointed at its last entry")
+    void givenJournalWithEntries_whenRecoveredOnStartup_thenCheckpointed() throws Exception {
+        // Given: A journal whose last entry is 42
+        doAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null))
+                .when(transactionTemplate).execute(any());
+        when(journal.isEnabled()).thenReturn(true);
+        when(journal.rebuildState()).thenReturn(new JournalReplay.State(Map.of(7L, "COMPLETED"), Map.of(), 42));
+
+        // When: The application starts
+        journalRecovery.recoverOnStartup();
+
+        // Then: The next startup only has to replay what comes after entry 42
+        verify(appointmentRepository).markCompleted(7L);
+        verify(journal).checkpoint(42);
+    }
+}
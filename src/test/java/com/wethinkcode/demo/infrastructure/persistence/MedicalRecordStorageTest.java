@@ -0,0 +1,112 @@
+package com.wethinkcode.demo.infrastructure.persistence;
+
+import com.wethinkcode.demo.domain.shared.MedicalRecord;
+import com.wethinkcode.demo.domain.shared.MedicalRecordHeader;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@DisplayName("Story C5: Medical record bodies are stored compressed and loaded only when read")
+class MedicalRecordStorageTest {
+
+    private static final String SOAP_NOTE = "S: Patient reports chest pain radiating to the left arm. O: BP 150/95. ".repeat(30);
+
+    @Autowired
+    private MedicalRecordRepository medicalRecordRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("C5.7: Given a stored record, when it is loaded, then its bodies stay unloaded until one is read")
+    void givenStoredRecord_whenLoaded_thenBodiesLoadedOnFirstRead() {
+        // Given: A record with a long SOAP note
+        MedicalRecord saved = medicalRecordRepository.save(MedicalRecord.builder()
+                .appointmentId(9001L)
+                .soapNote(SOAP_NOTE)
+                .patientSummary("Your heart needs a closer look.")
+                .prescription("- Aspirin 81mg daily")
+                .build());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // When: The record is loaded and only its flag is read
+            MedicalRecord record = medicalRecordRepository.findById(saved.getId()).orElseThrow();
+            assertFalse(record.getIsSigned());
+
+            // Then: The bodies were not fetched
+            assertFalse(Hibernate.isPropertyInitialized(record, "soapNote"));
+            assertFalse(Hibernate.isPropertyInitialized(record, "prescription"));
+
+            // And reading one loads the whole group, unchanged
+            assertEquals(SOAP_NOTE, record.getSoapNote());
+            assertTrue(Hibernate.isPropertyInitialized(record, "prescription"));
+            assertEquals("- Aspirin 81mg daily", record.getPrescription());
+        });
+    }
+
+    @Test
+    @DisplayName("C5.8: Given a long SOAP note, when stored, then the column holds less than the text and headers skip the bodies")
+    void givenLongSoapNote_whenStored_thenCompressedAndListedByHeader() {
+        // Given: A signed record with a long SOAP note and no prescription
+        MedicalRecord saved = medicalRecordRepository.save(MedicalRecord.builder()
+                .appointmentId(9002L)
+                .soapNote(SOAP_NOTE)
+                .isSigned(true)
+                .build());
+
+        // When: Reading the stored column and the header
+        Integer storedLength = jdbcTemplate.queryForObject(
+                "select octet_length(soap_note) from medical_records where id = ?", Integer.class, saved.getId());
+        List<MedicalRecordHeader> headers = medicalRecordRepository.findHeadersByAppointmentIdIn(List.of(9002L));
+
+        // Then: The note is stored in a fraction of its size
+        assertTrue(storedLength < SOAP_NOTE.length() / 4, "stored " + storedLength + " bytes");
+
+        // And the header carries the flags without the text
+        assertEquals(List.of(new MedicalRecordHeader(saved.getId(), 9002L, true, false)), headers);
+    }
+
+    @Test
+    @DisplayName("C5.24: Given notes without medication, when the record is stored, then its header shows no prescription")
+    void givenNotesWithoutMedication_whenStored_thenHeaderShowsNoPrescription() {
+        // Given: One record with a medication, one the model found none for and one it could not extract
+        medicalRecordRepository.save(MedicalRecord.builder()
+                .appointmentId(9003L)
+                .soapNote("S: Sore throat. P: Antibiotics.")
+                .prescription("- Amoxicillin 500mg TID")
+                .build());
+        medicalRecordRepository.save(MedicalRecord.builder()
+                .appointmentId(9004L)
+                .soapNote("S: Mild cold. P: Rest and fluids.")
+                .prescription(MedicalRecord.NO_PRESCRIPTIONS)
+                .build());
+        MedicalRecord unavailable = MedicalRecord.builder()
+                .appointmentId(9005L)
+                .soapNote("S: Back pain.")
+                .build();
+        unavailable.setPrescription(MedicalRecord.PRESCRIPTION_UNAVAILABLE);
+        medicalRecordRepository.save(unavailable);
+
+        // When: Listing their headers
+        Map<Long, Boolean> hasPrescription = medicalRecordRepository.findHeadersByAppointmentIdIn(List.of(9003L, 9004L, 9005L)).stream()
+                .collect(Collectors.toMap(MedicalRecordHeader::appointmentId, MedicalRecordHeader::hasPrescription));
+
+        // Then: Only the record naming a medication has a prescription
+        assertEquals(Map.of(9003L, true, 9004L, false, 9005L, false), hasPrescription);
+        assertFalse(MedicalRecord.isPrescribed("\"No prescriptions recommended.\""));
+    }
+}
@@ -0,0 +1,118 @@
+package com.wethinkcode.demo.infrastructure.persistence;
+
+import com.wethinkcode.demo.domain.shared.MedicalRecord;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the prod profile against an in-memory database: Flyway builds the schema and Hibernate
+ * validates the entities against it, so a migration that drifts from the entities fails here.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:prodschema;DB_CLOSE_DELAY=-1",
+        // The journal belongs to the file database; replaying it into this in-memory one would be wrong
+        "noctor.journal.enabled=false"
+})
+@ActiveProfiles("prod")
+@DisplayName("Story C5: Medical records are kept in a migration-managed, indexed schema")
+class ProdSchemaMigrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MedicalRecordRepository medicalRecordRepository;
+
+    @Test
+    @DisplayName("C5.4: Given the prod profile, when the schema is migrated, then the lookup indexes exist")
+    void givenProdProfile_whenMigrated_thenLookupIndexesExist() {
+        // Given / When: The context started with Flyway and ddl-auto=validate
+
+        // Then: Every lookup column is indexed
+        List<String> indexes = jdbcTemplate.queryForList(
+                "select lower(index_name) from information_schema.indexes where table_schema = 'PUBLIC'", String.class);
+        assertTrue(indexes.containsAll(List.of(
+                "idx_appointments_status_priority",
+                "idx_appointments_doctor",
+                "idx_appointments_patient",
+                "idx_documentation_jobs_appointment")), indexes.toString());
+        List<String> migrations = jdbcTemplate.queryForList(
+                "select \"version\" from \"flyway_schema_history\" where \"success\" = true and \"type\" in ('SQL', 'JDBC')", String.class);
+        assertEquals(List.of("1", "2", "3", "4", "5", "6"), migrations);
+    }
+
+    @Test
+    @DisplayName("C5.5: Given a medical record, when a second one is saved for the same appointment, then the database rejects it")
+    void givenMedicalRecord_whenSecondSavedForSameAppointment_thenRejected() {
+        // Given: A record for appointment 42
+        medicalRecordRepository.saveAndFlush(MedicalRecord.builder().appointmentId(42L).soapNote("S: cough").build());
+
+        // When / Then: A duplicate violates the unique constraint
+        assertThrows(DataIntegrityViolationException.class, () ->
+                medicalRecordRepository.saveAndFlush(MedicalRecord.builder().appointmentId(42L).soapNote("S: again").build()));
+    }
+
+    @Test
+    @DisplayName("C5.6: Given records stored as plain text, when migrating to compressed columns, then their text survives")
+    void givenPlainTextRecords_whenMigratedToCompressedColumns_thenTextSurvives() {
+        // Given: A database at V3 with a record written before compression existed
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:legacyrecords;DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway.configure().dataSource(dataSource).target("3").load().migrate();
+        JdbcTemplate legacy = new JdbcTemplate(dataSource);
+        String soapNote = "S: Persistent dry cough for two weeks. ".repeat(20);
+        legacy.update("insert into medical_records (id, appointment_id, soap_note, patient_summary, prescription, is_signed) "
+                + "values (1, 7, ?, 'Rest and fluids.', null, true)", soapNote);
+        legacy.update("insert into medical_records (id, appointment_id, soap_note, patient_summary, prescription, is_signed) "
+                + "values (2, 8, 'S: Sore throat.', 'Take the antibiotics.', '- Amoxicillin 500mg TID', true)");
+
+        // When: The remaining migrations run
+        Flyway.configure().dataSource(dataSource).load().migrate();
+
+        // Then: The bodies are compressed but read back unchanged
+        byte[] stored = legacy.queryForObject("select soap_note from medical_records where id = 1", byte[].class);
+        assertTrue(stored.length < soapNote.length());
+        assertEquals(soapNote, CompressedTextConverter.decompress(stored));
+        assertEquals("Rest and fluids.", CompressedTextConverter.decompress(
+                legacy.queryForObject("select patient_summary from medical_records where id = 1", byte[].class)));
+        assertNull(legacy.queryForObject("select prescription from medical_records where id = 1", byte[].class));
+
+        // And only the record naming a medication is flagged as having a prescription
+        assertEquals(List.of(false, true), legacy.queryForList(
+                "select has_prescription from medical_records order by id", Boolean.class));
+    }
+
+    @Test
+    @DisplayName("C5.25: Given signed records with and without medication, when the summaries are seeded, then only prescriptions are counted")
+    void givenSignedRecordsWithAndWithoutMedication_whenSummariesSeeded_thenOnlyPrescriptionsCounted() {
+        // Given: A database at V3 with a patient whose two signed visits prescribed once
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:legacysummaries;DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway.configure().dataSource(dataSource).target("3").load().migrate();
+        JdbcTemplate legacy = new JdbcTemplate(dataSource);
+        legacy.update("insert into users (id, name, role, status) values (1, 'Legacy Patient', 'PATIENT', 'WAITING')");
+        legacy.update("insert into appointments (id, patient_id, triage_priority, status) values (1, 1, 'LOW', 'COMPLETED')");
+        legacy.update("insert into appointments (id, patient_id, triage_priority, status) values (2, 1, 'LOW', 'COMPLETED')");
+        legacy.update("insert into medical_records (id, appointment_id, soap_note, prescription, is_signed) "
+                + "values (1, 1, 'S: Sore throat.', '- Amoxicillin 500mg TID', true)");
+        legacy.update("insert into medical_records (id, appointment_id, soap_note, prescription, is_signed) "
+                + "values (2, 2, 'S: Mild cold.', ?, true)", MedicalRecord.NO_PRESCRIPTIONS);
+
+        // When: The remaining migrations run
+        Flyway.configure().dataSource(dataSource).load().migrate();
+
+        // Then: Both visits are counted, but only one prescription was issued
+        assertEquals(Map.of("VISIT_COUNT", 2, "PRESCRIPTIONS_ISSUED", 1), legacy.queryForMap(
+                "select visit_count, prescriptions_issued from patient_summaries where patient_id = 1"));
+    }
+}
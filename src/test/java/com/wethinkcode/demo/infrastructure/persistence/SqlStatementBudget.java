@@ -0,0 +1,21 @@
+package com.wethinkcode.demo.infrastructure.persistence;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The most SQL statements a test method may run on its own thread. {@code @BeforeEach} methods are
+ * not counted, so set up data there and keep the method body to the request being budgeted.
+ * The Spring context must register {@link SqlStatementCounter#PROPERTY}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(SqlStatementBudgetExtension.class)
+public @interface SqlStatementBudget {
+
+    int value();
+}
@@ -0,0 +1,52 @@
+package com.wethinkcode.demo.infrastructure.persistence;
+
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.opentest4j.AssertionFailedError;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Fails a test annotated with {@link SqlStatementBudget} when its body runs more SQL statements
+ * than the budget allows, listing every statement so the extra queries (usually an N+1) are easy to spot.
+ */
+public class SqlStatementBudgetExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+
+    @Override
+    public void beforeTestExecution(ExtensionContext context) {
+        if (budget(context) != null) {
+            SqlStatementCounter.start();
+        }
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        SqlStatementBudget budget = budget(context);
+        if (budget == null) {
+            return;
+        }
+        List<String> statements = SqlStatementCounter.stop();
+        if (context.getExecutionException().isPresent()) {
+            return;
+        }
+
+        if (!SqlStatementCounter.isInstalled()) {
+            throw new AssertionFailedError("SQL statements are not being counted; add SqlStatementCounter.PROPERTY to the test's properties");
+        }
+        if (statements.size() > budget.value()) {
+            String listing = IntStream.range(0, statements.size())
+                    .mapToObj(i -> (i + 1) + ". " + statements.get(i))
+                    .collect(Collectors.joining("\n"));
+            throw new AssertionFailedError(context.getDisplayName() + " ran " + statements.size()
+                    + " SQL statements, over its budget of " + budget.value() + ":\n" + listing,
+                    budget.value(), statements.size());
+        }
+    }
+
+    private static SqlStatementBudget budget(ExtensionContext context) {
+        return context.getRequiredTestMethod().getAnnotation(SqlStatementBudget.class);
+    }
+}
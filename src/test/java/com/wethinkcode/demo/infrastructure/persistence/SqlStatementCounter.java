@@ -0,0 +1,50 @@
+package com.wethinkcode.demo.infrastructure.persistence;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hibernate statement inspector that records the SQL prepared on the current thread while recording
+ * is switched on. Register it with {@link #PROPERTY}; Hibernate creates the instance itself, so the
+ * recording state is static and per thread (background jobs and other tests do not interfere).
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    public static final String PROPERTY =
+            "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.wethinkcode.demo.infrastructure.persistence.SqlStatementCounter";
+
+    private static final ThreadLocal<List<String>> RECORDING = new ThreadLocal<>();
+    private static volatile boolean installed;
+
+    public SqlStatementCounter() {
+        installed = true;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        List<String> statements = RECORDING.get();
+        if (statements != null) {
+            statements.add(sql);
+        }
+        return sql;
+    }
+
+    public static boolean isInstalled() {
+        return installed;
+    }
+
+    public static void start() {
+        RECORDING.set(new ArrayList<>());
+    }
+
+    /**
+     * Stop recording and return the statements seen since {@link #start()}
+     */
+    public static List<String> stop() {
+        List<String> statements = RECORDING.get();
+        RECORDING.remove();
+        return statements == null ? List.of() : statements;
+    }
+}
@@ -0,0 +1,182 @@
+package com.wethinkcode.demo.infrastructure.search;
+
+import com.wethinkcode.demo.domain.shared.MedicalRecordText;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Story C5: Doctors can search medical records by their content")
+class MedicalRecordIndexTest {
+
+    private static final LocalDateTime JANUARY = LocalDateTime.of(2026, 1, 15, 9, 0);
+    private static final LocalDateTime MARCH = LocalDateTime.of(2026, 3, 15, 9, 0);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("C5.13: Given a term in different SOAP sections, when searching, then an assessment match ranks above a history match")
+    void givenTermInDifferentSections_whenSearching_thenAssessmentRanksFirst() {
+        // Given: One record mentions pneumonia in the history, another diagnoses it, a third is unrelated
+        MedicalRecordIndex index = new MedicalRecordIndex();
+        index.index(record(1, soap("Worried about pneumonia after a cold", "Chest clear", "Viral upper respiratory infection", "Rest"), JANUARY, false));
+        index.index(record(2, soap("Cough for a week", "Crackles right base", "Community acquired pneumonia", "Amoxicillin"), JANUARY, false));
+        index.index(record(3, soap("Ankle pain", "Swelling", "Sprain", "Ice and rest"), JANUARY, false));
+
+        // When: Searching for pneumonia, and for pneumonia in the assessment only
+        List<MedicalRecordIndex.Match> matches = index.search("pneumonia", null, null, false, 10);
+        List<MedicalRecordIndex.Match> assessed = index.search("assessment:pneumonia", null, null, false, 10);
+
+        // Then: The diagnosis ranks first, and the field restriction drops the history mention
+        assertEquals(List.of(2L, 1L), recordIds(matches));
+        assertTrue(matches.get(0).score() > matches.get(1).score());
+        assertEquals(List.of(2L), recordIds(assessed));
+        assertTrue(index.search("the and of", null, null, false, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("C5.14: Given records that change, when searching with filters, then only current, matching records are returned")
+    void givenChangingRecords_whenSearchingWithFilters_thenOnlyCurrentMatches() {
+        // Given: A draft from January and one from March, then the March note is rewritten and signed
+        MedicalRecordIndex index = new MedicalRecordIndex();
+        index.index(record(1, soap("Headache", "Normal exam", "Migraine", "Sumatriptan"), JANUARY, false));
+        index.index(record(2, soap("Headache", "Photophobia", "Migraine", "Rest"), MARCH, false));
+        index.index(record(2, soap("Headache", "Neck stiffness", "Meningitis suspected", "Refer"), MARCH, true));
+        index.index(record(1, soap("Headache", "Normal exam", "Migraine", "Sumatriptan"), JANUARY, true));
+
+        // When / Then: The old text of record 2 no longer matches
+        assertEquals(List.of(1L), recordIds(index.search("migraine", null, null, false, 10)));
+        assertEquals(List.of(2L), recordIds(index.search("meningitis", null, null, false, 10)));
+
+        // And the date range and signature filters apply
+        assertEquals(List.of(2L), recordIds(index.search("headache", LocalDate.of(2026, 3, 1), null, false, 10)));
+        assertEquals(List.of(1L), recordIds(index.search("headache", null, LocalDate.of(2026, 2, 1), true, 10)));
+        index.remove(1L);
+        assertEquals(List.of(2L), recordIds(index.search("headache", null, null, true, 10)));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    @DisplayName("C5.15: Given a snapshot on disk, when it is read back, then searches return the same results")
+    void givenSnapshot_whenReadBack_thenSameResults() throws Exception {
+        // Given: An index with a replaced and a removed record, written to disk
+        MedicalRecordIndex index = new MedicalRecordIndex();
+        index.index(record(1, soap("Cough", "Wheeze", "Asthma", "Salbutamol inhaler"), JANUARY, true));
+        index.index(record(2, "Plain note: asthma review, inhaler technique checked", MARCH, false));
+        index.index(record(3, soap("Rash", "Urticaria", "Allergy", "Cetirizine"), MARCH, false));
+        index.index(record(3, soap("Rash", "Urticaria", "Drug allergy", "Stop penicillin"), MARCH, false));
+        index.remove(2L);
+        Path file = directory.resolve(MedicalRecordSearchService.SNAPSHOT_FILE);
+        LocalDateTime watermark = LocalDateTime.of(2026, 3, 16, 12, 0);
+        index.writeSnapshot(file, watermark);
+
+        // When: Reading the snapshot
+        MedicalRecordIndex.Snapshot snapshot = MedicalRecordIndex.readSnapshot(file);
+
+        // Then: It has the same records and watermark, and keeps accepting updates
+        assertEquals(watermark, snapshot.watermark());
+        assertEquals(2, snapshot.index().size());
+        for (String query : List.of("asthma inhaler", "allergy", "prescription:penicillin", "rash")) {
+            assertEquals(recordIds(index.search(query, null, null, false, 10)),
+                recordIds(snapshot.index().search(query, null, null, false, 10)), query);
+        }
+        assertTrue(snapshot.index().search("asthma", null, null, false, 10).get(0).signed());
+        snapshot.index().index(record(4, soap("Wheeze", "", "Asthma exacerbation", "Prednisolone"), MARCH, false));
+        assertEquals(List.of(1L, 4L), recordIds(snapshot.index().search("asthma", null, null, false, 10)));
+    }
+
+    @Test
+    @DisplayName("C5.16: Given a million records, when searching, then the median query takes less than 50 ms")
+    void givenMillionRecords_whenSearching_thenMedianUnder50Millis() {
+        // Given: A million synthetic notes over a clinical vocabulary, one in a hundred diagnosing pneumonia
+        MedicalRecordIndex index = new MedicalRecordIndex();
+        Random random = new Random(42);
+        String[] words = new String[2000];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = "term" + i;
+        }
+        for (int i = 1; i <= 1_000_000; i++) {
+            String assessment = (i % 100 == 0 ? "pneumonia " : "") + words(words, random, 3);
+            index.index(record(i, soap(words(words, random, 6), words(words, random, 4), assessment, words(words, random, 3)),
+                JANUARY.plusMinutes(i), i % 3 == 0));
+        }
+
+        // When: Running a mix of rare, common and filtered queries
+        List<String> queries = List.of("pneumonia", "term7 term12", "assessment:pneumonia term3", "term1999", "term1 pneumonia");
+        for (int warmup = 0; warmup < 5; warmup++) {
+            queries.forEach(query -> index.search(query, null, null, false, 20));
+        }
+        long[] timings = new long[queries.size() * 4];
+        int run = 0;
+        for (int round = 0; round < 4; round++) {
+            for (String query : queries) {
+                long start = System.nanoTime();
+                List<MedicalRecordIndex.Match> matches = index.search(query, LocalDate.of(2026, 1, 20), null, round % 2 == 0, 20);
+                timings[run++] = System.nanoTime() - start;
+                assertFalse(matches.isEmpty(), query);
+            }
+        }
+
+        // Then: Half the queries finish within 50 ms
+        Arrays.sort(timings);
+        long medianMillis = timings[timings.length / 2] / 1_000_000;
+        assertTrue(medianMillis < 50, "median query took " + medianMillis + " ms");
+    }
+
+    @Test
+    @DisplayName("C5.18: Given records edited many times, when searching, then scores match an index of only their current text")
+    void givenRepeatedEdits_whenSearching_thenScoresIgnoreReplacedText() {
+        // Given: Record 2 mentioned a cough in five drafts before its final text, and a fresh index of the final texts
+        MedicalRecordIndex edited = new MedicalRecordIndex();
+        MedicalRecordIndex fresh = new MedicalRecordIndex();
+        edited.index(record(1, soap("Cough for a week", "", "Bronchitis", ""), JANUARY, false));
+        edited.index(record(3, soap("Headache", "", "Migraine", ""), JANUARY, false));
+        for (int draft = 0; draft < 5; draft++) {
+            edited.index(record(2, soap("Cough draft " + draft, "", "", ""), JANUARY, false));
+        }
+        edited.index(record(2, soap("Sprained ankle", "", "Sprain", ""), JANUARY, false));
+        fresh.index(record(1, soap("Cough for a week", "", "Bronchitis", ""), JANUARY, false));
+        fresh.index(record(3, soap("Headache", "", "Migraine", ""), JANUARY, false));
+        fresh.index(record(2, soap("Sprained ankle", "", "Sprain", ""), JANUARY, false));
+
+        // When: Searching both for the cough
+        List<MedicalRecordIndex.Match> editedMatches = edited.search("cough", null, null, false, 10);
+        List<MedicalRecordIndex.Match> freshMatches = fresh.search("cough", null, null, false, 10);
+
+        // Then: The replaced drafts no longer make the term look common
+        assertEquals(1, editedMatches.size());
+        assertEquals(freshMatches.get(0).score(), editedMatches.get(0).score(), 1e-6);
+    }
+
+    private static MedicalRecordText record(long id, String soapNote, LocalDateTime createdAt, boolean signed) {
+        return new MedicalRecordText(id, 1000 + id, soapNote, null, null, signed, createdAt);
+    }
+
+    private static String soap(String subjective, String objective, String assessment, String plan) {
+        return "{\"subjective\":\"" + subjective + "\",\"objective\":\"" + objective
+            + "\",\"assessment\":\"" + assessment + "\",\"plan\":\"" + plan + "\"}";
+    }
+
+    private static String words(String[] vocabulary, Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            // Skewed towards the first words, like real clinical vocabulary
+            int rank = (int) (vocabulary.length * Math.pow(random.nextDouble(), 3));
+            text.append(vocabulary[rank]).append(' ');
+        }
+        return text.toString();
+    }
+
+    private static List<Long> recordIds(List<MedicalRecordIndex.Match> matches) {
+        return matches.stream().map(MedicalRecordIndex.Match::recordId).toList();
+    }
+}
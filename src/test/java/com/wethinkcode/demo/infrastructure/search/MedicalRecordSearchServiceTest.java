@@ -0,0 +1,79 @@
+package com.wethinkcode.demo.infrastructure.search;
+
+import com.wethinkcode.demo.domain.shared.Appointment;
+import com.wethinkcode.demo.domain.shared.AppointmentStatus;
+import com.wethinkcode.demo.domain.shared.MedicalRecord;
+import com.wethinkcode.demo.domain.shared.TriagePriority;
+import com.wethinkcode.demo.domain.shared.User;
+import com.wethinkcode.demo.domain.shared.UserRole;
+import com.wethinkcode.demo.infrastructure.persistence.AppointmentRepository;
+import com.wethinkcode.demo.infrastructure.persistence.MedicalRecordRepository;
+import com.wethinkcode.demo.infrastructure.persistence.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DisplayName("Story C5: Doctors can search medical records by their content")
+class MedicalRecordSearchServiceTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private MedicalRecordRepository medicalRecordRepository;
+
+    @Test
+    @DisplayName("C5.17: Given a record saved and then signed, when searching, then it is found at once with its patient")
+    void givenRecordSavedThenSigned_whenSearching_thenFoundWithPatient() throws Exception {
+        // Given: A completed consultation with a draft record
+        User patient = userRepository.save(User.builder().name("Search Patient").role(UserRole.PATIENT).status("COMPLETED").build());
+        Appointment appointment = appointmentRepository.save(Appointment.builder()
+                .patient(patient)
+                .triagePriority(TriagePriority.MEDIUM)
+                .status(AppointmentStatus.COMPLETED)
+                .roughNotes("")
+                .build());
+        MedicalRecord record = medicalRecordRepository.save(MedicalRecord.builder()
+                .appointmentId(appointment.getId())
+                .soapNote("{\"subjective\":\"Itchy eyes\",\"objective\":\"Injected conjunctivae\","
+                    + "\"assessment\":\"Allergic conjunctivitis\",\"plan\":\"Antihistamine drops\"}")
+                .patientSummary("Your eyes are irritated by an allergy.")
+                .prescription("- Olopatadine 0.1% twice daily")
+                .build());
+
+        // When / Then: The draft is found, but not among signed records
+        mockMvc.perform(get("/doctor/search").param("q", "conjunctivitis olopatadine"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$[0].recordId").value(record.getId()))
+            .andExpect(jsonPath("$[0].patientName").value("Search Patient"))
+            .andExpect(jsonPath("$[0].signed").value(false));
+        mockMvc.perform(get("/doctor/search").param("q", "conjunctivitis").param("signedOnly", "true"))
+            .andExpect(jsonPath("$", hasSize(0)));
+
+        // And once signed it shows up there too
+        record.setIsSigned(true);
+        medicalRecordRepository.save(record);
+        mockMvc.perform(get("/doctor/search").param("q", "conjunctivitis").param("signedOnly", "true"))
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$[0].signed").value(true));
+        mockMvc.perform(get("/doctor/search").param("q", "eyes").param("from", "2026-02-01").param("to", "2026-01-01"))
+            .andExpect(status().isBadRequest());
+    }
+}
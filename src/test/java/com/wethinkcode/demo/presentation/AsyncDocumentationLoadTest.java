@@ -0,0 +1,178 @@
+package com.wethinkcode.demo.presentation;
+
+import com.wethinkcode.demo.domain.doctor.DocumentationJobService;
+import com.wethinkcode.demo.domain.doctor.DocumentationPipeline;
+import com.wethinkcode.demo.domain.doctor.ReactiveDocumentationPipeline;
+import com.wethinkcode.demo.domain.shared.Appointment;
+import com.wethinkcode.demo.domain.shared.PatientRegistration;
+import com.wethinkcode.demo.domain.shared.PatientRegistrationService;
+import com.wethinkcode.demo.domain.shared.TriagePriority;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import reactor.core.publisher.Flux;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// A small platform thread pool and no virtual threads: 300 waiting requests only fit if none of them holds a thread
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "spring.threads.virtual.enabled=false",
+    "server.tomcat.threads.max=20",
+    "noctor.documentation.jobs.queue-capacity=1000"
+})
+@DisplayName("Story C4: Long AI calls do not slow down the rest of the clinic")
+class AsyncDocumentationLoadTest {
+
+    private static final int AI_REQUESTS = 300;
+
+    @MockitoBean
+    private DocumentationPipeline documentationPipeline;
+
+    @MockitoBean
+    private ReactiveDocumentationPipeline reactiveDocumentationPipeline;
+
+    @Autowired
+    private DocumentationJobService documentationJobService;
+
+    @Autowired
+    private PatientRegistrationService patientRegistrationService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    @Test
+    @DisplayName("C4.27: Given 300 doctors waiting on the AI, when nurses load the dashboard, then its p99 latency stays flat")
+    void givenHundredsOfAiRequestsInFlight_whenDashboardLoaded_thenLatencyStaysFlat() throws Exception {
+        // Given: An AI that does not answer until released, and 300 consultations waiting on it
+        CountDownLatch aiReleased = new CountDownLatch(1);
+        when(documentationPipeline.document(any(), any())).thenAnswer(invocation -> {
+            aiReleased.await(60, TimeUnit.SECONDS);
+            return new DocumentationPipeline.Documentation("{\"assessment\":\"Viral URTI\"}", "A cold.", "- Rest");
+        });
+        List<Appointment> appointments = patientRegistrationService.registerAll(IntStream.range(0, AI_REQUESTS)
+                .mapToObj(i -> new PatientRegistration("Load Patient " + i, TriagePriority.values()[i % 3]))
+                .toList());
+        long baseline = p99(dashboardLatencies());
+
+        // When: Every doctor's browser waits for its record while nurses keep using the dashboard
+        List<CompletableFuture<HttpResponse<String>>> waiting = new ArrayList<>();
+        for (Appointment appointment : appointments) {
+            Long jobId = documentationJobService.submit(appointment.getId(), "Cough and fever").getId();
+            waiting.add(client.sendAsync(request("/doctor/documentation-job/" + jobId + "/result?wait=60"),
+                HttpResponse.BodyHandlers.ofString()));
+        }
+        Thread.sleep(1000);
+        long underLoad = p99(dashboardLatencies());
+
+        // Then: The dashboard is as quick as before, although far more requests are open than there are threads
+        assertTrue(waiting.stream().noneMatch(CompletableFuture::isDone), "AI requests should still be waiting");
+        assertTrue(underLoad < Math.max(5 * baseline, 500),
+            "dashboard p99 went from " + baseline + " ms to " + underLoad + " ms");
+
+        // And every waiting request is answered once the AI is done
+        aiReleased.countDown();
+        for (CompletableFuture<HttpResponse<String>> response : waiting) {
+            HttpResponse<String> done = response.get(60, TimeUnit.SECONDS);
+            assertEquals(200, done.statusCode());
+            assertTrue(done.body().contains("\"status\":\"DONE\""), done.body());
+        }
+    }
+
+    @Test
+    @DisplayName("C4.43: Given a SOAP note still streaming to the doctor, when the pool is checked, then no database connection is held")
+    void givenStreamingSoapNote_whenPoolChecked_thenNoConnectionHeld() throws Exception {
+        // Given: An AI that sends one token and then keeps the stream open
+        when(reactiveDocumentationPipeline.streamSoapNote(any(), any()))
+            .thenReturn(Flux.concat(Flux.just("S: Cough"), Flux.never()));
+        Appointment appointment = patientRegistrationService.register("Stream Patient", TriagePriority.HIGH);
+
+        // When: The doctor's browser is receiving the stream
+        HttpRequest stream = HttpRequest.newBuilder(URI.create(
+                "http://localhost:" + port + "/doctor/record-consultation/" + appointment.getId() + "/stream"))
+            .header("Content-Type", "application/x-www-form-urlencoded")
+            .header("Accept", "text/event-stream")
+            .POST(HttpRequest.BodyPublishers.ofString("roughNotes=Cough"))
+            .build();
+        HttpResponse<InputStream> response = client.send(stream, HttpResponse.BodyHandlers.ofInputStream());
+        try (BufferedReader events = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+            assertEquals(200, response.statusCode());
+            assertEquals("event:token", events.readLine());
+
+            // Then: The appointment was looked up, but the stream does not keep its connection
+            assertEquals(0, dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean().getActiveConnections());
+        }
+    }
+
+    @Test
+    @DisplayName("C4.46: Given an unknown appointment, when the doctor starts streaming a SOAP note, then the stream reports an error event")
+    void givenUnknownAppointment_whenStreaming_thenErrorEventSent() throws Exception {
+        // Given: An appointment ID that does not exist
+        HttpRequest stream = HttpRequest.newBuilder(URI.create(
+                "http://localhost:" + port + "/doctor/record-consultation/999999/stream"))
+            .header("Content-Type", "application/x-www-form-urlencoded")
+            .header("Accept", "text/event-stream")
+            .POST(HttpRequest.BodyPublishers.ofString("roughNotes=Cough"))
+            .build();
+
+        // When: The doctor's browser opens the stream
+        HttpResponse<String> response = client.send(stream, HttpResponse.BodyHandlers.ofString());
+
+        // Then: The failure arrives as the endpoint's error event, and the AI is never asked
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().startsWith("event:error"), response.body());
+        assertTrue(response.body().contains("Appointment not found with ID: 999999"), response.body());
+        verify(reactiveDocumentationPipeline, never()).streamSoapNote(any(), any());
+    }
+
+    private long[] dashboardLatencies() throws Exception {
+        long[] latencies = new long[50];
+        for (int i = 0; i < latencies.length; i++) {
+            long start = System.nanoTime();
+            HttpResponse<Void> response = client.send(request("/nurse/dashboard"), HttpResponse.BodyHandlers.discarding());
+            latencies[i] = Duration.ofNanos(System.nanoTime() - start).toMillis();
+            assertEquals(200, response.statusCode());
+        }
+        return latencies;
+    }
+
+    private HttpRequest request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).timeout(Duration.ofSeconds(90)).build();
+    }
+
+    private static long p99(long[] latencies) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(sorted.length * 0.99) - 1];
+    }
+}
@@ -0,0 +1,109 @@
+package com.wethinkcode.demo.presentation;
+
+import com.wethinkcode.demo.domain.shared.Appointment;
+import com.wethinkcode.demo.domain.shared.AppointmentStatus;
+import com.wethinkcode.demo.domain.shared.MedicalRecord;
+import com.wethinkcode.demo.domain.shared.TriagePriority;
+import com.wethinkcode.demo.domain.shared.User;
+import com.wethinkcode.demo.domain.shared.UserRole;
+import com.wethinkcode.demo.infrastructure.persistence.AppointmentRepository;
+import com.wethinkcode.demo.infrastructure.persistence.MedicalRecordRepository;
+import com.wethinkcode.demo.infrastructure.persistence.SqlStatementBudget;
+import com.wethinkcode.demo.infrastructure.persistence.SqlStatementCounter;
+import com.wethinkcode.demo.infrastructure.persistence.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = SqlStatementCounter.PROPERTY)
+@AutoConfigureMockMvc
+@DisplayName("Story C2: Every page runs a fixed number of SQL statements")
+class ControllerSqlBudgetTest {
+
+    private static final int APPOINTMENTS = 8;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private MedicalRecordRepository medicalRecordRepository;
+
+    private User doctor;
+    private User patient;
+    private Appointment documented;
+
+    @BeforeEach
+    void seedClinic() {
+        // Enough rows of every kind that a query per row would blow any budget
+        doctor = userRepository.save(User.builder().name("Dr. Budget").role(UserRole.DOCTOR).status("AVAILABLE").build());
+        patient = userRepository.save(User.builder().name("Budget Patient").role(UserRole.PATIENT).status("WAITING").build());
+        for (int i = 0; i < APPOINTMENTS; i++) {
+            User waiting = userRepository.save(User.builder().name("Budget Waiting " + i).role(UserRole.PATIENT).status("WAITING").build());
+            appointmentRepository.save(Appointment.builder()
+                    .patient(waiting)
+                    .triagePriority(TriagePriority.values()[i % TriagePriority.values().length])
+                    .status(AppointmentStatus.WAITING)
+                    .roughNotes("")
+                    .build());
+            documented = appointmentRepository.save(Appointment.builder()
+                    .patient(patient)
+                    .doctor(doctor)
+                    .triagePriority(TriagePriority.MEDIUM)
+                    .status(i % 2 == 0 ? AppointmentStatus.IN_CONSULT : AppointmentStatus.COMPLETED)
+                    .roughNotes("Cough")
+                    .build());
+            medicalRecordRepository.save(MedicalRecord.builder()
+                    .appointmentId(documented.getId())
+                    .soapNote("S: Cough. O: Clear chest. A: Viral URTI. P: Rest.")
+                    .patientSummary("You have a cold.")
+                    .prescription("- Paracetamol 500mg QID")
+                    .build());
+        }
+    }
+
+    @Test
+    @SqlStatementBudget(3)
+    @DisplayName("C2.17: Given a busy clinic, when the doctor dashboard is rendered, then it stays within its SQL budget")
+    void givenBusyClinic_whenDoctorDashboardRendered_thenWithinBudget() throws Exception {
+        // When / Then: Rendering the page
+        mockMvc.perform(get("/doctor/dashboard").param("doctorId", doctor.getId().toString())).andExpect(status().isOk());
+    }
+
+    @Test
+    @SqlStatementBudget(3)
+    @DisplayName("C2.18: Given a busy clinic, when the nurse dashboard is rendered, then it stays within its SQL budget")
+    void givenBusyClinic_whenNurseDashboardRendered_thenWithinBudget() throws Exception {
+        // When / Then: Rendering the page
+        mockMvc.perform(get("/nurse/dashboard")).andExpect(status().isOk());
+    }
+
+    @Test
+    @SqlStatementBudget(3)
+    @DisplayName("C2.19: Given a patient with many records, when their view is rendered, then it stays within its SQL budget")
+    void givenManyRecords_whenPatientViewRendered_thenWithinBudget() throws Exception {
+        // When / Then: Rendering the page
+        mockMvc.perform(get("/patient/view").param("patientId", patient.getId().toString())).andExpect(status().isOk());
+    }
+
+    @Test
+    @SqlStatementBudget(3)
+    @DisplayName("C2.20: Given a documented appointment, when the patient opens the record, then it stays within its SQL budget")
+    void givenDocumentedAppointment_whenRecordRendered_thenWithinBudget() throws Exception {
+        // When / Then: Rendering the page
+        mockMvc.perform(get("/patient/record/" + documented.getId()).param("patientId", patient.getId().toString()))
+                .andExpect(status().isOk());
+    }
+}
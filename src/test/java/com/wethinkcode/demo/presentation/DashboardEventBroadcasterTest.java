@@ -0,0 +1,84 @@
+package com.wethinkcode.demo.presentation;
+
+import com.wethinkcode.demo.domain.shared.Appointment;
+import com.wethinkcode.demo.domain.shared.AppointmentStatus;
+import com.wethinkcode.demo.domain.shared.TriagePriority;
+import com.wethinkcode.demo.domain.shared.User;
+import com.wethinkcode.demo.domain.shared.UserRole;
+import com.wethinkcode.demo.infrastructure.persistence.AppointmentRepository;
+import com.wethinkcode.demo.infrastructure.persistence.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@DisplayName("Story C2: Dashboards receive triage queue changes as they happen")
+class DashboardEventBroadcasterTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private DashboardEventBroadcaster dashboardEventBroadcaster;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    @DisplayName("C2.11: Given an open dashboard, when a patient is registered and then claimed, then both changes are pushed")
+    void givenOpenDashboard_whenPatientRegisteredAndClaimed_thenChangesPushed() throws Exception {
+        // Given: A dashboard subscribed to live updates
+        Flux<ServerSentEvent<DashboardEvent>> events = WebClient.create("http://localhost:" + port)
+                .get()
+                .uri("/dashboard/events")
+                .retrieve()
+                .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<DashboardEvent>>() {})
+                .filter(event -> event.event() != null);
+
+        CompletableFuture<List<ServerSentEvent<DashboardEvent>>> received = events.take(2).collectList().toFuture();
+        awaitSubscriber();
+
+        // When: A nurse registers a patient and a doctor then takes them
+        User patient = userRepository.save(User.builder().name("Live Patient").role(UserRole.PATIENT).status("WAITING").build());
+        Appointment appointment = appointmentRepository.save(Appointment.builder()
+                .patient(patient)
+                .triagePriority(TriagePriority.HIGH)
+                .status(AppointmentStatus.WAITING)
+                .roughNotes("")
+                .build());
+        appointment.setStatus(AppointmentStatus.IN_CONSULT);
+        appointmentRepository.save(appointment);
+
+        // Then: The dashboard hears about both changes with enough detail to draw the card
+        List<ServerSentEvent<DashboardEvent>> pushed = received.get(10, TimeUnit.SECONDS);
+        assertEquals("added", pushed.get(0).event());
+        assertEquals("Live Patient", pushed.get(0).data().patientName());
+        assertEquals(TriagePriority.HIGH, pushed.get(0).data().triagePriority());
+        assertEquals("claimed", pushed.get(1).event());
+        assertEquals(appointment.getId(), pushed.get(1).data().appointmentId());
+    }
+
+    private void awaitSubscriber() throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (dashboardEventBroadcaster.subscriberCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(dashboardEventBroadcaster.subscriberCount() > 0);
+    }
+}
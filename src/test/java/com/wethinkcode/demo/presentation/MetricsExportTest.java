@@ -0,0 +1,59 @@
+package com.wethinkcode.demo.presentation;
+
+import com.wethinkcode.demo.domain.shared.PatientRegistration;
+import com.wethinkcode.demo.domain.shared.PatientRegistrationService;
+import com.wethinkcode.demo.domain.shared.TriagePriority;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+@DisplayName("Story C4: Operations can see how the clinic and the AI are performing")
+class MetricsExportTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PatientRegistrationService patientRegistrationService;
+
+    @Test
+    @DisplayName("C4.33: Given patients waiting and a served request, when Prometheus scrapes, then queue depth, endpoint latency and AI metrics are exported")
+    void givenClinicActivity_whenScraped_thenMetricsInPrometheusFormat() throws Exception {
+        // Given: Two urgent patients waiting and a client that has read the queue
+        patientRegistrationService.registerAll(List.of(
+                new PatientRegistration("Metrics Patient 1", TriagePriority.HIGH),
+                new PatientRegistration("Metrics Patient 2", TriagePriority.HIGH)));
+        mockMvc.perform(get("/api/v1/queue")).andExpect(status().isOk());
+
+        // When: Prometheus scrapes the application
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // Then: The queue depth, the endpoint's latency buckets and the AI meters are all there
+        double highDepth = scrape.lines()
+                .filter(line -> line.startsWith("triage_queue_depth{") && line.contains("priority=\"HIGH\""))
+                .mapToDouble(line -> Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1)))
+                .findFirst()
+                .orElseThrow();
+        assertTrue(highDepth >= 2, "HIGH queue depth was " + highDepth);
+        assertTrue(scrape.lines().anyMatch(line -> line.startsWith("http_server_requests_seconds_bucket{")
+                && line.contains("uri=\"/api/v1/queue\"")), "no latency histogram for /api/v1/queue");
+        assertTrue(scrape.contains("ollama_generate_seconds_bucket{"), "no Ollama latency histogram");
+        assertTrue(scrape.contains("ollama_generate_tokens_per_second{"), "no Ollama tokens/sec gauge");
+        assertTrue(scrape.contains("ollama_model_loads_total{"), "no Ollama model load counter");
+    }
+}
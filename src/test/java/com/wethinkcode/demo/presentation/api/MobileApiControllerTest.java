@@ -0,0 +1,145 @@
+package com.wethinkcode.demo.presentation.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wethinkcode.demo.domain.shared.Appointment;
+import com.wethinkcode.demo.domain.shared.AppointmentStatus;
+import com.wethinkcode.demo.domain.shared.MedicalRecord;
+import com.wethinkcode.demo.domain.shared.PatientRegistration;
+import com.wethinkcode.demo.domain.shared.PatientRegistrationService;
+import com.wethinkcode.demo.domain.shared.TriagePriority;
+import com.wethinkcode.demo.domain.shared.User;
+import com.wethinkcode.demo.domain.shared.UserRole;
+import com.wethinkcode.demo.infrastructure.persistence.AppointmentRepository;
+import com.wethinkcode.demo.infrastructure.persistence.MedicalRecordRepository;
+import com.wethinkcode.demo.infrastructure.persistence.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@DisplayName("Story M1: The mobile app reads the clinic through a JSON API")
+class MobileApiControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PatientRegistrationService patientRegistrationService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private MedicalRecordRepository medicalRecordRepository;
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    @DisplayName("M1.1: Given a waiting queue, when paging it and asking again, then pages follow the cursor and an unchanged queue is a 304")
+    void givenQueue_whenPagedAndRevalidated_thenCursorPagesAndNotModified() throws Exception {
+        // Given: Patients waiting at every priority
+        patientRegistrationService.registerAll(IntStream.range(0, 7)
+                .mapToObj(i -> new PatientRegistration("Api Patient " + i, TriagePriority.values()[i % 3]))
+                .toList());
+
+        // When: Walking the whole queue three rows at a time
+        List<JsonNode> rows = new ArrayList<>();
+        String cursor = null;
+        String firstEtag = null;
+        do {
+            MvcResult result = mockMvc.perform(get("/api/v1/queue").param("limit", "3").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                .andReturn();
+            firstEtag = firstEtag != null ? firstEtag : result.getResponse().getHeader(HttpHeaders.ETAG);
+            JsonNode page = objectMapper.readTree(result.getResponse().getContentAsString());
+            page.get("items").forEach(rows::add);
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+        } while (cursor != null);
+
+        // Then: Every waiting row came once, in triage order
+        List<String> priorities = rows.stream().map(row -> row.get("triagePriority").asText()).toList();
+        assertEquals(rows.size(), rows.stream().map(row -> row.get("id").asLong()).distinct().count());
+        assertTrue(rows.size() >= 7);
+        assertEquals(priorities.stream().sorted((a, b) -> TriagePriority.valueOf(a).compareTo(TriagePriority.valueOf(b))).toList(), priorities);
+
+        // And revalidating the first page is free until someone else arrives
+        mockMvc.perform(get("/api/v1/queue").param("limit", "3").header(HttpHeaders.IF_NONE_MATCH, firstEtag))
+            .andExpect(status().isNotModified());
+        patientRegistrationService.register("Late Arrival", TriagePriority.HIGH);
+        mockMvc.perform(get("/api/v1/queue").param("limit", "3").header(HttpHeaders.IF_NONE_MATCH, firstEtag))
+            .andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/queue").param("cursor", "not a cursor"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("M1.2: Given a stored record, when the app revalidates it, then it gets 304 until the record changes, and large bodies are gzipped")
+    void givenRecord_whenRevalidated_thenNotModifiedUntilChangedAndCompressed() throws Exception {
+        // Given: A completed appointment with a long record
+        User patient = userRepository.save(User.builder().name("Api Record Patient").role(UserRole.PATIENT).status("COMPLETED").build());
+        Appointment appointment = appointmentRepository.save(Appointment.builder()
+                .patient(patient)
+                .triagePriority(TriagePriority.MEDIUM)
+                .status(AppointmentStatus.COMPLETED)
+                .roughNotes("")
+                .build());
+        MedicalRecord record = medicalRecordRepository.save(MedicalRecord.builder()
+                .appointmentId(appointment.getId())
+                .soapNote("S: Productive cough for ten days. O: Crackles at the right base. ".repeat(40))
+                .prescription("- Amoxicillin 500mg TID")
+                .build());
+        String url = "/api/v1/appointments/" + appointment.getId() + "/record";
+
+        // When: Fetching it once and then revalidating by ETag and by date
+        MvcResult first = mockMvc.perform(get(url)).andExpect(status().isOk()).andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        String lastModified = first.getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+
+        // Then: Both come back 304 while the record is unchanged
+        assertNotNull(lastModified);
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isNotModified());
+        mockMvc.perform(get(url).header(HttpHeaders.IF_MODIFIED_SINCE, lastModified)).andExpect(status().isNotModified());
+
+        // And signing the record changes its ETag
+        record.setIsSigned(true);
+        medicalRecordRepository.save(record);
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isOk());
+
+        // And over HTTP the JSON is compressed for clients that accept gzip
+        HttpResponse<byte[]> response = HttpClient.newHttpClient().send(
+            HttpRequest.newBuilder(URI.create("http://localhost:" + port + url)).header("Accept-Encoding", "gzip").build(),
+            HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(200, response.statusCode());
+        assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null));
+        assertTrue(response.body().length < first.getResponse().getContentAsByteArray().length / 4);
+    }
+}